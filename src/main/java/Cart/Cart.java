@@ -3,15 +3,17 @@ package Cart;
 import Exceptions.EmptyException;
 import Product.Product;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a shopping cart containing products along with their respective quantities.
  * It provides methods to manage the cart, such as adding or removing products, and adjusting quantities.
+ * Cart items are indexed by product id, so finding, updating and removing an item takes constant time.
  */
 public class Cart {
-    private List<CartProduct> products;
+    private Map<Long, CartProduct> products;
     private float totalPrice;
 
     /**
@@ -33,12 +35,12 @@ public class Cart {
     }
 
     /**
-     * Returns a list of products in the cart.
+     * Returns a list of products in the cart, in the order they were added.
      *
-     * @return a list of CartProduct objects
+     * @return an unmodifiable list of CartProduct objects
      */
     public List<CartProduct> getProducts() {
-        return products;
+        return List.copyOf(products.values());
     }
 
 
@@ -46,7 +48,7 @@ public class Cart {
      * Constructs an empty shopping cart with a total price initialized to zero.
      */
     public Cart(){
-        products = new ArrayList<>();
+        products = new LinkedHashMap<>();
         totalPrice = 0;
     }
 
@@ -56,7 +58,7 @@ public class Cart {
     private void recalculateTotalPrice(){
         float newTotalPrice = 0;
 
-        for(CartProduct cartProduct : products){
+        for(CartProduct cartProduct : products.values()){
             newTotalPrice += cartProduct.getQuantity() * cartProduct.getProduct().getPrice();
         }
 
@@ -75,19 +77,19 @@ public class Cart {
             throw new Exception("You can't add more than " + product.getQauntity() + " items");
         }
 
-        for (CartProduct cartProduct : products) {
-            if (cartProduct.getProduct().equals(product)) {
-                if(cartProduct.getQuantity() + quantity > product.getQauntity()){
-                    throw new Exception("You can't add more than " + product.getQauntity() + " items");
-                }
+        CartProduct cartProduct = products.get(product.getId());
 
-                cartProduct.setQuantity(cartProduct.getQuantity() + quantity);
-                recalculateTotalPrice();
-                return;
+        if (cartProduct != null) {
+            if(cartProduct.getQuantity() + quantity > product.getQauntity()){
+                throw new Exception("You can't add more than " + product.getQauntity() + " items");
             }
+
+            cartProduct.setQuantity(cartProduct.getQuantity() + quantity);
+            recalculateTotalPrice();
+            return;
         }
 
-        this.products.add(new CartProduct(product, quantity));
+        this.products.put(product.getId(), new CartProduct(product, quantity));
         recalculateTotalPrice();
     }
 
@@ -97,10 +99,20 @@ public class Cart {
      * @param product the product to remove
      */
     public void removeProduct(CartProduct product){
-        this.products.removeIf(cartProduct -> cartProduct.equals(product));
+        this.products.remove(product.getProductId(), product);
         recalculateTotalPrice();
     }
 
+    /**
+     * Finds the cart item of a product.
+     *
+     * @param productId the id of the product
+     * @return the cart item, or null if the product is not in the cart
+     */
+    public CartProduct findProduct(long productId){
+        return products.get(productId);
+    }
+
     /**
      * Changes the quantity of a specific product in the cart.
      *
@@ -109,15 +121,15 @@ public class Cart {
      * @throws Exception if the new quantity is invalid or exceeds available stock
      */
     public void changeQuantity(CartProduct product, int newQuantity) throws Exception {
-        for (CartProduct cartProduct : products) {
-            if (cartProduct.equals(product)) {
-                if (newQuantity > 0 && cartProduct.getProduct().getQauntity() >= newQuantity) {
-                    cartProduct.setQuantity(newQuantity);
-                } else if (newQuantity == 0) {
-                    this.removeProduct(cartProduct);
-                } else {
-                    throw new Exception("Incorrect quantity value");
-                }
+        CartProduct cartProduct = products.get(product.getProductId());
+
+        if (cartProduct != null && cartProduct.equals(product)) {
+            if (newQuantity > 0 && cartProduct.getProduct().getQauntity() >= newQuantity) {
+                cartProduct.setQuantity(newQuantity);
+            } else if (newQuantity == 0) {
+                this.removeProduct(cartProduct);
+            } else {
+                throw new Exception("Incorrect quantity value");
             }
         }
 
@@ -134,7 +146,7 @@ public class Cart {
         if (products.isEmpty()) {
             throw new EmptyException("The cart is empty");
         } else {
-            for (CartProduct cartProduct : products) {
+            for (CartProduct cartProduct : products.values()) {
                 System.out.println(cartProduct);
             }
             System.out.println("Total price: " + totalPrice);
@@ -145,7 +157,7 @@ public class Cart {
      * Decrements the quantity of each product in the store inventory based on the quantities in the cart.
      */
     public void removeQuantityInProducts(){
-        for (CartProduct cartProduct : products) {
+        for (CartProduct cartProduct : products.values()) {
             Product product = cartProduct.getProduct();
             product.changeQuantity(product.getQauntity() - cartProduct.getQuantity());
         }
@@ -159,11 +171,12 @@ public class Cart {
     @Override
     public String toString() {
         StringBuilder output = new StringBuilder("Cart { products = [ ");
+        List<CartProduct> items = getProducts();
 
-        for (int i = 1; i <= products.size(); i++){
-            output.append(products.get(i - 1).toString());
+        for (int i = 1; i <= items.size(); i++){
+            output.append(items.get(i - 1).toString());
 
-            if(i != products.size()){
+            if(i != items.size()){
                 output.append(", ");
             } else {
                 output.append(" ], totalPrice = ").append(totalPrice);
@@ -8,6 +8,7 @@ import Product.Product;
  */
 public class CartProduct {
     private Product product;
+    private long productId;
     private int quantity;
 
     /**
@@ -19,6 +20,15 @@ public class CartProduct {
         return product;
     }
 
+    /**
+     * Gets the id of the product associated with this cart item.
+     *
+     * @return the product id
+     */
+    public long getProductId() {
+        return productId;
+    }
+
     /**
      * Gets the quantity of the product in the cart.
      *
@@ -45,6 +55,7 @@ public class CartProduct {
      */
     public CartProduct(Product product, int quantity){
         this.product = product;
+        this.productId = product.getId();
         this.quantity = quantity;
     }
 
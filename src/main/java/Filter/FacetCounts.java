@@ -0,0 +1,193 @@
+package Filter;
+
+import Product.Product;
+import Product.StringDictionary;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Facet counts of a query: how many products each brand, category and price bucket would yield.
+ * Every dimension is counted under all other active filters but not under its own,
+ * so a count tells how many results there would be after also selecting that value.
+ * Price buckets are split by ascending bounds: bucket 0 holds prices below the first bound,
+ * bucket i holds prices from bound i - 1 up to but excluding bound i, and the last bucket holds the rest.
+ */
+public class FacetCounts {
+    private final int matchCount;
+    private final int[] brandCounts;
+    private final int[] categoryCounts;
+    private final float[] priceBounds;
+    private final int[] priceCounts;
+
+    /**
+     * Constructs empty facet counts for the given price bounds.
+     *
+     * @param priceBounds the ascending bounds between price buckets
+     * @throws IllegalArgumentException if the bounds are not strictly ascending
+     */
+    FacetCounts(float[] priceBounds) {
+        for (int i = 1; i < priceBounds.length; i++) {
+            if(!(priceBounds[i - 1] < priceBounds[i])){
+                throw new IllegalArgumentException("Price bounds must be strictly ascending.");
+            }
+        }
+
+        this.matchCount = 0;
+        this.brandCounts = new int[Product.BRANDS.size()];
+        this.categoryCounts = new int[Product.CATEGORIES.size()];
+        this.priceBounds = priceBounds.clone();
+        this.priceCounts = new int[priceBounds.length + 1];
+    }
+
+    /**
+     * Constructs facet counts with the final number of matches.
+     *
+     * @param counts the counts collected so far
+     * @param matchCount the number of products passing every filter
+     */
+    private FacetCounts(FacetCounts counts, int matchCount) {
+        this.matchCount = matchCount;
+        this.brandCounts = counts.brandCounts;
+        this.categoryCounts = counts.categoryCounts;
+        this.priceBounds = counts.priceBounds;
+        this.priceCounts = counts.priceCounts;
+    }
+
+    /**
+     * Counts one product in the dimensions whose other filters it passes.
+     * The product must already match the name.
+     *
+     * @param brandId the brand code of the product, or -1 if it has none
+     * @param categoryId the category code of the product, or -1 if it has none
+     * @param price the price of the product
+     * @param brandPass whether the product passes the brand filter
+     * @param categoryPass whether the product passes the category filter
+     * @param pricePass whether the product passes the price filters
+     * @return true if the product passes every filter, false otherwise
+     */
+    boolean count(int brandId, int categoryId, float price, boolean brandPass, boolean categoryPass, boolean pricePass) {
+        if(categoryPass && pricePass && brandId >= 0 && brandId < brandCounts.length){
+            brandCounts[brandId]++;
+        }
+
+        if(brandPass && pricePass && categoryId >= 0 && categoryId < categoryCounts.length){
+            categoryCounts[categoryId]++;
+        }
+
+        if(brandPass && categoryPass){
+            priceCounts[bucketOf(price)]++;
+        }
+
+        return brandPass && categoryPass && pricePass;
+    }
+
+    /**
+     * Finishes the counts.
+     *
+     * @param matchCount the number of products passing every filter
+     * @return the finished counts
+     */
+    FacetCounts finish(int matchCount) {
+        return new FacetCounts(this, matchCount);
+    }
+
+    /**
+     * Retrieves the number of products passing every filter.
+     *
+     * @return the number of matches
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Retrieves the number of products each brand would yield under the other filters.
+     *
+     * @return the non-zero counts by brand, in dictionary order
+     */
+    public Map<String, Integer> getBrandCounts() {
+        return toMap(Product.BRANDS, brandCounts);
+    }
+
+    /**
+     * Retrieves the number of products each category would yield under the other filters.
+     *
+     * @return the non-zero counts by category, in dictionary order
+     */
+    public Map<String, Integer> getCategoryCounts() {
+        return toMap(Product.CATEGORIES, categoryCounts);
+    }
+
+    /**
+     * Retrieves the bounds between price buckets.
+     *
+     * @return the ascending bounds
+     */
+    public float[] getPriceBounds() {
+        return priceBounds.clone();
+    }
+
+    /**
+     * Retrieves the number of products each price bucket would yield under the other filters.
+     *
+     * @return the counts by bucket, one more than the number of bounds
+     */
+    public int[] getPriceCounts() {
+        return priceCounts.clone();
+    }
+
+    /**
+     * Finds the price bucket of a price.
+     *
+     * @param price the price
+     * @return the index of the bucket
+     */
+    private int bucketOf(float price) {
+        int position = Arrays.binarySearch(priceBounds, price);
+
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Converts counts by dictionary code into counts by value.
+     *
+     * @param dictionary the dictionary of the codes
+     * @param counts the counts by code
+     * @return the non-zero counts by value
+     */
+    private static Map<String, Integer> toMap(StringDictionary dictionary, int[] counts) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+
+        for (int code = 0; code < counts.length; code++) {
+            if(counts[code] > 0){
+                result.put(dictionary.get(code), counts[code]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a string representation of the facet counts.
+     *
+     * @return a string representation of the facet counts
+     */
+    @Override
+    public String toString() {
+        StringBuilder prices = new StringBuilder();
+
+        for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+            String from = bucket == 0 ? "" : String.valueOf(priceBounds[bucket - 1]);
+            String to = bucket == priceBounds.length ? "" : String.valueOf(priceBounds[bucket]);
+
+            prices.append(bucket == 0 ? "" : ", ").append(from).append("..").append(to).append('=').append(priceCounts[bucket]);
+        }
+
+        return "Matches: " + matchCount + "\n" +
+                "Brands: " + getBrandCounts() + "\n" +
+                "Categories: " + getCategoryCounts() + "\n" +
+                "Prices: {" + prices + "}";
+    }
+}
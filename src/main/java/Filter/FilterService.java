@@ -1,33 +1,122 @@
 package Filter;
 
+import Index.PriceIndex;
+import Index.RoaringBitmap;
+import Index.SortedView;
 import Product.Product;
+import Product.ProductCatalog;
+import Product.StringDictionary;
+import Product.TextNormalizer;
+import Sort.OrdinalSort;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Service class that manages filters for products.
+ * Whenever a filter changes, the active filters are compiled into a predicate chain,
+ * so filtering a list only runs the checks that are actually configured.
+ * Scans over more products than the parallel threshold are split into fork/join tasks when a pool is configured.
+ * Names are matched against the normalized titles of the products, so they ignore case and accents.
+ * Changes to the filters are serialized, and each one publishes an immutable compiled state through a single volatile
+ * field; every query reads that field once, so concurrent queries never lock and never see a half-applied change.
  */
 public class FilterService {
+    private static final double BRAND_PASS_RATE = 0.1;
+    private static final double CATEGORY_PASS_RATE = 0.2;
+    private static final double PRICE_BOUND_PASS_RATE = 0.5;
+    private static final int MIN_LEAF_SIZE = 1024;
+    private static final int MASK_DENSITY = 16;
+
     private List<String> brandFilters = new ArrayList<>();
     private List<String> categoryFilters = new ArrayList<>();
     private Float minPrice = null;
     private Float maxPrice = null;
+    private volatile Compiled compiled;
+    private ForkJoinPool parallelPool = null;
+    private int parallelThreshold = Integer.MAX_VALUE;
+
+    /**
+     * Single check of a compiled filter chain.
+     *
+     * @param passRate the estimated share of products passing the check
+     * @param check the check
+     */
+    private record Stage(double passRate, Predicate<Product> check) {}
+
+    /**
+     * Immutable result of compiling the filters, read by queries without locking.
+     *
+     * @param brandFilters the brand filters
+     * @param categoryFilters the category filters
+     * @param minPrice the minimum price filter, or null if unset
+     * @param maxPrice the maximum price filter, or null if unset
+     * @param filter the predicate chain of the filters, or null if no filter is active
+     * @param brandCodes the dictionary codes of the brand filters, or null if no brand filter is set
+     * @param categoryCodes the dictionary codes of the category filters, or null if no category filter is set
+     * @param hasUnknownValues whether some filter value had no dictionary code at compile time
+     * @param brandCount the size of the brand dictionary at compile time
+     * @param categoryCount the size of the category dictionary at compile time
+     * @param state the snapshot of the filters used as a cache key
+     */
+    private record Compiled(List<String> brandFilters, List<String> categoryFilters, Float minPrice, Float maxPrice,
+                            Predicate<Product> filter, BitSet brandCodes, BitSet categoryCodes, boolean hasUnknownValues,
+                            int brandCount, int categoryCount, FilterState state) {
+        /**
+         * Retrieves the lower bound of the price range.
+         *
+         * @return the minimum price, or negative infinity if unset
+         */
+        float min(){
+            return minPrice == null ? Float.NEGATIVE_INFINITY : minPrice;
+        }
+
+        /**
+         * Retrieves the upper bound of the price range.
+         *
+         * @return the maximum price, or positive infinity if unset
+         */
+        float max(){
+            return maxPrice == null ? Float.POSITIVE_INFINITY : maxPrice;
+        }
+
+        /**
+         * Checks whether a minimum or maximum price filter is set.
+         *
+         * @return true if a price filter is set, false otherwise
+         */
+        boolean hasPriceFilter(){
+            return minPrice != null || maxPrice != null;
+        }
+    }
 
     /**
      * Constructs an empty FilterService.
      */
-    public FilterService(){}
+    public FilterService(){
+        compile();
+    }
 
     /**
      * Adds a brand to the list of brand filters.
      *
      * @param brand the brand to add to the filters
      */
-    public void addBrandToFilter(String brand){
+    public synchronized void addBrandToFilter(String brand){
         if(!this.brandFilters.contains(brand)){
             this.brandFilters.add(brand);
         }
+
+        compile();
     }
 
     /**
@@ -35,10 +124,12 @@ public class FilterService {
      *
      * @param category the category to add to the filters
      */
-    public void addCategoryFilter(String category){
+    public synchronized void addCategoryFilter(String category){
         if(!this.categoryFilters.contains(category)){
             this.categoryFilters.add(category);
         }
+
+        compile();
     }
 
     /**
@@ -47,13 +138,15 @@ public class FilterService {
      * @param filterType the type of price filter (MIN_PRICE or MAX_PRICE)
      * @param value the value to set for the price filter
      */
-    public void changePriceFilters(FilterType filterType, Float value){
+    public synchronized void changePriceFilters(FilterType filterType, Float value){
         if(filterType == FilterType.MIN_PRICE){
             minPrice = value;
         }
         else if (filterType == FilterType.MAX_PRICE){
             maxPrice = value;
         }
+
+        compile();
     }
 
     /**
@@ -62,13 +155,15 @@ public class FilterService {
      * @param filterType the type of filter to remove (BRAND or CATEGORY)
      * @param filter the filter value to remove
      */
-    public void removeArrayFilter(FilterType filterType, String filter){
+    public synchronized void removeArrayFilter(FilterType filterType, String filter){
         if(filterType == FilterType.BRAND){
             this.brandFilters.remove(filter);
         }
         else if (filterType == FilterType.CATEGORY){
             this.categoryFilters.remove(filter);
         }
+
+        compile();
     }
 
     /**
@@ -76,23 +171,43 @@ public class FilterService {
      *
      * @param filterType the type of filters to clear (BRAND or CATEGORY)
      */
-    public void clearAllArrayFilters(FilterType filterType){
+    public synchronized void clearAllArrayFilters(FilterType filterType){
         if(filterType == FilterType.BRAND){
             this.brandFilters.clear();
         }
         else if (filterType == FilterType.CATEGORY){
             this.categoryFilters.clear();
         }
+
+        compile();
     }
 
     /**
      * Clears all filters, including brand, category, and price filters.
      */
-    public void clearAllFilters(){
+    public synchronized void clearAllFilters(){
         this.categoryFilters.clear();
         this.brandFilters.clear();
         this.maxPrice = null;
         this.minPrice = null;
+
+        compile();
+    }
+
+    /**
+     * Enables parallel filtering of large product lists and catalogs.
+     *
+     * @param pool the pool to run filtering tasks in, or null to always filter sequentially
+     * @param threshold the smallest number of products that is filtered in parallel
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public void setParallelExecution(ForkJoinPool pool, int threshold){
+        if(threshold <= 0){
+            throw new IllegalArgumentException("Parallel threshold must be positive.");
+        }
+
+        this.parallelPool = pool;
+        this.parallelThreshold = threshold;
     }
 
     /**
@@ -100,9 +215,8 @@ public class FilterService {
      *
      * @return the list of brand filters
      */
-
     public List<String> getBrandFilters() {
-        return brandFilters;
+        return compiled.brandFilters();
     }
 
     /**
@@ -111,7 +225,7 @@ public class FilterService {
      * @return the list of category filters
      */
     public List<String> getCategoryFilters() {
-        return categoryFilters;
+        return compiled.categoryFilters();
     }
 
     /**
@@ -120,7 +234,7 @@ public class FilterService {
      * @return the minimum price filter
      */
     public Float getMinPrice() {
-        return minPrice;
+        return compiled.minPrice();
     }
 
     /**
@@ -129,7 +243,16 @@ public class FilterService {
      * @return the maximum price filter
      */
     public Float getMaxPrice() {
-        return maxPrice;
+        return compiled.maxPrice();
+    }
+
+    /**
+     * Takes a snapshot of the current filters that can be used as a key for cached query results.
+     *
+     * @return the snapshot of the current filters
+     */
+    public FilterState getState() {
+        return compiled.state();
     }
 
     /**
@@ -140,37 +263,891 @@ public class FilterService {
      * @return the list of filtered products
      */
     public List<Product> filterProducts(List<Product> products, String name){
+        Predicate<Product> filter = productFilter(TextNormalizer.normalize(name));
+
+        if(filter == null){
+            return new ArrayList<>(products);
+        }
+
+        if(isParallel(products.size())){
+            Product[] source = products.toArray(new Product[0]);
+            Predicate<Product> test = filter;
+            int[] matches = scanInParallel(position -> test.test(source[position]), source.length);
+            List<Product> filteredProducts = new ArrayList<>(matches.length);
+
+            for (int position : matches) {
+                filteredProducts.add(source[position]);
+            }
+
+            return filteredProducts;
+        }
+
         List<Product> filteredProducts = new ArrayList<>();
 
         for (Product product : products) {
-            if(!brandFilters.isEmpty()){
-                if(!brandFilters.contains(product.getBrand())){
-                    continue;
-                }
+            if(filter.test(product)){
+                filteredProducts.add(product);
             }
+        }
 
-            if(!categoryFilters.isEmpty()){
-                if(!categoryFilters.contains(product.getCategory())){
-                    continue;
-                }
+        return filteredProducts;
+    }
+
+    /**
+     * Streams the products of the provided list that pass the current filters and match the name, in list order.
+     * Each product is checked only when the stream pulls it, so a consumer that stops early stops the scan too.
+     * The filters are captured when the stream is created.
+     *
+     * @param products the list of products to filter
+     * @param name the name to filter products by
+     * @return a lazy stream of the filtered products
+     */
+    public Stream<Product> streamProducts(List<Product> products, String name){
+        Predicate<Product> filter = productFilter(TextNormalizer.normalize(name));
+
+        return filter == null ? products.stream() : products.stream().filter(filter);
+    }
+
+    /**
+     * Combines the compiled filters with a check of the name.
+     *
+     * @param name the normalized name to filter products by
+     * @return the predicate, or null if no filter is active and the name is empty
+     */
+    private Predicate<Product> productFilter(String name){
+        Predicate<Product> filter = current().filter();
+
+        if(!name.isEmpty()){
+            Predicate<Product> byName = product -> product.getNormalizedTitle().contains(name);
+            filter = filter == null ? byName : filter.and(byName);
+        }
+
+        return filter;
+    }
+
+    /**
+     * Retrieves the compiled filters for a query, compiling them again when a filter value that no product had
+     * at compile time may have been added to its dictionary since, so products created later with that value still match.
+     * The recompiled state is published only if no change to the filters was published in the meantime.
+     *
+     * @return the compiled filters
+     */
+    private Compiled current(){
+        Compiled current = compiled;
+
+        if(!current.hasUnknownValues() || (Product.BRANDS.size() == current.brandCount() && Product.CATEGORIES.size() == current.categoryCount())){
+            return current;
+        }
+
+        Compiled refreshed = compile(current.brandFilters(), current.categoryFilters(), current.minPrice(), current.maxPrice());
+
+        synchronized (this) {
+            if(compiled == current){
+                compiled = refreshed;
+            }
+        }
+
+        return refreshed;
+    }
+
+    /**
+     * Compiles the current filters and publishes the result. Called with the lock held by every change to the filters.
+     */
+    private void compile(){
+        compiled = compile(List.copyOf(brandFilters), List.copyOf(categoryFilters), minPrice, maxPrice);
+    }
+
+    /**
+     * Compiles filters into a predicate chain and takes a snapshot of them.
+     * Only configured checks are included, brand and category lists become bit sets of dictionary codes,
+     * and the checks are ordered so that the one expected to reject the most products runs first.
+     *
+     * @param brandFilters the brand filters
+     * @param categoryFilters the category filters
+     * @param minPrice the minimum price filter, or null if unset
+     * @param maxPrice the maximum price filter, or null if unset
+     * @return the compiled filters
+     */
+    private static Compiled compile(List<String> brandFilters, List<String> categoryFilters, Float minPrice, Float maxPrice){
+        List<Stage> stages = new ArrayList<>();
+        BitSet brands = brandFilters.isEmpty() ? null : toCodes(Product.BRANDS, brandFilters);
+        BitSet categories = categoryFilters.isEmpty() ? null : toCodes(Product.CATEGORIES, categoryFilters);
+
+        if(brands != null){
+            stages.add(new Stage(brandFilters.size() * BRAND_PASS_RATE, product -> hasCode(brands, product.getBrandId())));
+        }
+
+        if(categories != null){
+            stages.add(new Stage(categoryFilters.size() * CATEGORY_PASS_RATE, product -> hasCode(categories, product.getCategoryId())));
+        }
+
+        if(minPrice != null && maxPrice != null){
+            float min = minPrice;
+            float max = maxPrice;
+            stages.add(new Stage(PRICE_BOUND_PASS_RATE * PRICE_BOUND_PASS_RATE, product -> !(product.getPrice() < min) && !(product.getPrice() > max)));
+        } else if(minPrice != null){
+            float min = minPrice;
+            stages.add(new Stage(PRICE_BOUND_PASS_RATE, product -> !(product.getPrice() < min)));
+        } else if(maxPrice != null){
+            float max = maxPrice;
+            stages.add(new Stage(PRICE_BOUND_PASS_RATE, product -> !(product.getPrice() > max)));
+        }
+
+        stages.sort(Comparator.comparingDouble(Stage::passRate));
+
+        Predicate<Product> filter = null;
+
+        for (Stage stage : stages) {
+            filter = filter == null ? stage.check() : filter.and(stage.check());
+        }
+
+        int brandCount = Product.BRANDS.size();
+        int categoryCount = Product.CATEGORIES.size();
+        boolean hasUnknownValues = hasUnknown(Product.BRANDS, brandFilters) || hasUnknown(Product.CATEGORIES, categoryFilters);
+
+        return new Compiled(brandFilters, categoryFilters, minPrice, maxPrice, filter, brands, categories, hasUnknownValues,
+                brandCount, categoryCount, FilterState.of(brandFilters, categoryFilters, minPrice, maxPrice));
+    }
+
+    /**
+     * Filters the products of a columnar catalog based on the current filters and product name.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @return the list of filtered products in catalog order
+     */
+    public List<Product> filterProducts(ProductCatalog catalog, String name){
+        return catalog.getProducts(filterOrdinals(catalog, name));
+    }
+
+    /**
+     * Filters the products of a columnar catalog based on the current filters and product name.
+     * Candidates are picked from the catalog indexes first: brand and category filters become a union of bitmaps
+     * within each dimension and an intersection across dimensions, names of three or more characters are
+     * looked up in the trigram index, and a price range becomes a slice of the price index when that is narrower.
+     * Only the candidates are then checked against the price column and the title.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @return the ordinals of the filtered products in ascending order
+     */
+    public int[] filterOrdinals(ProductCatalog catalog, String name){
+        String term = TextNormalizer.normalize(name);
+        Compiled filters = current();
+
+        return checkCandidates(catalog, narrowCandidates(catalog, term, filters), term, filters);
+    }
+
+    /**
+     * Filters the products of a columnar catalog and returns them in the order of a pre-sorted view.
+     * When the indexes leave only a few candidates they are filtered and sorted directly;
+     * otherwise the view is walked in order and the result needs no sorting.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @param view the pre-sorted view giving the order of the result
+     * @return the ordinals of the filtered products in the order of the view
+     */
+    public int[] filterOrdinals(ProductCatalog catalog, String name, SortedView view){
+        return filterOrdinals(catalog, name, view, -1, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters one page of the products of a columnar catalog in the order of a pre-sorted view.
+     * The view is walked from just after the cursor and the walk stops as soon as the page is full,
+     * so a page costs time proportional to the rows before it rather than to the whole catalog.
+     * When the indexes leave only a few candidates, the page is picked from them with a bounded heap instead.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @param view the pre-sorted view giving the order of the result
+     * @param afterOrdinal the ordinal of the last product of the previous page, or -1 to start from the beginning
+     * @param skip the number of matching products to skip
+     * @param limit the maximum number of products to return
+     * @return the ordinals of the page in the order of the view
+     * @throws IllegalArgumentException if the cursor ordinal is not in the view
+     */
+    public int[] filterOrdinals(ProductCatalog catalog, String name, SortedView view, int afterOrdinal, int skip, int limit){
+        String term = TextNormalizer.normalize(name);
+        Compiled filters = current();
+        int[] candidates = narrowCandidates(catalog, term, filters);
+        IntBinaryOperator comparator = view.getComparator();
+
+        if(candidates != null && (long) candidates.length * (32 - Integer.numberOfLeadingZeros(candidates.length)) < view.size()){
+            int[] matches = checkCandidates(catalog, candidates, term, filters);
+
+            if(afterOrdinal >= 0){
+                matches = OrdinalSort.keepAfter(matches, afterOrdinal, comparator);
+            }
+
+            int[] first = OrdinalSort.selectFirst(matches, (int) Math.min((long) skip + limit, matches.length), comparator);
+            return Arrays.copyOfRange(first, Math.min(skip, first.length), first.length);
+        }
+
+        float min = filters.min();
+        float max = filters.max();
+        boolean checkName = !term.isEmpty();
+        int cursor = -1;
+
+        if(afterOrdinal >= 0){
+            boolean live = afterOrdinal < catalog.getSize() && catalog.isLive(afterOrdinal);
+            cursor = live ? view.positionOf(afterOrdinal) : -1;
+
+            if(cursor < 0){
+                throw new IllegalArgumentException("The cursor product is not in the catalog.");
+            }
+        }
+
+        int start = cursor + 1;
+        BitSet members = candidates == null ? null : toMembers(candidates);
+        int[] result = new int[Math.min(limit, candidates == null ? view.size() - start : candidates.length)];
+        int skipped = 0;
+        int count = 0;
+
+        for (int position = start; position < view.size() && count < limit; position++) {
+            int ordinal = view.getOrdinal(position);
+
+            if(members != null && !members.get(ordinal)){
+                continue;
             }
 
-            if(minPrice != null && product.getPrice() < minPrice){
+            float price = catalog.getPrice(ordinal);
+
+            if(price < min || price > max){
                 continue;
             }
 
-            if(maxPrice != null && product.getPrice() > maxPrice){
+            if(checkName && !catalog.getNormalizedTitle(ordinal).contains(term)){
                 continue;
             }
 
-            if(!product.getTitle().contains(name)){
+            if(skipped < skip){
+                skipped++;
                 continue;
             }
 
-            filteredProducts.add(product);
+            result[count++] = ordinal;
         }
 
-        return filteredProducts;
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Streams the ordinals of the products of a columnar catalog that pass the current filters and match the name,
+     * in ascending order. Each product is checked on the columns only when the stream pulls it;
+     * names of three or more characters limit the walk to the candidates of the trigram index.
+     * The filters are captured when the stream is created.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @return a lazy stream of the filtered ordinals
+     */
+    public IntStream streamOrdinals(ProductCatalog catalog, String name){
+        String term = TextNormalizer.normalize(name);
+        IntPredicate matcher = ordinalFilter(catalog, term, current());
+        int[] candidates = term.isEmpty() ? null : catalog.getTitleIndex().candidates(term);
+
+        return candidates == null ?
+                IntStream.range(0, catalog.getSize()).filter(matcher) :
+                IntStream.of(candidates).filter(matcher);
+    }
+
+    /**
+     * Streams the ordinals of the filtered products of a columnar catalog in the order of a pre-sorted view.
+     * The view is walked as the stream pulls ordinals, so nothing is buffered or sorted
+     * and a consumer that stops after a few products only pays for the rows it walked.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @param view the pre-sorted view giving the order of the stream
+     * @return a lazy stream of the filtered ordinals in the order of the view
+     */
+    public IntStream streamOrdinals(ProductCatalog catalog, String name, SortedView view){
+        IntPredicate matcher = ordinalFilter(catalog, TextNormalizer.normalize(name), current());
+
+        return IntStream.range(0, view.size()).map(view::getOrdinal).filter(matcher);
+    }
+
+    /**
+     * Streams the ordinals of the filtered products of a columnar catalog ordered by price, as {@code SortByPrice} would,
+     * by walking the slice of the price index within the price filters as the stream pulls ordinals.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @return a lazy stream of the filtered ordinals ordered by price
+     */
+    public IntStream streamOrdinalsByPrice(ProductCatalog catalog, String name){
+        Compiled filters = current();
+        IntPredicate matcher = ordinalFilter(catalog, TextNormalizer.normalize(name), filters);
+        PriceIndex priceIndex = catalog.getPriceIndex();
+        int from = priceFrom(priceIndex, filters);
+
+        return IntStream.range(from, Math.max(from, priceTo(priceIndex, filters))).map(priceIndex::getOrdinal).filter(matcher);
+    }
+
+    /**
+     * Builds a check of a single catalog ordinal against all current filters and the name, reading only the columns.
+     *
+     * @param catalog the catalog holding the products
+     * @param name the normalized name to filter products by
+     * @param filters the compiled filters
+     * @return the predicate, false for tombstones
+     */
+    private static IntPredicate ordinalFilter(ProductCatalog catalog, String name, Compiled filters){
+        BitSet brands = filters.brandFilters().isEmpty() ? null : toCodes(catalog.getBrands(), filters.brandFilters());
+        BitSet categories = filters.categoryFilters().isEmpty() ? null : toCodes(catalog.getCategories(), filters.categoryFilters());
+        float min = filters.min();
+        float max = filters.max();
+        boolean checkName = !name.isEmpty();
+
+        return ordinal -> catalog.isLive(ordinal)
+                && (brands == null || hasCode(brands, catalog.getBrandId(ordinal)))
+                && (categories == null || hasCode(categories, catalog.getCategoryId(ordinal)))
+                && matches(catalog, ordinal, min, max, checkName, name);
+    }
+
+    /**
+     * Writes the ordinals of the products of a columnar catalog that pass the current filters and match the name
+     * into a buffer, in ascending order. Nothing is allocated: the columns are scanned with the brand and category
+     * codes compiled with the filters, so a reused buffer makes the query garbage-free. Selective queries are faster
+     * with {@link #filterOrdinals(ProductCatalog, String)}, which narrows the scan with the indexes first.
+     *
+     * @param catalog the catalog to filter
+     * @param term the normalized name to filter products by
+     * @param out the buffer to write to, at least as long as the number of live products
+     * @return the number of ordinals written
+     */
+    public int filterInto(ProductCatalog catalog, String term, int[] out){
+        Compiled filters = current();
+        BitSet brands = filters.brandCodes();
+        BitSet categories = filters.categoryCodes();
+        float min = filters.min();
+        float max = filters.max();
+        int count = 0;
+
+        for (int ordinal = 0; ordinal < catalog.getSize(); ordinal++) {
+            if(catalog.isLive(ordinal) && accepts(catalog, ordinal, brands, categories, min, max, term)){
+                out[count++] = ordinal;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the ordinals of the filtered products of a columnar catalog into a buffer in the order of a pre-sorted view,
+     * without allocating and without sorting.
+     *
+     * @param catalog the catalog to filter
+     * @param term the normalized name to filter products by
+     * @param view the pre-sorted view giving the order of the result
+     * @param out the buffer to write to, at least as long as the view
+     * @return the number of ordinals written
+     */
+    public int filterInto(ProductCatalog catalog, String term, SortedView view, int[] out){
+        Compiled filters = current();
+        BitSet brands = filters.brandCodes();
+        BitSet categories = filters.categoryCodes();
+        float min = filters.min();
+        float max = filters.max();
+        int count = 0;
+
+        for (int position = 0; position < view.size(); position++) {
+            int ordinal = view.getOrdinal(position);
+
+            if(accepts(catalog, ordinal, brands, categories, min, max, term)){
+                out[count++] = ordinal;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the ordinals of the filtered products of a columnar catalog into a buffer ordered by price,
+     * as {@code SortByPrice} would, by walking the slice of the price index within the price filters.
+     * Nothing is allocated and nothing is sorted.
+     *
+     * @param catalog the catalog to filter
+     * @param term the normalized name to filter products by
+     * @param out the buffer to write to, at least as long as the number of live products
+     * @return the number of ordinals written
+     */
+    public int filterByPriceInto(ProductCatalog catalog, String term, int[] out){
+        Compiled filters = current();
+        BitSet brands = filters.brandCodes();
+        BitSet categories = filters.categoryCodes();
+        PriceIndex priceIndex = catalog.getPriceIndex();
+        int from = priceFrom(priceIndex, filters);
+        int to = priceTo(priceIndex, filters);
+        int count = 0;
+
+        for (int position = from; position < to; position++) {
+            int ordinal = priceIndex.getOrdinal(position);
+
+            if(accepts(catalog, ordinal, brands, categories, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, term)){
+                out[count++] = ordinal;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks the product at a live ordinal against compiled brand and category codes, the price range and the name.
+     *
+     * @param catalog the catalog holding the product
+     * @param ordinal the ordinal of the product
+     * @param brands the accepted brand codes, or null to accept every brand
+     * @param categories the accepted category codes, or null to accept every category
+     * @param min the minimum price
+     * @param max the maximum price
+     * @param name the normalized name to filter products by
+     * @return true if the product passes the checks, false otherwise
+     */
+    private static boolean accepts(ProductCatalog catalog, int ordinal, BitSet brands, BitSet categories, float min, float max, String name){
+        return (brands == null || hasCode(brands, catalog.getBrandId(ordinal)))
+                && (categories == null || hasCode(categories, catalog.getCategoryId(ordinal)))
+                && matches(catalog, ordinal, min, max, !name.isEmpty(), name);
+    }
+
+    /**
+     * Filters the products of a columnar catalog like {@link #filterOrdinals(ProductCatalog, String)},
+     * but returns them ordered by price, as {@code SortByPrice} would.
+     * When the price range is the narrowest constraint, the matching slice of the price index is walked in order
+     * and the result needs no sorting; otherwise the smaller candidate set is filtered and ordered by its price keys.
+     *
+     * @param catalog the catalog to filter
+     * @param name the name to filter products by
+     * @return the ordinals of the filtered products ordered by price
+     */
+    public int[] filterOrdinalsByPrice(ProductCatalog catalog, String name){
+        String term = TextNormalizer.normalize(name);
+        Compiled filters = current();
+        int[] candidates = selectCandidates(catalog, term, filters);
+        PriceIndex priceIndex = catalog.getPriceIndex();
+        int from = priceFrom(priceIndex, filters);
+        int to = priceTo(priceIndex, filters);
+
+        if(candidates != null && candidates.length < to - from){
+            int[] result = checkCandidates(catalog, candidates, term, filters);
+            int[] keys = new int[result.length];
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = OrdinalSort.priceKey(catalog.getPrice(result[i]));
+            }
+
+            OrdinalSort.sortByKey(result, keys);
+            return result;
+        }
+
+        boolean checkName = !term.isEmpty();
+        BitSet members = candidates == null ? null : toMembers(candidates);
+        int[] result = new int[Math.max(0, to - from)];
+        int count = 0;
+
+        for (int position = from; position < to; position++) {
+            int ordinal = priceIndex.getOrdinal(position);
+
+            if(members != null && !members.get(ordinal)){
+                continue;
+            }
+
+            if(checkName && !catalog.getNormalizedTitle(ordinal).contains(term)){
+                continue;
+            }
+
+            result[count++] = ordinal;
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Counts facets of the products in the provided list that match the name, in a single pass over the list.
+     *
+     * @param products the list of products to count
+     * @param name the name to filter products by
+     * @param priceBounds the ascending bounds between price buckets
+     * @return the facet counts, each dimension counted under the other active filters
+     * @throws IllegalArgumentException if the price bounds are not strictly ascending
+     */
+    public FacetCounts countFacets(List<Product> products, String name, float... priceBounds){
+        FacetCounts counts = new FacetCounts(priceBounds);
+        Compiled filters = current();
+        BitSet brands = filters.brandCodes();
+        BitSet categories = filters.categoryCodes();
+        float min = filters.min();
+        float max = filters.max();
+        String term = TextNormalizer.normalize(name);
+        int matchCount = 0;
+
+        for (Product product : products) {
+            if(!term.isEmpty() && !product.getNormalizedTitle().contains(term)){
+                continue;
+            }
+
+            float price = product.getPrice();
+            boolean matched = counts.count(product.getBrandId(), product.getCategoryId(), price,
+                    brands == null || hasCode(brands, product.getBrandId()),
+                    categories == null || hasCode(categories, product.getCategoryId()),
+                    !(price < min) && !(price > max));
+
+            if(matched){
+                matchCount++;
+            }
+        }
+
+        return counts.finish(matchCount);
+    }
+
+    /**
+     * Counts facets of the products of a columnar catalog that match the name, in a single pass over the columns.
+     * Names of three or more characters limit the pass to the candidates of the trigram index.
+     *
+     * @param catalog the catalog to count
+     * @param name the name to filter products by
+     * @param priceBounds the ascending bounds between price buckets
+     * @return the facet counts, each dimension counted under the other active filters
+     * @throws IllegalArgumentException if the price bounds are not strictly ascending
+     */
+    public FacetCounts countFacets(ProductCatalog catalog, String name, float... priceBounds){
+        FacetCounts counts = new FacetCounts(priceBounds);
+        Compiled filters = current();
+        BitSet brands = filters.brandFilters().isEmpty() ? null : toCodes(catalog.getBrands(), filters.brandFilters());
+        BitSet categories = filters.categoryFilters().isEmpty() ? null : toCodes(catalog.getCategories(), filters.categoryFilters());
+        float min = filters.min();
+        float max = filters.max();
+        String term = TextNormalizer.normalize(name);
+        boolean checkName = !term.isEmpty();
+        int[] candidates = checkName ? catalog.getTitleIndex().candidates(term) : null;
+        int size = candidates == null ? catalog.getSize() : candidates.length;
+        int matchCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            int ordinal = candidates == null ? i : candidates[i];
+
+            if(!catalog.isLive(ordinal) || (checkName && !catalog.getNormalizedTitle(ordinal).contains(term))){
+                continue;
+            }
+
+            int brandId = catalog.getBrandId(ordinal);
+            int categoryId = catalog.getCategoryId(ordinal);
+            float price = catalog.getPrice(ordinal);
+            boolean matched = counts.count(brandId, categoryId, price,
+                    brands == null || hasCode(brands, brandId),
+                    categories == null || hasCode(categories, categoryId),
+                    !(price < min) && !(price > max));
+
+            if(matched){
+                matchCount++;
+            }
+        }
+
+        return counts.finish(matchCount);
+    }
+
+    /**
+     * Checks whether a minimum or maximum price filter is set.
+     *
+     * @return true if a price filter is set, false otherwise
+     */
+    public boolean hasPriceFilter(){
+        return compiled.hasPriceFilter();
+    }
+
+    /**
+     * Checks candidate ordinals against the price filters and the name.
+     *
+     * @param catalog the catalog to filter
+     * @param candidates the candidate ordinals in ascending order, or null to check the whole catalog
+     * @param name the normalized name to filter products by
+     * @param filters the compiled filters
+     * @return the ordinals that passed the checks, in ascending order
+     */
+    private int[] checkCandidates(ProductCatalog catalog, int[] candidates, String name, Compiled filters){
+        float min = filters.min();
+        float max = filters.max();
+        boolean checkName = !name.isEmpty();
+
+        int size = candidates == null ? catalog.getSize() : candidates.length;
+
+        if(isParallel(size)){
+            IntPredicate test = candidates == null ?
+                    ordinal -> catalog.isLive(ordinal) && matches(catalog, ordinal, min, max, checkName, name) :
+                    position -> matches(catalog, candidates[position], min, max, checkName, name);
+            int[] positions = scanInParallel(test, size);
+
+            if(candidates != null){
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = candidates[positions[i]];
+                }
+            }
+
+            return positions;
+        }
+
+        int[] result = new int[candidates == null ? catalog.getLiveCount() : candidates.length];
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            int ordinal = candidates == null ? i : candidates[i];
+
+            if(candidates == null && !catalog.isLive(ordinal)){
+                continue;
+            }
+
+            if(matches(catalog, ordinal, min, max, checkName, name)){
+                result[count++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Checks the product at an ordinal against the price range and the name.
+     *
+     * @param catalog the catalog holding the product
+     * @param ordinal the ordinal of the product
+     * @param min the minimum price
+     * @param max the maximum price
+     * @param checkName whether the name has to be checked
+     * @param name the normalized name to filter products by
+     * @return true if the product passes the checks, false otherwise
+     */
+    private static boolean matches(ProductCatalog catalog, int ordinal, float min, float max, boolean checkName, String name){
+        float price = catalog.getPrice(ordinal);
+
+        return !(price < min) && !(price > max) && (!checkName || catalog.getNormalizedTitle(ordinal).contains(name));
+    }
+
+    /**
+     * Checks whether a scan of the given size should run in parallel.
+     *
+     * @param size the number of products to scan
+     * @return true if a pool is configured and the size reaches the threshold, false otherwise
+     */
+    private boolean isParallel(int size){
+        return parallelPool != null && size >= parallelThreshold;
+    }
+
+    /**
+     * Tests positions 0 to size - 1 in the configured pool.
+     *
+     * @param test the test applied to every position
+     * @param size the number of positions
+     * @return the matching positions in ascending order
+     */
+    private int[] scanInParallel(IntPredicate test, int size){
+        int leafSize = Math.max(MIN_LEAF_SIZE, size / (parallelPool.getParallelism() * 4));
+
+        return parallelPool.invoke(new ParallelScan(test, 0, size, leafSize));
+    }
+
+    /**
+     * Finds the first position of the price index within the price filters.
+     *
+     * @param priceIndex the price index of the catalog
+     * @param filters the compiled filters
+     * @return the first position of the price slice
+     */
+    private static int priceFrom(PriceIndex priceIndex, Compiled filters){
+        return filters.minPrice() == null ? 0 : priceIndex.lowerBound(filters.minPrice());
+    }
+
+    /**
+     * Finds the position after the last one of the price index within the price filters.
+     *
+     * @param priceIndex the price index of the catalog
+     * @param filters the compiled filters
+     * @return the position after the end of the price slice
+     */
+    private static int priceTo(PriceIndex priceIndex, Compiled filters){
+        return filters.maxPrice() == null ? priceIndex.size() : priceIndex.upperBound(filters.maxPrice());
+    }
+
+    /**
+     * Picks candidate ordinals from all catalog indexes, including a price slice when it is narrower than the rest.
+     * When nothing else narrows the search and the price range is wide, the candidates come from a mask over the
+     * price column instead, which avoids sorting a large slice of the price index.
+     *
+     * @param catalog the catalog to filter
+     * @param name the normalized name to filter products by
+     * @param filters the compiled filters
+     * @return the candidate ordinals in ascending order, or null if no index narrows the search
+     */
+    private static int[] narrowCandidates(ProductCatalog catalog, String name, Compiled filters){
+        int[] candidates = selectCandidates(catalog, name, filters);
+        PriceIndex priceIndex = catalog.getPriceIndex();
+        int from = priceFrom(priceIndex, filters);
+        int to = priceTo(priceIndex, filters);
+        int limit = candidates == null ? catalog.getLiveCount() : candidates.length;
+
+        if(filters.hasPriceFilter() && candidates == null && to - from >= catalog.getSize() / MASK_DENSITY){
+            return PriceRangeMask.toPositions(PriceRangeMask.select(catalog, filters.min(), filters.max()));
+        }
+
+        if(filters.hasPriceFilter() && to - from < limit){
+            int[] slice = priceIndex.getOrdinals(from, Math.max(from, to));
+            Arrays.sort(slice);
+            candidates = candidates == null ? slice : intersect(candidates, slice);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Picks the ordinals that satisfy the brand and category filters and may match the name, using the catalog indexes.
+     *
+     * @param catalog the catalog to filter
+     * @param name the normalized name to filter products by
+     * @param filters the compiled filters
+     * @return the candidate ordinals in ascending order, or null if no index narrows the search
+     */
+    private static int[] selectCandidates(ProductCatalog catalog, String name, Compiled filters){
+        RoaringBitmap selection = null;
+
+        if(!filters.brandFilters().isEmpty()){
+            selection = catalog.getBrandIndex().union(toIds(catalog.getBrands(), filters.brandFilters()));
+        }
+
+        if(!filters.categoryFilters().isEmpty()){
+            RoaringBitmap categories = catalog.getCategoryIndex().union(toIds(catalog.getCategories(), filters.categoryFilters()));
+            selection = selection == null ? categories : RoaringBitmap.and(selection, categories);
+        }
+
+        int[] titleCandidates = name.isEmpty() ? null : catalog.getTitleIndex().candidates(name);
+
+        if(selection == null){
+            return titleCandidates;
+        }
+
+        if(titleCandidates == null){
+            return selection.toArray();
+        }
+
+        int count = 0;
+
+        for (int ordinal : titleCandidates) {
+            if(selection.contains(ordinal)){
+                titleCandidates[count++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(titleCandidates, count);
+    }
+
+    /**
+     * Encodes filter values into a set of dictionary codes.
+     * Values are only looked up, never added, so typed filters do not grow the dictionary;
+     * values no product has yet are left out.
+     *
+     * @param dictionary the dictionary of the filtered field
+     * @param values the filter values
+     * @return the set of codes
+     */
+    private static BitSet toCodes(StringDictionary dictionary, List<String> values){
+        BitSet codes = new BitSet();
+
+        for (String value : values) {
+            int code = dictionary.find(value);
+
+            if(code >= 0){
+                codes.set(code);
+            }
+        }
+
+        return codes;
+    }
+
+    /**
+     * Builds a set of ordinals with constant-time membership checks, for walks over an index in a different order.
+     *
+     * @param ordinals the ordinals in ascending order
+     * @return the set of ordinals
+     */
+    private static BitSet toMembers(int[] ordinals){
+        BitSet members = new BitSet(ordinals.length == 0 ? 0 : ordinals[ordinals.length - 1] + 1);
+
+        for (int ordinal : ordinals) {
+            members.set(ordinal);
+        }
+
+        return members;
+    }
+
+    /**
+     * Checks whether any filter value is missing from its dictionary.
+     *
+     * @param dictionary the dictionary of the filtered field
+     * @param values the filter values
+     * @return true if some value has no code yet, false otherwise
+     */
+    private static boolean hasUnknown(StringDictionary dictionary, List<String> values){
+        for (String value : values) {
+            if(dictionary.find(value) < 0){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether a dictionary code is in a set of codes.
+     *
+     * @param codes the set of codes
+     * @param code the code to check, or -1 if the product has no value
+     * @return true if the code is in the set, false otherwise
+     */
+    private static boolean hasCode(BitSet codes, int code){
+        return code >= 0 && codes.get(code);
+    }
+
+    /**
+     * Intersects two sorted arrays of ordinals.
+     *
+     * @param left the first sorted array
+     * @param right the second sorted array
+     * @return the ordinals present in both arrays, in ascending order
+     */
+    private static int[] intersect(int[] left, int[] right){
+        int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < left.length && j < right.length) {
+            if(left[i] < right[j]){
+                i++;
+            } else if (left[i] > right[j]){
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Converts filter values into dictionary ids.
+     *
+     * @param dictionary the dictionary the ids come from
+     * @param filters the filter values
+     * @return the ids of the values, or -1 for values the dictionary does not know
+     */
+    private static int[] toIds(StringDictionary dictionary, List<String> filters){
+        int[] ids = new int[filters.size()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.find(filters.get(i));
+        }
+
+        return ids;
     }
 
     /**
@@ -180,6 +1157,11 @@ public class FilterService {
      */
     @Override
     public String toString() {
+        Compiled filters = compiled;
+        List<String> brandFilters = filters.brandFilters();
+        List<String> categoryFilters = filters.categoryFilters();
+        Float minPrice = filters.minPrice();
+        Float maxPrice = filters.maxPrice();
         String output = "";
 
         if(!brandFilters.isEmpty()){
@@ -0,0 +1,29 @@
+package Filter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the filters configured in a FilterService.
+ * Brands and categories are kept as sets, so two services with the same filters added
+ * in a different order produce equal snapshots.
+ *
+ * @param brands the brand filters
+ * @param categories the category filters
+ * @param minPrice the minimum price filter, or null if unset
+ * @param maxPrice the maximum price filter, or null if unset
+ */
+public record FilterState(Set<String> brands, Set<String> categories, Float minPrice, Float maxPrice) {
+    /**
+     * Creates a snapshot of the given filters.
+     *
+     * @param brands the brand filters
+     * @param categories the category filters
+     * @param minPrice the minimum price filter, or null if unset
+     * @param maxPrice the maximum price filter, or null if unset
+     * @return the snapshot
+     */
+    public static FilterState of(Collection<String> brands, Collection<String> categories, Float minPrice, Float maxPrice) {
+        return new FilterState(Set.copyOf(brands), Set.copyOf(categories), minPrice, maxPrice);
+    }
+}
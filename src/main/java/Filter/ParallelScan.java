@@ -0,0 +1,67 @@
+package Filter;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Fork/join task that tests a range of positions in parallel and returns the matching ones in ascending order.
+ * The range is split in halves until pieces are small enough, and the results of the halves are concatenated
+ * left to right, so the output is the same as a sequential scan.
+ */
+public class ParallelScan extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient IntPredicate test;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+
+    /**
+     * Constructs a task scanning a range of positions.
+     *
+     * @param test the test applied to every position
+     * @param from the first position of the range
+     * @param to the position after the end of the range
+     * @param leafSize the largest range that is scanned without splitting
+     */
+    public ParallelScan(IntPredicate test, int from, int to, int leafSize) {
+        this.test = test;
+        this.from = from;
+        this.to = to;
+        this.leafSize = Math.max(1, leafSize);
+    }
+
+    /**
+     * Scans the range, splitting it into subtasks when it is larger than the leaf size.
+     *
+     * @return the matching positions in ascending order
+     */
+    @Override
+    protected int[] compute() {
+        if (to - from <= leafSize) {
+            int[] matches = new int[to - from];
+            int count = 0;
+
+            for (int position = from; position < to; position++) {
+                if (test.test(position)) {
+                    matches[count++] = position;
+                }
+            }
+
+            return Arrays.copyOf(matches, count);
+        }
+
+        int middle = (from + to) >>> 1;
+        ParallelScan left = new ParallelScan(test, from, middle, leafSize);
+        ParallelScan right = new ParallelScan(test, middle, to, leafSize);
+
+        left.fork();
+        int[] rightMatches = right.compute();
+        int[] leftMatches = left.join();
+
+        int[] matches = Arrays.copyOf(leftMatches, leftMatches.length + rightMatches.length);
+        System.arraycopy(rightMatches, 0, matches, leftMatches.length, rightMatches.length);
+        return matches;
+    }
+}
@@ -0,0 +1,161 @@
+package Filter;
+
+import Product.ProductCatalog;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Selection bitmap over a primitive price column.
+ * Bit i of the mask is set when the price at position i lies within the range. Positions holding NaN never match.
+ * When the build includes {@code VectorPriceRange} (the {@code vector} profile) and the {@code jdk.incubator.vector}
+ * module is available at run time, the comparisons run on SIMD lanes; otherwise a scalar loop produces the same mask.
+ * The vector implementation is looked up reflectively, so the default build compiles without the incubator module.
+ */
+public class PriceRangeMask {
+    private static final MethodHandle VECTOR_FILL = findVectorFill();
+    private static final boolean VECTORIZED = VECTOR_FILL != null;
+
+    private PriceRangeMask() {
+    }
+
+    /**
+     * Checks whether masks are computed with the Vector API.
+     *
+     * @return true if the vectorized path is used, false if the scalar fallback is used
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Computes the mask of positions whose price lies within the range.
+     *
+     * @param prices the price column
+     * @param size the number of positions in use
+     * @param min the minimum price, inclusive
+     * @param max the maximum price, inclusive
+     * @return the mask, one bit per position packed into longs
+     */
+    public static long[] select(float[] prices, int size, float min, float max) {
+        long[] mask = new long[(size + 63) >>> 6];
+
+        fillMask(prices, size, min, max, mask, 0);
+        return mask;
+    }
+
+    /**
+     * Computes the mask of the catalog ordinals whose price lies within the range, scanning the price column
+     * segment by segment. Segments hold a multiple of 64 ordinals, so each one fills whole words of the mask.
+     *
+     * @param catalog the catalog to scan
+     * @param min the minimum price, inclusive
+     * @param max the maximum price, inclusive
+     * @return the mask, one bit per ordinal packed into longs
+     */
+    public static long[] select(ProductCatalog catalog, float min, float max) {
+        int size = catalog.getSize();
+        long[] mask = new long[(size + 63) >>> 6];
+
+        for (int segment = 0; segment * ProductCatalog.SEGMENT_SIZE < size; segment++) {
+            int from = segment * ProductCatalog.SEGMENT_SIZE;
+            int count = Math.min(size - from, ProductCatalog.SEGMENT_SIZE);
+
+            fillMask(catalog.getPriceSegment(segment), count, min, max, mask, from >>> 6);
+        }
+
+        return mask;
+    }
+
+    /**
+     * Converts a mask into the positions of its set bits.
+     *
+     * @param mask the mask
+     * @return the positions in ascending order
+     */
+    public static int[] toPositions(long[] mask) {
+        int count = 0;
+
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+
+        int[] positions = new int[count];
+        int position = 0;
+
+        for (int word = 0; word < mask.length; word++) {
+            long bits = mask[word];
+
+            while (bits != 0) {
+                positions[position++] = (word << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Sets the bits of the positions whose price lies within the range, with the vectorized fill when it is available.
+     *
+     * @param prices the price column
+     * @param size the number of positions in use
+     * @param min the minimum price, inclusive
+     * @param max the maximum price, inclusive
+     * @param mask the mask to set bits in
+     * @param word the word of the mask holding the bit of the first position
+     */
+    private static void fillMask(float[] prices, int size, float min, float max, long[] mask, int word) {
+        if (VECTORIZED) {
+            try {
+                VECTOR_FILL.invokeExact(prices, size, min, max, mask, word);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Vectorized price scan failed.", e);
+            }
+        } else {
+            fill(prices, 0, size, min, max, mask, word);
+        }
+    }
+
+    /**
+     * Sets the bits of the positions in a part of the column whose price lies within the range, one price at a time.
+     *
+     * @param prices the price column
+     * @param from the first position to check
+     * @param to the position after the last one to check
+     * @param min the minimum price, inclusive
+     * @param max the maximum price, inclusive
+     * @param mask the mask to set bits in
+     * @param word the word of the mask holding the bit of position 0
+     */
+    static void fill(float[] prices, int from, int to, float min, float max, long[] mask, int word) {
+        for (int i = from; i < to; i++) {
+            float price = prices[i];
+
+            if (price >= min && price <= max) {
+                mask[word + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Looks up {@code VectorPriceRange.fill} when the incubator module is present and the class was compiled.
+     *
+     * @return the handle of the vectorized fill, or null if the scalar loop has to be used
+     */
+    private static MethodHandle findVectorFill() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+
+        try {
+            Class<?> implementation = Class.forName("Filter.VectorPriceRange");
+            MethodType type = MethodType.methodType(void.class, float[].class, int.class, float.class, float.class, long[].class, int.class);
+
+            return MethodHandles.lookup().findStatic(implementation, "fill", type);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
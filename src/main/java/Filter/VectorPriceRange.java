@@ -0,0 +1,40 @@
+package Filter;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of {@link PriceRangeMask}.
+ * Kept in its own class so that it is only loaded when the {@code jdk.incubator.vector} module is present.
+ */
+class VectorPriceRange {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorPriceRange() {
+    }
+
+    /**
+     * Sets the bits of the positions whose price lies within the range, comparing a full vector of prices at a time.
+     * The lane count is a power of two no larger than 64, so the lanes of one vector always fall into a single word.
+     *
+     * @param prices the price column
+     * @param size the number of positions in use
+     * @param min the minimum price, inclusive
+     * @param max the maximum price, inclusive
+     * @param mask the mask to set bits in
+     * @param word the word of the mask holding the bit of position 0
+     */
+    static void fill(float[] prices, int size, float min, float max, long[] mask, int word) {
+        int bound = SPECIES.loopBound(size);
+        int i = 0;
+
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector vector = FloatVector.fromArray(SPECIES, prices, i);
+            long bits = vector.compare(VectorOperators.GE, min).and(vector.compare(VectorOperators.LE, max)).toLong();
+            mask[word + (i >>> 6)] |= bits << (i & 63);
+        }
+
+        PriceRangeMask.fill(prices, i, size, min, max, mask, word);
+    }
+}
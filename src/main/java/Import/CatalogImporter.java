@@ -0,0 +1,245 @@
+package Import;
+
+import Product.IdGenerator;
+import Product.Product;
+import Product.ProductBuilder;
+import Product.ProductsService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Bulk loader of catalog files into a ProductsService.
+ * The file is read as a stream of lines that are handed out in chunks to a fork/join pool, where every chunk is parsed
+ * and validated by its own ProductBuilder. Only a bounded number of chunks is in flight at a time, and their results
+ * are collected in file order. All valid products are then added to the service in one batch,
+ * so the catalog indexes are rebuilt only once.
+ */
+public class CatalogImporter {
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final int MAX_REJECT_SAMPLES = 20;
+
+    private final ProductsService productsService;
+    private final IdGenerator idGenerator;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Result of parsing one chunk of lines.
+     *
+     * @param products the valid products in line order
+     * @param rejected the number of rejected lines
+     * @param rejectSamples the reasons of the first rejected lines
+     */
+    private record Chunk(List<Product> products, int rejected, List<String> rejectSamples) {}
+
+    /**
+     * Constructs an importer using the common pool and the default chunk size.
+     *
+     * @param productsService the service to add products to
+     * @param idGenerator the generator of product ids
+     */
+    public CatalogImporter(ProductsService productsService, IdGenerator idGenerator) {
+        this(productsService, idGenerator, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param productsService the service to add products to
+     * @param idGenerator the generator of product ids, which must be safe to use from several threads
+     * @param pool the pool to parse chunks in
+     * @param chunkSize the number of lines parsed by one task
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public CatalogImporter(ProductsService productsService, IdGenerator idGenerator, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+
+        this.productsService = productsService;
+        this.idGenerator = idGenerator;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a UTF-8 catalog file.
+     *
+     * @param file the file to import
+     * @param format the format of the file
+     * @return the import report
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importFile(Path file, ImportFormat format) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, format);
+        }
+    }
+
+    /**
+     * Imports catalog lines from a reader. Blank lines are skipped.
+     *
+     * @param reader the reader to read lines from
+     * @param format the format of the lines
+     * @return the import report
+     * @throws IOException if the reader fails
+     * @throws IllegalArgumentException if a CSV input has no header or a malformed one
+     */
+    public ImportReport importFrom(BufferedReader reader, ImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        int[] columns = null;
+        long lineNumber = 0;
+
+        if (format == ImportFormat.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+
+            if (header == null) {
+                throw new IllegalArgumentException("The CSV input has no header.");
+            }
+
+            columns = RowParser.parseCsvHeader(header);
+        }
+
+        int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        List<Product> products = new ArrayList<>();
+        List<String> rejectSamples = new ArrayList<>();
+        long rows = 0;
+        long rejected = 0;
+
+        while (true) {
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = lineNumber + 1;
+            String line;
+
+            while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+            }
+
+            if (!lines.isEmpty()) {
+                int[] chunkColumns = columns;
+                inFlight.addLast(pool.submit(() -> parseChunk(lines, firstLine, format, chunkColumns)));
+            }
+
+            while (!inFlight.isEmpty() && (inFlight.size() >= maxInFlight || lines.size() < chunkSize)) {
+                Chunk chunk = inFlight.removeFirst().join();
+                rows += chunk.products().size() + chunk.rejected();
+                rejected += chunk.rejected();
+                products.addAll(chunk.products());
+
+                for (String sample : chunk.rejectSamples()) {
+                    if (rejectSamples.size() < MAX_REJECT_SAMPLES) {
+                        rejectSamples.add(sample);
+                    }
+                }
+            }
+
+            if (lines.size() < chunkSize) {
+                break;
+            }
+        }
+
+        productsService.addProducts(products);
+        return new ImportReport(rows, products.size(), rejected, System.nanoTime() - start, Collections.unmodifiableList(rejectSamples));
+    }
+
+    /**
+     * Parses and validates one chunk of lines.
+     *
+     * @param lines the lines of the chunk
+     * @param firstLine the line number of the first line, for reject messages
+     * @param format the format of the lines
+     * @param columns the field positions of the CSV columns, or null for JSON lines
+     * @return the parsed chunk
+     */
+    private Chunk parseChunk(List<String> lines, long firstLine, ImportFormat format, int[] columns) {
+        ProductBuilder builder = new ProductBuilder(idGenerator);
+        String[] fields = new String[RowParser.FIELD_COUNT];
+        String[] scratch = new String[columns == null ? 0 : columns.length + 1];
+        List<Product> products = new ArrayList<>(lines.size());
+        List<String> rejectSamples = new ArrayList<>();
+        int rejected = 0;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+
+            if (line.isBlank()) {
+                continue;
+            }
+
+            try {
+                if (format == ImportFormat.CSV) {
+                    RowParser.parseCsv(line, columns, fields, scratch);
+                } else {
+                    RowParser.parseJson(line, fields);
+                }
+
+                products.add(build(builder, fields));
+            } catch (RuntimeException e) {
+                rejected++;
+
+                if (rejectSamples.size() < MAX_REJECT_SAMPLES) {
+                    rejectSamples.add("Line " + (firstLine + i) + ": " + e.getMessage());
+                }
+            }
+        }
+
+        return new Chunk(products, rejected, rejectSamples);
+    }
+
+    /**
+     * Builds a product from parsed fields, running the validation of the builder.
+     *
+     * @param builder the builder to use
+     * @param fields the parsed fields
+     * @return the product
+     * @throws IllegalArgumentException if a required field is missing or invalid
+     */
+    private static Product build(ProductBuilder builder, String[] fields) {
+        float price = Float.parseFloat(required(fields, RowParser.PRICE, "price"));
+
+        if (!Float.isFinite(price)) {
+            throw new IllegalArgumentException("Price must be a finite number.");
+        }
+
+        return builder
+                .setTitle(required(fields, RowParser.TITLE, "title"))
+                .setPrice(price)
+                .setDescription(fields[RowParser.DESCRIPTION])
+                .setBrand(required(fields, RowParser.BRAND, "brand"))
+                .setCategory(required(fields, RowParser.CATEGORY, "category"))
+                .setQuantity(Integer.parseInt(required(fields, RowParser.QUANTITY, "quantity").trim()))
+                .setImage(fields[RowParser.IMAGE])
+                .build();
+    }
+
+    /**
+     * Retrieves a required field.
+     *
+     * @param fields the parsed fields
+     * @param position the position of the field
+     * @param name the name of the field, for the error message
+     * @return the field value
+     * @throws IllegalArgumentException if the field is missing
+     */
+    private static String required(String[] fields, int position, String name) {
+        if (fields[position] == null) {
+            throw new IllegalArgumentException("Missing " + name + ".");
+        }
+
+        return fields[position];
+    }
+}
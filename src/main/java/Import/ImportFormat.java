@@ -0,0 +1,17 @@
+package Import;
+
+/**
+ * Enumeration of the catalog file formats supported by the CatalogImporter.
+ */
+public enum ImportFormat {
+    /**
+     * Comma-separated values with a header line naming the columns. Fields may be quoted with double quotes,
+     * with a doubled quote standing for a quote inside the field.
+     */
+    CSV,
+
+    /**
+     * One flat JSON object per line, with the fields of a product as its members.
+     */
+    JSON_LINES
+}
@@ -0,0 +1,33 @@
+package Import;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk import.
+ *
+ * @param rows the number of data rows read
+ * @param imported the number of products added to the service
+ * @param rejected the number of rows that could not be parsed or failed validation
+ * @param elapsedNanos the time the import took, in nanoseconds
+ * @param rejectSamples the reasons of the first rejected rows, with their line numbers
+ */
+public record ImportReport(long rows, long imported, long rejected, long elapsedNanos, List<String> rejectSamples) {
+    /**
+     * Computes the import throughput.
+     *
+     * @return the number of rows processed per second
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns a short summary of the import.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Imported %d of %d rows, rejected %d, %.0f rows/sec", imported, rows, rejected, rowsPerSecond());
+    }
+}
@@ -0,0 +1,328 @@
+package Import;
+
+import java.util.Arrays;
+
+/**
+ * Splits catalog file lines into product fields.
+ * Fields are stored by column in a reusable array, so parsing a line only allocates the field strings.
+ */
+class RowParser {
+    static final int TITLE = 0;
+    static final int PRICE = 1;
+    static final int DESCRIPTION = 2;
+    static final int BRAND = 3;
+    static final int CATEGORY = 4;
+    static final int QUANTITY = 5;
+    static final int IMAGE = 6;
+    static final int FIELD_COUNT = 7;
+
+    private RowParser() {
+    }
+
+    /**
+     * Maps a column name to the position of the field in the field array.
+     *
+     * @param name the column or member name
+     * @return the field position, or -1 if the column is not a product field
+     */
+    static int columnOf(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "title" -> TITLE;
+            case "price" -> PRICE;
+            case "description" -> DESCRIPTION;
+            case "brand" -> BRAND;
+            case "category" -> CATEGORY;
+            case "quantity" -> QUANTITY;
+            case "image" -> IMAGE;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Splits a CSV header line into the field positions of its columns.
+     *
+     * @param header the header line
+     * @return the field position of every column, -1 for columns that are not product fields
+     * @throws IllegalArgumentException if the header is malformed
+     */
+    static int[] parseCsvHeader(String header) {
+        String[] names = new String[64];
+        int count = splitCsv(header, names);
+        int[] columns = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            columns[i] = columnOf(names[i]);
+        }
+
+        return columns;
+    }
+
+    /**
+     * Parses a CSV line into the fields of a product.
+     *
+     * @param line the line to parse
+     * @param columns the field positions of the columns, from the header
+     * @param fields the array receiving the fields, cleared first
+     * @param scratch a reusable array of at least as many entries as there are columns
+     * @throws IllegalArgumentException if the line is malformed or has a different number of columns than the header
+     */
+    static void parseCsv(String line, int[] columns, String[] fields, String[] scratch) {
+        Arrays.fill(fields, null);
+        int count = splitCsv(line, scratch);
+
+        if (count != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " columns but found " + count + ".");
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (columns[i] >= 0) {
+                fields[columns[i]] = scratch[i];
+            }
+        }
+    }
+
+    /**
+     * Parses a JSON object line into the fields of a product. Members that are not product fields are skipped.
+     *
+     * @param line the line to parse
+     * @param fields the array receiving the fields, cleared first
+     * @throws IllegalArgumentException if the line is not a flat JSON object
+     */
+    static void parseJson(String line, String[] fields) {
+        Arrays.fill(fields, null);
+        JsonCursor cursor = new JsonCursor(line);
+
+        cursor.expect('{');
+
+        if (cursor.peek() == '}') {
+            cursor.expect('}');
+            cursor.expectEnd();
+            return;
+        }
+
+        do {
+            int column = columnOf(cursor.readString());
+            cursor.expect(':');
+            String value = cursor.readValue();
+
+            if (column >= 0) {
+                fields[column] = value;
+            }
+        } while (cursor.skipComma());
+
+        cursor.expect('}');
+        cursor.expectEnd();
+    }
+
+    /**
+     * Splits a CSV line into fields.
+     *
+     * @param line the line to split
+     * @param target the array receiving the fields
+     * @return the number of fields
+     * @throws IllegalArgumentException if a quoted field is not closed or there are more fields than the array holds
+     */
+    private static int splitCsv(String line, String[] target) {
+        int count = 0;
+        int position = 0;
+        int length = line.length();
+
+        while (true) {
+            if (count == target.length) {
+                throw new IllegalArgumentException("Too many columns.");
+            }
+
+            if (position < length && line.charAt(position) == '"') {
+                StringBuilder field = new StringBuilder();
+                position++;
+
+                while (true) {
+                    if (position >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field.");
+                    }
+
+                    char c = line.charAt(position++);
+
+                    if (c == '"') {
+                        if (position < length && line.charAt(position) == '"') {
+                            field.append('"');
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+
+                target[count++] = field.toString();
+
+                if (position < length && line.charAt(position) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field.");
+                }
+            } else {
+                int end = line.indexOf(',', position);
+                end = end < 0 ? length : end;
+                target[count++] = line.substring(position, end);
+                position = end;
+            }
+
+            if (position >= length) {
+                return count;
+            }
+
+            position++;
+        }
+    }
+
+    /**
+     * Reading position in a single-line JSON object.
+     */
+    private static class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Skips whitespace and returns the next character without consuming it.
+         *
+         * @return the next character, or 0 at the end of the line
+         */
+        char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        /**
+         * Consumes an expected character.
+         *
+         * @param expected the expected character
+         * @throws IllegalArgumentException if the next character is different
+         */
+        void expect(char expected) {
+            if (peek() != expected) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at position " + position + ".");
+            }
+
+            position++;
+        }
+
+        /**
+         * Checks that nothing but whitespace is left.
+         *
+         * @throws IllegalArgumentException if there are more characters
+         */
+        void expectEnd() {
+            if (peek() != 0) {
+                throw new IllegalArgumentException("Unexpected content at position " + position + ".");
+            }
+        }
+
+        /**
+         * Consumes a comma if one follows.
+         *
+         * @return true if a comma was consumed, false otherwise
+         */
+        boolean skipComma() {
+            if (peek() == ',') {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Reads a string, number or literal value.
+         *
+         * @return the value as text, or null for a JSON null
+         * @throws IllegalArgumentException if the value is malformed or is an object or array
+         */
+        String readValue() {
+            char c = peek();
+
+            if (c == '"') {
+                return readString();
+            }
+
+            if (c == '{' || c == '[' || c == 0) {
+                throw new IllegalArgumentException("Expected a string, number or literal at position " + position + ".");
+            }
+
+            int start = position;
+
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+
+            String value = text.substring(start, position);
+            return value.equals("null") ? null : value;
+        }
+
+        /**
+         * Reads a quoted string, resolving escape sequences.
+         *
+         * @return the string
+         * @throws IllegalArgumentException if the string is malformed
+         */
+        String readString() {
+            expect('"');
+            int start = position;
+            int end = text.indexOf('"', start);
+
+            if (end >= 0 && text.lastIndexOf('\\', end) < start) {
+                position = end + 1;
+                return text.substring(start, end);
+            }
+
+            StringBuilder value = new StringBuilder();
+
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string.");
+                }
+
+                char c = text.charAt(position++);
+
+                if (c == '"') {
+                    return value.toString();
+                }
+
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated escape sequence.");
+                }
+
+                char escaped = text.charAt(position++);
+
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Truncated unicode escape.");
+                        }
+
+                        value.append((char) Integer.parseInt(text, position, position + 4, 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown escape sequence \\" + escaped + ".");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package Index;
+
+import Product.ProductCatalog;
+import Product.TextNormalizer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Prefix trie over product titles that suggests the products with the most stock for a typed prefix.
+ * Every word of a normalized title is a key, so "Milk chocolate" is suggested both for "mi" and for "cho",
+ * and suggestions ignore case and accents. Each trie node caches its best {@value #TOP_N} ordinals, which makes
+ * a lookup a walk down the prefix plus a copy of the cached list. Adding or removing a product only clears the
+ * caches on the paths of its keys, and they are filled again by the next lookup that reaches them.
+ * A key runs from the start of a word to its end, cut at {@value #MAX_KEY_LENGTH} characters, so the trie holds
+ * at most one node per distinct word prefix. Prefixes longer than a key, and prefixes spanning several words,
+ * are looked up by their first word and verified against the titles stored at that node.
+ * Copies share their nodes: copying a trie marks its root as shared, copying a shared node marks its children as shared,
+ * and a trie copies a shared node before changing it, so a change only copies the nodes on the paths of the changed keys.
+ * The ordinals of a node are a {@link PostingList}, whose blocks are shared in the same way, so copying a node for
+ * a common word neither copies nor scans all products with that word.
+ */
+public class AutocompleteIndex implements CatalogIndex {
+    /**
+     * Maximum number of suggestions kept per node.
+     */
+    public static final int TOP_N = 10;
+
+    private static final int MAX_KEY_LENGTH = 16;
+
+    private Node root = new Node();
+
+    /**
+     * Adds the title of the product at the ordinal to the trie.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void add(ProductCatalog catalog, int ordinal) {
+        String title = catalog.getNormalizedTitle(ordinal);
+
+        for (int start = 0; start < title.length(); start++) {
+            if (isWordStart(title, start)) {
+                Node node = ownedRoot();
+                node.top = null;
+
+                for (char c : key(title, start).toCharArray()) {
+                    node = node.childOrCreate(c);
+                    node.top = null;
+                }
+
+                node.addOrdinal(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Removes the title of the product at the ordinal from the trie, pruning nodes left empty.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void remove(ProductCatalog catalog, int ordinal) {
+        String title = catalog.getNormalizedTitle(ordinal);
+
+        for (int start = 0; start < title.length(); start++) {
+            if (isWordStart(title, start)) {
+                removeKey(key(title, start), ordinal);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the trie from the titles of all products in the catalog.
+     *
+     * @param catalog the catalog to index
+     */
+    @Override
+    public void rebuild(ProductCatalog catalog) {
+        root = new Node();
+
+        for (int ordinal = 0; ordinal < catalog.getSize(); ordinal++) {
+            if (catalog.isLive(ordinal)) {
+                add(catalog, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Clears the cached suggestions on the paths of a product whose stock changed, so the next lookups rank it again.
+     *
+     * @param catalog the catalog holding the product
+     * @param ordinal the ordinal of the product
+     */
+    public void refresh(ProductCatalog catalog, int ordinal) {
+        String title = catalog.getNormalizedTitle(ordinal);
+
+        for (int start = 0; start < title.length(); start++) {
+            if (isWordStart(title, start)) {
+                Node node = ownedRoot();
+                node.top = null;
+
+                for (char c : key(title, start).toCharArray()) {
+                    node = node.ownedChild(c);
+
+                    if (node == null) {
+                        break;
+                    }
+
+                    node.top = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the trie that can be changed independently.
+     * The copy shares all nodes with this trie, and both tries copy a shared node before changing it.
+     *
+     * @return the copy
+     */
+    public AutocompleteIndex copy() {
+        AutocompleteIndex copy = new AutocompleteIndex();
+        root.shared = true;
+        copy.root = root;
+        return copy;
+    }
+
+    /**
+     * Writes the nodes of the trie in depth-first order. Cached suggestions are not written.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        root.writeTo(out);
+    }
+
+    /**
+     * Reads a trie written by {@link #writeTo(DataOutputStream)}, without splitting any title.
+     *
+     * @param in the buffer to read from
+     * @return the index
+     */
+    public static AutocompleteIndex readFrom(ByteBuffer in) {
+        AutocompleteIndex index = new AutocompleteIndex();
+        index.root = Node.readFrom(in);
+        return index;
+    }
+
+    /**
+     * Counts the nodes of the trie, including the root.
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return root.count();
+    }
+
+    /**
+     * Suggests the products whose title has a word starting with the prefix, ranked by stock.
+     * Ties are broken by ordinal, so earlier products come first.
+     *
+     * @param catalog the catalog the trie belongs to
+     * @param prefix the typed prefix, compared ignoring case and accents
+     * @param limit the maximum number of suggestions, at most {@link #TOP_N}
+     * @return the ordinals of the suggested products, best first
+     * @throws IllegalArgumentException if the limit is negative or greater than {@link #TOP_N}
+     */
+    public int[] suggest(ProductCatalog catalog, String prefix, int limit) {
+        if (limit < 0 || limit > TOP_N) {
+            throw new IllegalArgumentException("The limit must be between 0 and " + TOP_N + ".");
+        }
+
+        String key = TextNormalizer.normalize(prefix);
+        int wordLength = keyLength(key, 0);
+        Node node = root;
+
+        for (int i = 0; i < wordLength && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+
+        if (node == null || key.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] top = wordLength < key.length() ? verifyAt(catalog, node, key) : node.top(catalog);
+
+        return Arrays.copyOf(top, Math.min(limit, top.length));
+    }
+
+    /**
+     * Collects the ordinals whose keys end at a node and whose titles really have a word starting with the prefix.
+     * The node is reached by the first word of the prefix, or by its first {@value #MAX_KEY_LENGTH} characters,
+     * so every title that can match has a key ending there.
+     *
+     * @param catalog the catalog the trie belongs to
+     * @param node the node the first word of the prefix leads to
+     * @param key the full normalized prefix
+     * @return the best matching ordinals, best first
+     */
+    private static int[] verifyAt(ProductCatalog catalog, Node node, String key) {
+        int[] ordinals = node.ordinals.toArray();
+        int count = 0;
+
+        for (int ordinal : ordinals) {
+            String title = catalog.getNormalizedTitle(ordinal);
+
+            for (int start = 0; start < title.length(); start++) {
+                if (isWordStart(title, start) && title.startsWith(key, start)) {
+                    ordinals[count++] = ordinal;
+                    break;
+                }
+            }
+        }
+
+        return best(catalog, ordinals, count);
+    }
+
+    /**
+     * Removes one key of an ordinal and prunes the nodes left without ordinals and children.
+     *
+     * @param key the key to remove
+     * @param ordinal the ordinal of the product
+     */
+    private void removeKey(String key, int ordinal) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = ownedRoot();
+
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].ownedChild(key.charAt(i));
+
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+
+        path[key.length()].removeOrdinal(ordinal);
+
+        for (int depth = key.length(); depth >= 0; depth--) {
+            path[depth].top = null;
+
+            if (depth > 0 && path[depth].ordinals.isEmpty() && path[depth].childCount == 0) {
+                path[depth - 1].removeChild(key.charAt(depth - 1));
+            }
+        }
+    }
+
+    /**
+     * Retrieves the root for a change, copying it first when it is shared with another trie.
+     *
+     * @return the root owned by this trie
+     */
+    private Node ownedRoot() {
+        if (root.shared) {
+            root = root.copy();
+        }
+
+        return root;
+    }
+
+    /**
+     * Checks whether a word of the title starts at a position.
+     *
+     * @param title the title
+     * @param position the position in the title
+     * @return true if the character is not whitespace and follows whitespace or the start of the title
+     */
+    private static boolean isWordStart(String title, int position) {
+        return !Character.isWhitespace(title.charAt(position))
+                && (position == 0 || Character.isWhitespace(title.charAt(position - 1)));
+    }
+
+    /**
+     * Builds the trie key of the word starting at a position.
+     *
+     * @param title the normalized title
+     * @param start the position of the word
+     * @return the word, cut at {@value #MAX_KEY_LENGTH} characters
+     */
+    private static String key(String title, int start) {
+        return title.substring(start, start + keyLength(title, start));
+    }
+
+    /**
+     * Measures the key of the word starting at a position.
+     *
+     * @param text the normalized text
+     * @param start the position of the word
+     * @return the number of characters up to the end of the word, at most {@value #MAX_KEY_LENGTH}
+     */
+    private static int keyLength(String text, int start) {
+        int end = start;
+
+        while (end < text.length() && end - start < MAX_KEY_LENGTH && !Character.isWhitespace(text.charAt(end))) {
+            end++;
+        }
+
+        return end - start;
+    }
+
+    /**
+     * Picks the distinct ordinals with the most stock.
+     *
+     * @param catalog the catalog holding the products
+     * @param ordinals the ordinals to rank, possibly with duplicates when a node and its children hold the same ordinal
+     * @param count the number of ordinals in use
+     * @return at most {@link #TOP_N} ordinals, best first
+     */
+    private static int[] best(ProductCatalog catalog, int[] ordinals, int count) {
+        long[] keys = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            keys[i] = (-(long) catalog.getQuantity(ordinals[i]) << 32) | ordinals[i];
+        }
+
+        Arrays.sort(keys);
+        int[] top = new int[Math.min(count, TOP_N)];
+        int size = 0;
+
+        for (int i = 0; i < count && size < top.length; i++) {
+            int ordinal = (int) keys[i];
+
+            if (i == 0 || (int) keys[i - 1] != ordinal) {
+                top[size++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(top, size);
+    }
+
+    /**
+     * Trie node with sorted child keys, the ordinals whose keys end here and the cached best ordinals below it.
+     * Only a trie that does not share a node changes it.
+     */
+    private static final class Node {
+        private boolean shared;
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private PostingList ordinals = new PostingList();
+        private volatile int[] top;
+
+        /**
+         * Finds the child for a character.
+         *
+         * @param c the character
+         * @return the child, or null if there is none
+         */
+        Node child(char c) {
+            int position = Arrays.binarySearch(keys, 0, childCount, c);
+
+            return position >= 0 ? children[position] : null;
+        }
+
+        /**
+         * Finds the child for a character for a change, copying it first when it is shared with another trie.
+         *
+         * @param c the character
+         * @return the owned child, or null if there is none
+         */
+        Node ownedChild(char c) {
+            int position = Arrays.binarySearch(keys, 0, childCount, c);
+
+            if (position < 0) {
+                return null;
+            }
+
+            if (children[position].shared) {
+                children[position] = children[position].copy();
+            }
+
+            return children[position];
+        }
+
+        /**
+         * Finds or creates the child for a character for a change.
+         *
+         * @param c the character
+         * @return the owned child
+         */
+        Node childOrCreate(char c) {
+            Node child = ownedChild(c);
+
+            if (child != null) {
+                return child;
+            }
+
+            int position = -Arrays.binarySearch(keys, 0, childCount, c) - 1;
+
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(2, childCount * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+
+            System.arraycopy(keys, position, keys, position + 1, childCount - position);
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+            keys[position] = c;
+            children[position] = new Node();
+            childCount++;
+            return children[position];
+        }
+
+        /**
+         * Removes the child for a character.
+         *
+         * @param c the character
+         */
+        void removeChild(char c) {
+            int position = Arrays.binarySearch(keys, 0, childCount, c);
+
+            if (position >= 0) {
+                System.arraycopy(keys, position + 1, keys, position, childCount - position - 1);
+                System.arraycopy(children, position + 1, children, position, childCount - position - 1);
+                children[--childCount] = null;
+            }
+        }
+
+        /**
+         * Records an ordinal whose key ends at this node. A title repeating a word records its ordinal once.
+         *
+         * @param ordinal the ordinal
+         */
+        void addOrdinal(int ordinal) {
+            ownedOrdinals().add(ordinal);
+        }
+
+        /**
+         * Removes an ordinal whose key ends at this node, copying only the block of ordinals it was in.
+         *
+         * @param ordinal the ordinal
+         */
+        void removeOrdinal(int ordinal) {
+            if (ordinals.contains(ordinal)) {
+                ownedOrdinals().remove(ordinal);
+            }
+        }
+
+        /**
+         * Retrieves the ordinals for a change, copying their table of blocks first when they are shared with another node.
+         *
+         * @return the ordinals owned by this node
+         */
+        private PostingList ownedOrdinals() {
+            if (ordinals.shared) {
+                ordinals = ordinals.copy();
+            }
+
+            return ordinals;
+        }
+
+        /**
+         * Retrieves the best ordinals below this node, merging the cached lists of the children when the cache is empty.
+         *
+         * @param catalog the catalog holding the products
+         * @return at most {@link #TOP_N} ordinals, best first
+         */
+        int[] top(ProductCatalog catalog) {
+            if (top != null) {
+                return top;
+            }
+
+            int[] candidates = Arrays.copyOf(ordinals.toArray(), ordinals.size() + childCount * TOP_N);
+            int count = ordinals.size();
+
+            for (int i = 0; i < childCount; i++) {
+                int[] childTop = children[i].top(catalog);
+                System.arraycopy(childTop, 0, candidates, count, childTop.length);
+                count += childTop.length;
+            }
+
+            top = best(catalog, candidates, count);
+            return top;
+        }
+
+        /**
+         * Counts this node and the nodes below it.
+         *
+         * @return the number of nodes in the subtree
+         */
+        int count() {
+            int count = 1;
+
+            for (int i = 0; i < childCount; i++) {
+                count += children[i].count();
+            }
+
+            return count;
+        }
+
+        /**
+         * Writes the ordinals and the child keys of the node, followed by its children.
+         *
+         * @param out the stream to write to
+         * @throws IOException if writing fails
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            int[] values = ordinals.toArray();
+            out.writeInt(values.length);
+            BinaryIO.writeInts(out, values, values.length);
+            out.writeInt(childCount);
+
+            for (int i = 0; i < childCount; i++) {
+                out.writeChar(keys[i]);
+            }
+
+            for (int i = 0; i < childCount; i++) {
+                children[i].writeTo(out);
+            }
+        }
+
+        /**
+         * Reads a subtree written by {@link #writeTo(DataOutputStream)}.
+         *
+         * @param in the buffer to read from
+         * @return the root of the subtree
+         */
+        static Node readFrom(ByteBuffer in) {
+            Node node = new Node();
+            node.ordinals = PostingList.of(BinaryIO.readInts(in, in.getInt()));
+            node.childCount = in.getInt();
+            node.keys = new char[node.childCount];
+            node.children = new Node[node.childCount];
+
+            for (int i = 0; i < node.childCount; i++) {
+                node.keys[i] = in.getChar();
+            }
+
+            for (int i = 0; i < node.childCount; i++) {
+                node.children[i] = readFrom(in);
+            }
+
+            return node;
+        }
+
+        /**
+         * Copies the node, sharing its children, which are marked as shared so they are copied in turn before they change.
+         * The ordinals are shared the same way.
+         *
+         * @return the copy, not shared with any trie
+         */
+        Node copy() {
+            for (int i = 0; i < childCount; i++) {
+                children[i].shared = true;
+            }
+
+            Node copy = new Node();
+            copy.keys = Arrays.copyOf(keys, childCount);
+            copy.children = Arrays.copyOf(children, childCount);
+            copy.childCount = childCount;
+            ordinals.shared = true;
+            copy.ordinals = ordinals;
+            copy.top = top;
+            return copy;
+        }
+    }
+}
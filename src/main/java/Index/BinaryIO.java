@@ -0,0 +1,107 @@
+package Index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for writing index data with a DataOutputStream and reading it back from a (memory-mapped) ByteBuffer.
+ * Both sides use big-endian byte order. Arrays are read with bulk copies from buffer views.
+ */
+public class BinaryIO {
+    private BinaryIO() {
+    }
+
+    /**
+     * Writes the first entries of an int array.
+     *
+     * @param out the stream to write to
+     * @param values the array
+     * @param count the number of entries to write
+     * @throws IOException if writing fails
+     */
+    public static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reads an int array and advances the buffer past it.
+     *
+     * @param in the buffer to read from
+     * @param count the number of entries to read
+     * @return the array
+     */
+    public static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads a float array and advances the buffer past it.
+     *
+     * @param in the buffer to read from
+     * @param count the number of entries to read
+     * @return the array
+     */
+    public static float[] readFloats(ByteBuffer in, int count) {
+        float[] values = new float[count];
+        in.asFloatBuffer().get(values);
+        in.position(in.position() + count * Float.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads a long array and advances the buffer past it.
+     *
+     * @param in the buffer to read from
+     * @param count the number of entries to read
+     * @return the array
+     */
+    public static long[] readLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its bytes. A length of -1 stands for null.
+     *
+     * @param out the stream to write to
+     * @param value the string, or null
+     * @throws IOException if writing fails
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in the buffer to read from
+     * @return the string, or null
+     */
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
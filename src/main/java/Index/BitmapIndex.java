@@ -0,0 +1,202 @@
+package Index;
+
+import Filter.FilterType;
+import Product.ProductCatalog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index holding one compressed bitmap of catalog ordinals per brand or per category.
+ * Bitmaps are looked up by the dictionary id of the brand or category.
+ * Copies share the bitmaps, and a bitmap shared with another index is copied before it changes.
+ */
+public class BitmapIndex implements CatalogIndex {
+    private final FilterType dimension;
+    private final List<RoaringBitmap> bitmaps = new ArrayList<>();
+
+    /**
+     * Constructs an empty index over brands or categories.
+     *
+     * @param dimension the dimension to index (BRAND or CATEGORY)
+     * @throws IllegalArgumentException if the dimension is not BRAND or CATEGORY
+     */
+    public BitmapIndex(FilterType dimension) {
+        if (dimension != FilterType.BRAND && dimension != FilterType.CATEGORY) {
+            throw new IllegalArgumentException("Only brands and categories can be indexed with bitmaps.");
+        }
+
+        this.dimension = dimension;
+    }
+
+    /**
+     * Adds the product at the ordinal to the bitmap of its brand or category.
+     * Products without a brand or category are not indexed.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void add(ProductCatalog catalog, int ordinal) {
+        int id = idOf(catalog, ordinal);
+
+        if (id < 0) {
+            return;
+        }
+
+        while (bitmaps.size() <= id) {
+            bitmaps.add(new RoaringBitmap());
+        }
+
+        writable(id).add(ordinal);
+    }
+
+    /**
+     * Removes the product at the ordinal from the bitmap of its brand or category.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void remove(ProductCatalog catalog, int ordinal) {
+        int id = idOf(catalog, ordinal);
+
+        if (id >= 0 && id < bitmaps.size() && bitmaps.get(id).contains(ordinal)) {
+            writable(id).remove(ordinal);
+        }
+    }
+
+    /**
+     * Rebuilds all bitmaps from the catalog.
+     *
+     * @param catalog the catalog to index
+     */
+    @Override
+    public void rebuild(ProductCatalog catalog) {
+        bitmaps.clear();
+
+        for (int ordinal = 0; ordinal < catalog.getSize(); ordinal++) {
+            if (catalog.isLive(ordinal)) {
+                add(catalog, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the index that can be changed independently.
+     * The copy shares every bitmap with this index until either index changes it.
+     *
+     * @return the copy
+     */
+    public BitmapIndex copy() {
+        BitmapIndex copy = new BitmapIndex(dimension);
+
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.shared = true;
+            copy.bitmaps.add(bitmap);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Writes the bitmaps of the index in id order.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(bitmaps.size());
+
+        for (RoaringBitmap bitmap : bitmaps) {
+            bitmap.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutputStream)}, without scanning any product.
+     * Stored ids are translated, so the bitmaps stay valid when the dictionary assigns other ids than the writer's.
+     *
+     * @param in the buffer to read from
+     * @param dimension the dimension the index was written for (BRAND or CATEGORY)
+     * @param ids the current dictionary id of every stored id
+     * @return the index
+     * @throws IllegalArgumentException if the dimension is not BRAND or CATEGORY
+     */
+    public static BitmapIndex readFrom(ByteBuffer in, FilterType dimension, int[] ids) {
+        BitmapIndex index = new BitmapIndex(dimension);
+        int count = in.getInt();
+
+        for (int storedId = 0; storedId < count; storedId++) {
+            RoaringBitmap bitmap = RoaringBitmap.readFrom(in);
+            int id = ids[storedId];
+
+            while (index.bitmaps.size() <= id) {
+                index.bitmaps.add(new RoaringBitmap());
+            }
+
+            index.bitmaps.set(id, bitmap);
+        }
+
+        return index;
+    }
+
+    /**
+     * Retrieves the bitmap of a brand or category.
+     *
+     * @param id the dictionary id of the brand or category
+     * @return the bitmap of ordinals, or an empty bitmap if no product has this value
+     */
+    public RoaringBitmap get(int id) {
+        return id >= 0 && id < bitmaps.size() ? bitmaps.get(id) : new RoaringBitmap();
+    }
+
+    /**
+     * Computes the union of the bitmaps of several brands or categories.
+     *
+     * @param ids the dictionary ids; negative ids are ignored
+     * @return a new bitmap of the ordinals having any of the values
+     */
+    public RoaringBitmap union(int[] ids) {
+        RoaringBitmap result = new RoaringBitmap();
+
+        for (int id : ids) {
+            if (id >= 0 && id < bitmaps.size()) {
+                result = RoaringBitmap.or(result, bitmaps.get(id));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the bitmap of a brand or category for a change, copying it first when it is shared with another index.
+     *
+     * @param id the dictionary id of the brand or category
+     * @return the bitmap owned by this index
+     */
+    private RoaringBitmap writable(int id) {
+        RoaringBitmap bitmap = bitmaps.get(id);
+
+        if (bitmap.shared) {
+            bitmap = bitmap.copy();
+            bitmaps.set(id, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Retrieves the dictionary id the product at the ordinal has in the indexed dimension.
+     *
+     * @param catalog the catalog holding the product
+     * @param ordinal the ordinal of the product
+     * @return the brand or category id, or -1 if the product has none
+     */
+    private int idOf(ProductCatalog catalog, int ordinal) {
+        return dimension == FilterType.BRAND ? catalog.getBrandId(ordinal) : catalog.getCategoryId(ordinal);
+    }
+}
@@ -0,0 +1,32 @@
+package Index;
+
+import Product.ProductCatalog;
+
+/**
+ * Interface for secondary indexes kept in sync with a product catalog.
+ * Indexes are keyed by catalog ordinal and are told about every product added to or removed from the catalog.
+ */
+public interface CatalogIndex {
+    /**
+     * Called after a product was written to the catalog columns.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    void add(ProductCatalog catalog, int ordinal);
+
+    /**
+     * Called before a product is cleared from the catalog columns.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    void remove(ProductCatalog catalog, int ordinal);
+
+    /**
+     * Rebuilds the index from scratch, for example after the catalog reassigned ordinals.
+     *
+     * @param catalog the catalog to index
+     */
+    void rebuild(ProductCatalog catalog);
+}
@@ -0,0 +1,378 @@
+package Index;
+
+import java.util.Arrays;
+
+/**
+ * Sequence of ints split into blocks of at most {@value #BLOCK_SIZE} values, backing the ordered indexes of a catalog.
+ * Copies share their blocks: {@link #copy()} only copies the table of blocks and marks every block as shared,
+ * and a block marked as shared is copied before it is changed. Inserting or removing one value in a copy therefore
+ * copies one block and the table of blocks instead of the whole sequence, and never changes the list it was copied from.
+ * Positions are resolved directly while every block before them is full, as after a bulk build,
+ * and by a binary search over the first position of every block otherwise.
+ */
+final class IntBlockList {
+    static final int BLOCK_SIZE = 2048;
+
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+    private static final int INITIAL_BLOCK_CAPACITY = 4;
+
+    private Block[] blocks = new Block[1];
+    private int[] starts = new int[2];
+    private int blockCount;
+    private int size;
+
+    /**
+     * Creates a list holding the given values, in blocks filled to the brim.
+     *
+     * @param values the values in list order
+     * @param count the number of values in use
+     * @return the list
+     */
+    static IntBlockList of(int[] values, int count) {
+        IntBlockList list = new IntBlockList();
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        list.blocks = new Block[Math.max(blockCount, 1)];
+        list.starts = new int[list.blocks.length + 1];
+
+        for (int from = 0; from < count; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, count);
+            list.appendBlock(new Block(Arrays.copyOfRange(values, from, to), to - from));
+        }
+
+        return list;
+    }
+
+    /**
+     * Retrieves the value at a position.
+     *
+     * @param position the position in the list
+     * @return the value at the position
+     */
+    int get(int position) {
+        int block = blockOf(position);
+
+        return blocks[block].values[position - starts[block]];
+    }
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a value at a position, splitting its block in two when it is full.
+     *
+     * @param position the position to insert at, from 0 up to the size of the list
+     * @param value the value to insert
+     */
+    void insert(int position, int value) {
+        if (blockCount == 0) {
+            appendBlock(new Block(new int[INITIAL_BLOCK_CAPACITY], 0));
+        }
+
+        int block = position == size ? blockCount - 1 : blockOf(position);
+
+        if (blocks[block].size == BLOCK_SIZE) {
+            split(block);
+
+            if (position - starts[block] > blocks[block].size) {
+                block++;
+            }
+        }
+
+        writable(block).insert(position - starts[block], value);
+
+        for (int i = block + 1; i <= blockCount; i++) {
+            starts[i]++;
+        }
+
+        size++;
+    }
+
+    /**
+     * Removes the value at a position, dropping its block when it becomes empty.
+     *
+     * @param position the position of the value
+     */
+    void removeAt(int position) {
+        int block = blockOf(position);
+
+        if (blocks[block].size == 1) {
+            System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+            System.arraycopy(starts, block + 1, starts, block, blockCount - block);
+            blocks[--blockCount] = null;
+
+            for (int i = block; i <= blockCount; i++) {
+                starts[i]--;
+            }
+        } else {
+            writable(block).removeAt(position - starts[block]);
+
+            for (int i = block + 1; i <= blockCount; i++) {
+                starts[i]--;
+            }
+        }
+
+        size--;
+    }
+
+    /**
+     * Finds a value in a list whose values are in ascending order.
+     *
+     * @param value the value to look up
+     * @return the position of the value, or (-(insertion point) - 1) if it is not in the list
+     */
+    int search(int value) {
+        int low = 0;
+        int high = blockCount - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (blocks[middle].values[0] <= value) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        if (blockCount == 0) {
+            return -1;
+        }
+
+        int position = Arrays.binarySearch(blocks[low].values, 0, blocks[low].size, value);
+
+        return position >= 0 ? starts[low] + position : position - starts[low];
+    }
+
+    /**
+     * Keeps only the values of a sorted array that are also in this list, whose values must be in ascending order.
+     *
+     * @param values the values in ascending order, filtered in place
+     * @param count the number of values in use
+     * @return the number of values left
+     */
+    int retainAll(int[] values, int count) {
+        int kept = 0;
+        int block = 0;
+        int position = 0;
+
+        for (int i = 0; i < count && block < blockCount; i++) {
+            int value = values[i];
+
+            while (block < blockCount && blocks[block].values[blocks[block].size - 1] < value) {
+                block++;
+                position = 0;
+            }
+
+            if (block == blockCount) {
+                break;
+            }
+
+            int[] blockValues = blocks[block].values;
+
+            while (blockValues[position] < value) {
+                position++;
+            }
+
+            if (blockValues[position] == value) {
+                values[kept++] = value;
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Copies a range of the list into a new array.
+     *
+     * @param from the first position of the range
+     * @param to the position after the end of the range
+     * @return the values of the range in list order
+     */
+    int[] toArray(int from, int to) {
+        int[] result = new int[to - from];
+        int copied = 0;
+
+        for (int block = from < to ? blockOf(from) : blockCount; block < blockCount && from + copied < to; block++) {
+            int offset = from + copied - starts[block];
+            int count = Math.min(blocks[block].size - offset, to - from - copied);
+            System.arraycopy(blocks[block].values, offset, result, copied, count);
+            copied += count;
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a copy of the list that can be changed independently.
+     * All blocks are shared with this list until either list changes them.
+     *
+     * @return the copy
+     */
+    IntBlockList copy() {
+        IntBlockList copy = new IntBlockList();
+        copy.blocks = Arrays.copyOf(blocks, Math.max(blockCount, 1));
+        copy.starts = Arrays.copyOf(starts, copy.blocks.length + 1);
+        copy.blockCount = blockCount;
+        copy.size = size;
+
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i].shared = true;
+        }
+
+        return copy;
+    }
+
+    /**
+     * Finds the block holding a position.
+     *
+     * @param position the position in the list
+     * @return the index of the block
+     */
+    private int blockOf(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size + ".");
+        }
+
+        int guess = Math.min(position >>> BLOCK_SHIFT, blockCount - 1);
+
+        if (starts[guess] <= position && position < starts[guess + 1]) {
+            return guess;
+        }
+
+        int low = 0;
+        int high = blockCount - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (starts[middle] <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Retrieves a block for a change, copying it first when it is shared with another list.
+     *
+     * @param block the index of the block
+     * @return the block owned by this list
+     */
+    private Block writable(int block) {
+        if (blocks[block].shared) {
+            blocks[block] = blocks[block].copy();
+        }
+
+        return blocks[block];
+    }
+
+    /**
+     * Splits a full block into two halves.
+     *
+     * @param block the index of the block
+     */
+    private void split(int block) {
+        Block full = blocks[block];
+        int half = full.size / 2;
+        Block right = new Block(Arrays.copyOfRange(full.values, half, full.size), full.size - half);
+
+        insertBlock(block + 1, right, starts[block] + half);
+        blocks[block] = new Block(Arrays.copyOf(full.values, half), half);
+    }
+
+    /**
+     * Appends a block after all existing ones.
+     *
+     * @param block the block to append
+     */
+    private void appendBlock(Block block) {
+        insertBlock(blockCount, block, size);
+        size += block.size;
+        starts[blockCount] = size;
+    }
+
+    /**
+     * Inserts a block into the table of blocks, growing the table when needed.
+     *
+     * @param index the index to insert at
+     * @param block the block to insert
+     * @param start the position of the first value of the block
+     */
+    private void insertBlock(int index, Block block, int start) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            starts = Arrays.copyOf(starts, blocks.length + 1);
+        }
+
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        System.arraycopy(starts, index, starts, index + 1, blockCount - index + 1);
+        blocks[index] = block;
+        starts[index] = start;
+        blockCount++;
+    }
+
+    /**
+     * Run of consecutive values of the list. Only a list that does not share the block changes it.
+     */
+    private static final class Block {
+        private int[] values;
+        private int size;
+        private boolean shared;
+
+        /**
+         * Constructs a block over its values.
+         *
+         * @param values the backing array
+         * @param size the number of values in use
+         */
+        Block(int[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        /**
+         * Inserts a value at a position of the block, growing the backing array when needed.
+         *
+         * @param position the position in the block
+         * @param value the value to insert
+         */
+        void insert(int position, int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(size * 2, INITIAL_BLOCK_CAPACITY), BLOCK_SIZE));
+            }
+
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+        }
+
+        /**
+         * Removes the value at a position of the block.
+         *
+         * @param position the position in the block
+         */
+        void removeAt(int position) {
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+        }
+
+        /**
+         * Copies the block, leaving room for one more value.
+         *
+         * @return the copy, not shared with any list
+         */
+        Block copy() {
+            return new Block(Arrays.copyOf(values, Math.min(size + 1, BLOCK_SIZE)), size);
+        }
+    }
+}
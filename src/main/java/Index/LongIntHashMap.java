@@ -0,0 +1,322 @@
+package Index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values, without boxing.
+ * Collisions are resolved by linear probing, and removals shift later entries back so no tombstones are left.
+ * Keys are spread over partitions by the high bits of their hash, and the number of partitions doubles as the map
+ * grows, so no partition holds much more than {@value #PARTITION_LIMIT} keys. Copies share the partitions: a partition
+ * shared with another map is copied before it changes, so changing one key of a copy only copies one partition.
+ */
+public class LongIntHashMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int PARTITION_LIMIT = 4096;
+
+    private Partition[] partitions;
+    private int size;
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongIntHashMap() {
+        this.partitions = new Partition[]{new Partition(INITIAL_CAPACITY)};
+    }
+
+    /**
+     * Retrieves the value of a key.
+     *
+     * @param key the key to look up
+     * @param missing the value to return if the key is not in the map
+     * @return the value of the key, or the missing value
+     */
+    public int get(long key, int missing) {
+        int hash = hash(key);
+
+        return partitions[partitionOf(hash)].get(key, hash, missing);
+    }
+
+    /**
+     * Checks whether the map contains a key.
+     *
+     * @param key the key to look up
+     * @return true if the key is in the map, false otherwise
+     */
+    public boolean containsKey(long key) {
+        int hash = hash(key);
+        Partition partition = partitions[partitionOf(hash)];
+
+        return partition.used[partition.find(key, hash)];
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(long key, int value) {
+        int hash = hash(key);
+
+        if (writable(partitionOf(hash)).put(key, hash, value)) {
+            size++;
+
+            if (size > partitions.length * PARTITION_LIMIT) {
+                split();
+            }
+        }
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key the key to remove
+     * @param missing the value to return if the key is not in the map
+     * @return the value the key had, or the missing value
+     */
+    public int remove(long key, int missing) {
+        int hash = hash(key);
+        int index = partitionOf(hash);
+        Partition partition = partitions[index];
+
+        if (!partition.used[partition.find(key, hash)]) {
+            return missing;
+        }
+
+        size--;
+        return writable(index).remove(key, hash);
+    }
+
+    /**
+     * Retrieves the number of keys in the map.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a copy of the map that can be changed independently.
+     * The copy shares every partition with this map until either map changes it.
+     *
+     * @return the copy
+     */
+    public LongIntHashMap copy() {
+        LongIntHashMap copy = new LongIntHashMap();
+
+        for (Partition partition : partitions) {
+            partition.shared = true;
+        }
+
+        copy.partitions = partitions.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Retrieves a partition for a change, copying it first when it is shared with another map.
+     *
+     * @param index the index of the partition
+     * @return the partition owned by this map
+     */
+    private Partition writable(int index) {
+        if (partitions[index].shared) {
+            partitions[index] = partitions[index].copy();
+        }
+
+        return partitions[index];
+    }
+
+    /**
+     * Doubles the number of partitions, moving every entry into new partitions so shared ones stay untouched.
+     */
+    private void split() {
+        Partition[] old = partitions;
+
+        partitions = new Partition[old.length * 2];
+
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(INITIAL_CAPACITY);
+        }
+
+        for (Partition partition : old) {
+            for (int slot = 0; slot < partition.keys.length; slot++) {
+                if (partition.used[slot]) {
+                    long key = partition.keys[slot];
+                    int hash = hash(key);
+                    partitions[partitionOf(hash)].put(key, hash, partition.values[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks the partition of a hash from its high bits, which the slots within a partition do not use.
+     *
+     * @param hash the hash of a key
+     * @return the partition index
+     */
+    private int partitionOf(int hash) {
+        return (hash >>> 16) & (partitions.length - 1);
+    }
+
+    /**
+     * Spreads the bits of a key, since ids often differ only in their low or high bits.
+     *
+     * @param key the key
+     * @return the hash of the key
+     */
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * Open-addressing table holding the keys of one partition. Only a map that does not share the partition changes it.
+     */
+    private static final class Partition {
+        private long[] keys;
+        private int[] values;
+        private boolean[] used;
+        private int size;
+        private boolean shared;
+
+        /**
+         * Constructs an empty partition.
+         *
+         * @param capacity the number of slots, a power of two
+         */
+        Partition(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.used = new boolean[capacity];
+        }
+
+        /**
+         * Retrieves the value of a key.
+         *
+         * @param key the key to look up
+         * @param hash the hash of the key
+         * @param missing the value to return if the key is not in the partition
+         * @return the value of the key, or the missing value
+         */
+        int get(long key, int hash, int missing) {
+            int slot = find(key, hash);
+
+            return used[slot] ? values[slot] : missing;
+        }
+
+        /**
+         * Sets the value of a key.
+         *
+         * @param key the key
+         * @param hash the hash of the key
+         * @param value the value
+         * @return true if the key was added, false if its value was replaced
+         */
+        boolean put(long key, int hash, int value) {
+            int slot = find(key, hash);
+            boolean added = !used[slot];
+
+            if (added) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    resize(keys.length * 2);
+                    slot = find(key, hash);
+                }
+
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+
+            values[slot] = value;
+            return added;
+        }
+
+        /**
+         * Removes a key that is in the partition.
+         *
+         * @param key the key to remove
+         * @param hash the hash of the key
+         * @return the value the key had
+         */
+        int remove(long key, int hash) {
+            int slot = find(key, hash);
+            int value = values[slot];
+            int mask = keys.length - 1;
+            int hole = slot;
+
+            for (int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+
+            used[hole] = false;
+            size--;
+            return value;
+        }
+
+        /**
+         * Finds the slot holding a key, or the empty slot where it would be inserted.
+         *
+         * @param key the key to look up
+         * @param hash the hash of the key
+         * @return the slot
+         */
+        int find(long key, int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            return slot;
+        }
+
+        /**
+         * Copies the partition.
+         *
+         * @return the copy, not shared with any map
+         */
+        Partition copy() {
+            Partition copy = new Partition(0);
+            copy.keys = Arrays.copyOf(keys, keys.length);
+            copy.values = Arrays.copyOf(values, values.length);
+            copy.used = Arrays.copyOf(used, used.length);
+            copy.size = size;
+            return copy;
+        }
+
+        /**
+         * Rehashes all entries into tables of a new capacity.
+         *
+         * @param capacity the new capacity, a power of two
+         */
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+
+            keys = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = find(oldKeys[i], hash(oldKeys[i]));
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package Index;
+
+/**
+ * Growable sorted list of catalog ordinals.
+ * The ordinals are kept in blocks that copies of the list share, so changing a copy only copies the block it touches.
+ */
+public class PostingList {
+    private IntBlockList ordinals = new IntBlockList();
+    boolean shared;
+
+    /**
+     * Creates a list holding already sorted ordinals.
+     *
+     * @param sorted the distinct ordinals in ascending order
+     * @return the list
+     */
+    public static PostingList of(int[] sorted) {
+        PostingList list = new PostingList();
+        list.ordinals = IntBlockList.of(sorted, sorted.length);
+        return list;
+    }
+
+    /**
+     * Adds an ordinal to the list, keeping it sorted.
+     * Appending ordinals in ascending order is the fast path, since catalogs assign ordinals in increasing order.
+     *
+     * @param ordinal the ordinal to add
+     */
+    public void add(int ordinal) {
+        int size = ordinals.size();
+
+        if (size > 0 && ordinals.get(size - 1) >= ordinal) {
+            int position = ordinals.search(ordinal);
+
+            if (position < 0) {
+                ordinals.insert(-position - 1, ordinal);
+            }
+
+            return;
+        }
+
+        ordinals.insert(size, ordinal);
+    }
+
+    /**
+     * Removes an ordinal from the list.
+     *
+     * @param ordinal the ordinal to remove
+     */
+    public void remove(int ordinal) {
+        int position = ordinals.search(ordinal);
+
+        if (position >= 0) {
+            ordinals.removeAt(position);
+        }
+    }
+
+    /**
+     * Checks whether the list contains an ordinal.
+     *
+     * @param ordinal the ordinal to look up
+     * @return true if the ordinal is in the list, false otherwise
+     */
+    public boolean contains(int ordinal) {
+        return ordinals.search(ordinal) >= 0;
+    }
+
+    /**
+     * Keeps only the ordinals of a sorted array that are also in the list.
+     *
+     * @param sorted the ordinals in ascending order, filtered in place
+     * @param count the number of ordinals in use
+     * @return the number of ordinals left
+     */
+    public int retainAll(int[] sorted, int count) {
+        return ordinals.retainAll(sorted, count);
+    }
+
+    /**
+     * Retrieves the ordinal at a position of the list.
+     *
+     * @param index the position in the list
+     * @return the ordinal at the position
+     */
+    public int get(int index) {
+        return ordinals.get(index);
+    }
+
+    /**
+     * Retrieves the number of ordinals in the list.
+     *
+     * @return the number of ordinals
+     */
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * Checks whether the list is empty.
+     *
+     * @return true if the list has no ordinals, false otherwise
+     */
+    public boolean isEmpty() {
+        return ordinals.size() == 0;
+    }
+
+    /**
+     * Copies the ordinals into a new array.
+     *
+     * @return the ordinals in ascending order
+     */
+    public int[] toArray() {
+        return ordinals.toArray(0, ordinals.size());
+    }
+
+    /**
+     * Creates a copy of the list that can be changed independently. The blocks of ordinals are shared until changed.
+     *
+     * @return the copy
+     */
+    public PostingList copy() {
+        PostingList copy = new PostingList();
+        copy.ordinals = ordinals.copy();
+        return copy;
+    }
+}
@@ -0,0 +1,219 @@
+package Index;
+
+import Product.ProductCatalog;
+import Sort.OrdinalSort;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Index keeping catalog ordinals sorted by price.
+ * Entries are ordered by price and then by ordinal, which is the order a stable sort by price gives,
+ * so a price range resolves by binary search to a contiguous slice that is already sorted.
+ * The price keys and the ordinals are kept in two block lists changed in step, whose blocks copies of the index share.
+ */
+public class PriceIndex implements CatalogIndex {
+    private IntBlockList keys = new IntBlockList();
+    private IntBlockList ordinals = new IntBlockList();
+
+    /**
+     * Inserts the product at the ordinal at its price position.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void add(ProductCatalog catalog, int ordinal) {
+        int key = OrdinalSort.priceKey(catalog.getPrice(ordinal));
+        int position = find(key, ordinal);
+
+        if (position >= 0) {
+            return;
+        }
+
+        position = -position - 1;
+        keys.insert(position, key);
+        ordinals.insert(position, ordinal);
+    }
+
+    /**
+     * Removes the product at the ordinal, using the price still stored in the catalog column.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void remove(ProductCatalog catalog, int ordinal) {
+        int position = find(OrdinalSort.priceKey(catalog.getPrice(ordinal)), ordinal);
+
+        if (position >= 0) {
+            keys.removeAt(position);
+            ordinals.removeAt(position);
+        }
+    }
+
+    /**
+     * Rebuilds the index by sorting all live ordinals by price.
+     *
+     * @param catalog the catalog to index
+     */
+    @Override
+    public void rebuild(ProductCatalog catalog) {
+        int[] live = catalog.getOrdinals();
+        int[] liveKeys = new int[live.length];
+
+        for (int i = 0; i < live.length; i++) {
+            liveKeys[i] = OrdinalSort.priceKey(catalog.getPrice(live[i]));
+        }
+
+        OrdinalSort.sortByKey(live, liveKeys);
+
+        for (int i = 0; i < live.length; i++) {
+            liveKeys[i] = OrdinalSort.priceKey(catalog.getPrice(live[i]));
+        }
+
+        keys = IntBlockList.of(liveKeys, live.length);
+        ordinals = IntBlockList.of(live, live.length);
+    }
+
+    /**
+     * Creates a copy of the index that can be changed independently.
+     * The copy shares every block with this index until either index changes it.
+     *
+     * @return the copy
+     */
+    public PriceIndex copy() {
+        PriceIndex copy = new PriceIndex();
+        copy.keys = keys.copy();
+        copy.ordinals = ordinals.copy();
+        return copy;
+    }
+
+    /**
+     * Writes the entries of the index.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size());
+        BinaryIO.writeInts(out, keys.toArray(0, size()), size());
+        BinaryIO.writeInts(out, ordinals.toArray(0, size()), size());
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutputStream)}, without sorting anything.
+     *
+     * @param in the buffer to read from
+     * @return the index
+     */
+    public static PriceIndex readFrom(ByteBuffer in) {
+        PriceIndex index = new PriceIndex();
+        int size = in.getInt();
+        index.keys = IntBlockList.of(BinaryIO.readInts(in, size), size);
+        index.ordinals = IntBlockList.of(BinaryIO.readInts(in, size), size);
+        return index;
+    }
+
+    /**
+     * Finds the first position whose price is not less than the given price.
+     *
+     * @param price the lower price bound
+     * @return the first position of the slice
+     */
+    public int lowerBound(float price) {
+        return firstPositionAbove(OrdinalSort.priceKey(price) - 1L);
+    }
+
+    /**
+     * Finds the position after the last one whose price is not greater than the given price.
+     *
+     * @param price the upper price bound
+     * @return the position after the end of the slice
+     */
+    public int upperBound(float price) {
+        return firstPositionAbove(OrdinalSort.priceKey(price));
+    }
+
+    /**
+     * Retrieves the ordinal at a position of the index.
+     *
+     * @param position the position in price order
+     * @return the ordinal at the position
+     */
+    public int getOrdinal(int position) {
+        return ordinals.get(position);
+    }
+
+    /**
+     * Copies the ordinals of a slice of the index.
+     *
+     * @param from the first position of the slice
+     * @param to the position after the end of the slice
+     * @return the ordinals in price order
+     */
+    public int[] getOrdinals(int from, int to) {
+        return ordinals.toArray(from, to);
+    }
+
+    /**
+     * Retrieves the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * Finds the first position whose key is greater than the given bound.
+     *
+     * @param bound the key bound
+     * @return the first position with a greater key, or the size if there is none
+     */
+    private int firstPositionAbove(long bound) {
+        int low = 0;
+        int high = size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (keys.get(middle) <= bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds the position of an entry by its key and ordinal.
+     *
+     * @param key the price key of the entry
+     * @param ordinal the ordinal of the entry
+     * @return the position of the entry, or (-(insertion point) - 1) if it is not in the index
+     */
+    private int find(int key, int ordinal) {
+        int low = 0;
+        int high = size() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleKey = keys.get(middle);
+            int compare = middleKey != key ? Integer.compare(middleKey, key) : Integer.compare(ordinals.get(middle), ordinal);
+
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
+}
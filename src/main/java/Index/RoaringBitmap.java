@@ -0,0 +1,608 @@
+package Index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of non-negative ints in the style of Roaring bitmaps.
+ * Values are split by their high 16 bits into chunks, and each chunk stores its low 16 bits either as a sorted
+ * array, while it holds at most {@value #ARRAY_LIMIT} values, or as a plain 65536-bit bitmap once it gets denser.
+ * Copies share their containers, and a container shared with another bitmap is copied before it changes,
+ * so adding or removing a value in a copy only copies the container of that value.
+ */
+public class RoaringBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+    boolean shared;
+
+    /**
+     * Constructs an empty bitmap.
+     */
+    public RoaringBitmap() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+    }
+
+    /**
+     * Adds a value to the bitmap.
+     *
+     * @param value the value to add
+     */
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int position = findKey(high);
+
+        if (position < 0) {
+            position = -position - 1;
+            insertContainer(position, high, new ArrayContainer());
+        }
+
+        containers[position] = writable(position).add((char) value);
+    }
+
+    /**
+     * Removes a value from the bitmap.
+     *
+     * @param value the value to remove
+     */
+    public void remove(int value) {
+        int position = findKey((char) (value >>> 16));
+
+        if (position < 0) {
+            return;
+        }
+
+        if (!containers[position].contains((char) value)) {
+            return;
+        }
+
+        Container container = writable(position).remove((char) value);
+
+        if (container.getCardinality() == 0) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+            containers[--size] = null;
+        } else {
+            containers[position] = container;
+        }
+    }
+
+    /**
+     * Checks whether the bitmap contains a value.
+     *
+     * @param value the value to look up
+     * @return true if the value is in the bitmap, false otherwise
+     */
+    public boolean contains(int value) {
+        int position = findKey((char) (value >>> 16));
+
+        return position >= 0 && containers[position].contains((char) value);
+    }
+
+    /**
+     * Retrieves the number of values in the bitmap.
+     *
+     * @return the number of values
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].getCardinality();
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Checks whether the bitmap is empty.
+     *
+     * @return true if the bitmap has no values, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copies the values into a new array.
+     *
+     * @return the values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[getCardinality()];
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            count = containers[i].copyTo(keys[i] << 16, values, count);
+        }
+
+        return values;
+    }
+
+    /**
+     * Creates a copy of the bitmap that can be changed independently.
+     * The copy shares every container with this bitmap until either bitmap changes it.
+     *
+     * @return the copy
+     */
+    public RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(size, 4));
+        copy.containers = Arrays.copyOf(containers, copy.keys.length);
+        copy.size = size;
+
+        for (int i = 0; i < size; i++) {
+            containers[i].shared = true;
+        }
+
+        return copy;
+    }
+
+    /**
+     * Writes the containers of the bitmap: the high bits, kind and cardinality of each one, followed by its sorted values
+     * or by the words of its bitmap.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            out.writeBoolean(containers[i] instanceof ArrayContainer);
+            out.writeInt(containers[i].getCardinality());
+
+            if (containers[i] instanceof ArrayContainer array) {
+                for (int j = 0; j < array.cardinality; j++) {
+                    out.writeChar(array.values[j]);
+                }
+            } else {
+                for (long word : ((BitmapContainer) containers[i]).words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a bitmap written by {@link #writeTo(DataOutputStream)}, bulk-copying its containers.
+     *
+     * @param in the buffer to read from
+     * @return the bitmap
+     */
+    public static RoaringBitmap readFrom(ByteBuffer in) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int count = in.getInt();
+
+        for (int i = 0; i < count; i++) {
+            char high = in.getChar();
+            boolean sparse = in.get() != 0;
+            int cardinality = in.getInt();
+
+            if (sparse) {
+                ArrayContainer array = new ArrayContainer();
+                array.values = new char[Math.max(cardinality, 4)];
+                array.cardinality = cardinality;
+                in.asCharBuffer().get(array.values, 0, cardinality);
+                in.position(in.position() + cardinality * Character.BYTES);
+                bitmap.appendContainer(high, array);
+            } else {
+                BitmapContainer words = new BitmapContainer();
+                words.cardinality = cardinality;
+                in.asLongBuffer().get(words.words);
+                in.position(in.position() + words.words.length * Long.BYTES);
+                bitmap.appendContainer(high, words);
+            }
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Computes the union of two bitmaps.
+     *
+     * @param left the first bitmap
+     * @param right the second bitmap
+     * @return a new bitmap holding the values of both bitmaps
+     */
+    public static RoaringBitmap or(RoaringBitmap left, RoaringBitmap right) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+
+        while (i < left.size || j < right.size) {
+            if (j >= right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.appendContainer(left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i >= left.size || right.keys[j] < left.keys[i]) {
+                result.appendContainer(right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(left.keys[i], left.containers[i].or(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the intersection of two bitmaps.
+     *
+     * @param left the first bitmap
+     * @param right the second bitmap
+     * @return a new bitmap holding the values present in both bitmaps
+     */
+    public static RoaringBitmap and(RoaringBitmap left, RoaringBitmap right) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+
+        while (i < left.size && j < right.size) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (right.keys[j] < left.keys[i]) {
+                j++;
+            } else {
+                Container container = left.containers[i].and(right.containers[j]);
+
+                if (container.getCardinality() > 0) {
+                    result.appendContainer(left.keys[i], container);
+                }
+
+                i++;
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the position of the container for the high bits.
+     *
+     * @param high the high 16 bits of a value
+     * @return the position of the container, or (-(insertion point) - 1) if there is none
+     */
+    private int findKey(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    /**
+     * Retrieves a container for a change, copying it first when it is shared with another bitmap.
+     *
+     * @param position the position of the container
+     * @return the container owned by this bitmap
+     */
+    private Container writable(int position) {
+        if (containers[position].shared) {
+            containers[position] = containers[position].copy();
+        }
+
+        return containers[position];
+    }
+
+    /**
+     * Inserts a container at a position, growing the backing arrays when needed.
+     *
+     * @param position the position to insert at
+     * @param high the high 16 bits of the values in the container
+     * @param container the container to insert
+     */
+    private void insertContainer(int position, char high, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = high;
+        containers[position] = container;
+        size++;
+    }
+
+    /**
+     * Appends a container after all existing ones.
+     *
+     * @param high the high 16 bits of the values in the container, greater than all existing keys
+     * @param container the container to append
+     */
+    private void appendContainer(char high, Container container) {
+        insertContainer(size, high, container);
+    }
+
+    /**
+     * Set of the low 16 bits of the values sharing the same high 16 bits.
+     * Mutating operations return the container to use from then on, which may have changed representation.
+     * Only a bitmap that does not share the container changes it.
+     */
+    private abstract static class Container {
+        boolean shared;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int getCardinality();
+
+        abstract int copyTo(int high, int[] values, int position);
+
+        abstract Container copy();
+
+        abstract BitmapContainer toBitmap();
+
+        /**
+         * Computes the union with another container.
+         *
+         * @param other the other container
+         * @return a new container holding the values of both containers
+         */
+        Container or(Container other) {
+            BitmapContainer result = toBitmap();
+
+            if (result == this) {
+                result = (BitmapContainer) copy();
+            }
+
+            result.orWith(other);
+            return result.getCardinality() <= ARRAY_LIMIT ? result.toArrayContainer() : result;
+        }
+
+        /**
+         * Computes the intersection with another container.
+         *
+         * @param other the other container
+         * @return a new container holding the values present in both containers
+         */
+        Container and(Container other) {
+            if (this instanceof ArrayContainer || other instanceof ArrayContainer) {
+                ArrayContainer small = this instanceof ArrayContainer ? (ArrayContainer) this : (ArrayContainer) other;
+                Container large = small == this ? other : this;
+                ArrayContainer result = new ArrayContainer();
+
+                for (int i = 0; i < small.cardinality; i++) {
+                    if (large.contains(small.values[i])) {
+                        result.append(small.values[i]);
+                    }
+                }
+
+                return result;
+            }
+
+            BitmapContainer result = (BitmapContainer) copy();
+            result.andWith((BitmapContainer) other);
+            return result.getCardinality() <= ARRAY_LIMIT ? result.toArrayContainer() : result;
+        }
+    }
+
+    /**
+     * Container storing values as a sorted array, used for sparse chunks.
+     */
+    private static class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        Container add(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+
+            if (position >= 0) {
+                return this;
+            }
+
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+
+            position = -position - 1;
+
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+            }
+
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+
+            if (position >= 0) {
+                System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+                cardinality--;
+            }
+
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int copyTo(int high, int[] target, int position) {
+            for (int i = 0; i < cardinality; i++) {
+                target[position++] = high | values[i];
+            }
+
+            return position;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(cardinality, 4));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+
+            return bitmap;
+        }
+
+        /**
+         * Appends a value greater than all values in the container.
+         *
+         * @param value the value to append
+         */
+        void append(char value) {
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+            }
+
+            values[cardinality++] = value;
+        }
+    }
+
+    /**
+     * Container storing values as a 65536-bit bitmap, used for dense chunks.
+     */
+    private static class BitmapContainer extends Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+
+            return cardinality <= ARRAY_LIMIT ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int copyTo(int high, int[] target, int position) {
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+
+                while (bits != 0) {
+                    target[position++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+
+            return position;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        /**
+         * Adds all values of another container to this one.
+         *
+         * @param other the other container
+         */
+        void orWith(Container other) {
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+
+                return;
+            }
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            cardinality = 0;
+
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= bitmap.words[i];
+                cardinality += Long.bitCount(words[i]);
+            }
+        }
+
+        /**
+         * Keeps only the values also present in another bitmap container.
+         *
+         * @param other the other container
+         */
+        void andWith(BitmapContainer other) {
+            cardinality = 0;
+
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= other.words[i];
+                cardinality += Long.bitCount(words[i]);
+            }
+        }
+
+        /**
+         * Converts the container to the sorted array representation.
+         *
+         * @return the array container
+         */
+        ArrayContainer toArrayContainer() {
+            ArrayContainer array = new ArrayContainer();
+
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+
+                while (bits != 0) {
+                    array.append((char) ((word << 6) | Long.numberOfTrailingZeros(bits)));
+                    bits &= bits - 1;
+                }
+            }
+
+            return array;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package Index;
+
+import Product.ProductCatalog;
+import Sort.OrdinalSort;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Materialized ordering of all catalog ordinals for one sort strategy.
+ * Ordinals comparing as equal are kept in ordinal order, which is the order a stable sort gives,
+ * and new products are placed by binary search instead of re-sorting the whole view.
+ * The ordinals are kept in blocks that copies of the view share, so placing a product in a copy only copies one block.
+ */
+public class SortedView implements CatalogIndex {
+    private final IntBinaryOperator comparator;
+    private IntBlockList ordinals = new IntBlockList();
+
+    /**
+     * Constructs an empty view ordered by the comparator.
+     *
+     * @param comparator compares two ordinals of the catalog the view belongs to
+     */
+    public SortedView(IntBinaryOperator comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Inserts the product at the ordinal at its sorted position.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void add(ProductCatalog catalog, int ordinal) {
+        int position = find(ordinal);
+
+        if (position >= 0) {
+            return;
+        }
+
+        ordinals.insert(-position - 1, ordinal);
+    }
+
+    /**
+     * Removes the product at the ordinal, locating it by the values still stored in the catalog columns.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void remove(ProductCatalog catalog, int ordinal) {
+        int position = find(ordinal);
+
+        if (position >= 0) {
+            ordinals.removeAt(position);
+        }
+    }
+
+    /**
+     * Rebuilds the view by sorting all live ordinals.
+     *
+     * @param catalog the catalog to index
+     */
+    @Override
+    public void rebuild(ProductCatalog catalog) {
+        int[] live = catalog.getOrdinals();
+
+        OrdinalSort.sort(live, comparator);
+
+        ordinals = IntBlockList.of(live, live.length);
+    }
+
+    /**
+     * Creates a copy of the view for a copy of its catalog.
+     * The copy shares every block of ordinals with this view until either view changes it.
+     *
+     * @param comparator the comparator bound to the copied catalog, ordering ordinals the same way
+     * @return the copy
+     */
+    public SortedView copy(IntBinaryOperator comparator) {
+        SortedView copy = new SortedView(comparator);
+        copy.ordinals = ordinals.copy();
+        return copy;
+    }
+
+    /**
+     * Writes the ordinals of the view.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size());
+        BinaryIO.writeInts(out, toArray(), size());
+    }
+
+    /**
+     * Reads a view written by {@link #writeTo(DataOutputStream)}, without sorting anything.
+     *
+     * @param in the buffer to read from
+     * @param comparator the comparator the stored ordinals are ordered by
+     * @return the view
+     */
+    public static SortedView readFrom(ByteBuffer in, IntBinaryOperator comparator) {
+        SortedView view = new SortedView(comparator);
+        int size = in.getInt();
+        view.ordinals = IntBlockList.of(BinaryIO.readInts(in, size), size);
+        return view;
+    }
+
+    /**
+     * Retrieves the comparator the view is ordered by.
+     *
+     * @return the ordinal comparator
+     */
+    public IntBinaryOperator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Retrieves the ordinal at a position of the view.
+     *
+     * @param position the position in sorted order
+     * @return the ordinal at the position
+     */
+    public int getOrdinal(int position) {
+        return ordinals.get(position);
+    }
+
+    /**
+     * Retrieves the number of ordinals in the view.
+     *
+     * @return the number of ordinals
+     */
+    public int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * Finds the position of an ordinal in the view.
+     *
+     * @param ordinal the ordinal to look up
+     * @return the position of the ordinal, or a negative value if it is not in the view
+     */
+    public int positionOf(int ordinal) {
+        return find(ordinal);
+    }
+
+    /**
+     * Copies the ordinals of the view.
+     *
+     * @return the ordinals in sorted order
+     */
+    public int[] toArray() {
+        return ordinals.toArray(0, ordinals.size());
+    }
+
+    /**
+     * Finds the position of an ordinal, comparing by the sort order and then by ordinal.
+     *
+     * @param ordinal the ordinal to look up
+     * @return the position of the ordinal, or (-(insertion point) - 1) if it is not in the view
+     */
+    private int find(int ordinal) {
+        int low = 0;
+        int high = ordinals.size() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleOrdinal = ordinals.get(middle);
+            int compare = comparator.applyAsInt(middleOrdinal, ordinal);
+
+            if (compare == 0) {
+                compare = Integer.compare(middleOrdinal, ordinal);
+            }
+
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
+}
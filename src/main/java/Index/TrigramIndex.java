@@ -0,0 +1,302 @@
+package Index;
+
+import Product.ProductCatalog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from every three-character substring of a normalized product title to the ordinals of the products containing it.
+ * A search term of at least three characters can only occur in titles that contain all of its trigrams,
+ * so intersecting their posting lists gives a small candidate set that is then verified with {@link String#contains}.
+ * The posting lists are spread over {@value #PARTITIONS} partitions by trigram. Copies share the partitions and the
+ * lists: a partition or list shared with another index is copied before it changes, so indexing one title in a copy
+ * only copies the partitions and posting list blocks of its trigrams.
+ */
+public class TrigramIndex implements CatalogIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int PARTITIONS = 64;
+
+    private final Partition[] partitions;
+
+    /**
+     * Constructs an empty index.
+     */
+    public TrigramIndex() {
+        this(new Partition[PARTITIONS]);
+        clear();
+    }
+
+    /**
+     * Constructs an index over existing partitions.
+     *
+     * @param partitions the partitions, one per partition index
+     */
+    private TrigramIndex(Partition[] partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Indexes the title of the product at the ordinal.
+     *
+     * @param catalog the catalog the product was added to
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void add(ProductCatalog catalog, int ordinal) {
+        for (long gram : grams(catalog.getNormalizedTitle(ordinal))) {
+            Map<Long, PostingList> postings = writable(gram);
+            PostingList list = postings.get(gram);
+
+            if (list == null || list.shared) {
+                list = list == null ? new PostingList() : list.copy();
+                postings.put(gram, list);
+            }
+
+            list.add(ordinal);
+        }
+    }
+
+    /**
+     * Removes the title of the product at the ordinal from the index.
+     *
+     * @param catalog the catalog the product is removed from
+     * @param ordinal the ordinal of the product
+     */
+    @Override
+    public void remove(ProductCatalog catalog, int ordinal) {
+        for (long gram : grams(catalog.getNormalizedTitle(ordinal))) {
+            PostingList list = postingsOf(gram).get(gram);
+
+            if (list == null || !list.contains(ordinal)) {
+                continue;
+            }
+
+            Map<Long, PostingList> postings = writable(gram);
+
+            if (list.size() == 1) {
+                postings.remove(gram);
+                continue;
+            }
+
+            if (list.shared) {
+                list = list.copy();
+                postings.put(gram, list);
+            }
+
+            list.remove(ordinal);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the titles of all products in the catalog.
+     *
+     * @param catalog the catalog to index
+     */
+    @Override
+    public void rebuild(ProductCatalog catalog) {
+        clear();
+
+        for (int ordinal = 0; ordinal < catalog.getSize(); ordinal++) {
+            if (catalog.isLive(ordinal)) {
+                add(catalog, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the index that can be changed independently.
+     * The copy shares every partition with this index until either index changes it.
+     *
+     * @return the copy
+     */
+    public TrigramIndex copy() {
+        for (Partition partition : partitions) {
+            partition.shared = true;
+        }
+
+        return new TrigramIndex(partitions.clone());
+    }
+
+    /**
+     * Writes the posting lists of the index.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        int count = 0;
+
+        for (Partition partition : partitions) {
+            count += partition.postings.size();
+        }
+
+        out.writeInt(count);
+
+        for (Partition partition : partitions) {
+            for (Map.Entry<Long, PostingList> entry : partition.postings.entrySet()) {
+                PostingList list = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(list.size());
+                BinaryIO.writeInts(out, list.toArray(), list.size());
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutputStream)}, without re-splitting any title.
+     *
+     * @param in the buffer to read from
+     * @return the index
+     */
+    public static TrigramIndex readFrom(ByteBuffer in) {
+        TrigramIndex index = new TrigramIndex();
+        int count = in.getInt();
+
+        for (int i = 0; i < count; i++) {
+            long gram = in.getLong();
+            index.partitions[partitionOf(gram)].postings.put(gram, PostingList.of(BinaryIO.readInts(in, in.getInt())));
+        }
+
+        return index;
+    }
+
+    /**
+     * Finds the ordinals of products whose titles may contain the term.
+     * Every product containing the term is returned, but some candidates may not contain it and must be verified.
+     *
+     * @param term the normalized search term
+     * @return the candidate ordinals in ascending order, or null if the term is too short to use the index
+     */
+    public int[] candidates(String term) {
+        Set<Long> grams = grams(term);
+
+        if (grams.isEmpty()) {
+            return null;
+        }
+
+        List<PostingList> lists = new ArrayList<>(grams.size());
+
+        for (long gram : grams) {
+            PostingList list = postingsOf(gram).get(gram);
+
+            if (list == null) {
+                return new int[0];
+            }
+
+            lists.add(list);
+        }
+
+        lists.sort((left, right) -> Integer.compare(left.size(), right.size()));
+
+        int[] result = lists.get(0).toArray();
+        int count = result.length;
+
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainAll(result, count);
+        }
+
+        int[] candidates = new int[count];
+        System.arraycopy(result, 0, candidates, 0, count);
+        return candidates;
+    }
+
+    /**
+     * Replaces every partition with an empty one, leaving partitions shared with other indexes untouched.
+     */
+    private void clear() {
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new Partition(new HashMap<>());
+        }
+    }
+
+    /**
+     * Retrieves the posting lists of the partition a trigram belongs to, for reading.
+     *
+     * @param gram the packed trigram
+     * @return the posting lists of its partition
+     */
+    private Map<Long, PostingList> postingsOf(long gram) {
+        return partitions[partitionOf(gram)].postings;
+    }
+
+    /**
+     * Retrieves the posting lists of the partition a trigram belongs to for a change,
+     * copying the partition first when it is shared with another index.
+     *
+     * @param gram the packed trigram
+     * @return the posting lists of its partition, owned by this index
+     */
+    private Map<Long, PostingList> writable(long gram) {
+        int index = partitionOf(gram);
+
+        if (partitions[index].shared) {
+            partitions[index] = partitions[index].copy();
+        }
+
+        return partitions[index].postings;
+    }
+
+    /**
+     * Picks the partition of a trigram from the high bits of its mixed value.
+     *
+     * @param gram the packed trigram
+     * @return the partition index
+     */
+    private static int partitionOf(long gram) {
+        return (int) ((gram * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - Integer.numberOfTrailingZeros(PARTITIONS)));
+    }
+
+    /**
+     * Splits a text into its distinct trigrams, each packed into a long.
+     *
+     * @param text the text to split
+     * @return the set of trigrams
+     */
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+
+        return grams;
+    }
+
+    /**
+     * Group of posting lists sharing a partition. Only an index that does not share the partition changes it.
+     */
+    private static final class Partition {
+        private final Map<Long, PostingList> postings;
+        private boolean shared;
+
+        /**
+         * Constructs a partition over its posting lists.
+         *
+         * @param postings the posting lists by packed trigram
+         */
+        Partition(Map<Long, PostingList> postings) {
+            this.postings = postings;
+        }
+
+        /**
+         * Copies the partition, sharing its posting lists, which are copied in turn before they change.
+         *
+         * @return the copy, not shared with any index
+         */
+        Partition copy() {
+            for (PostingList list : postings.values()) {
+                list.shared = true;
+            }
+
+            return new Partition(new HashMap<>(postings));
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.List;
  * Interface for managing order status and notifying observers about status changes.
  */
 public class Order implements OrderStatusManager {
+    private long id;
     private List<OrderStatusObserver> observers;
     private String status;
     private Cart cart;
@@ -18,6 +19,15 @@ public class Order implements OrderStatusManager {
     private PaymentStrategy paymentStrategy;
     private DeliveryStrategy deliveryStrategy;
 
+    /**
+     * Gets the id of the order.
+     *
+     * @return the id of the order
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Gets the total price of the order.
      *
@@ -38,14 +48,16 @@ public class Order implements OrderStatusManager {
     }
 
     /**
-     * Constructs a new Order with the specified cart, email, payment strategy, and delivery strategy.
+     * Constructs a new Order with the specified id, cart, email, payment strategy, and delivery strategy.
      *
+     * @param id the id of this order
      * @param cart the cart associated with this order
      * @param email the email associated with this order
      * @param paymentStrategy the payment strategy to use for this order
      * @param deliveryStrategy the delivery strategy to use for this order
      */
-    public Order(Cart cart, String email, PaymentStrategy paymentStrategy, DeliveryStrategy deliveryStrategy){
+    public Order(long id, Cart cart, String email, PaymentStrategy paymentStrategy, DeliveryStrategy deliveryStrategy){
+        this.id = id;
         this.cart = cart;
         this.email = email;
         this.paymentStrategy = paymentStrategy;
@@ -106,7 +118,8 @@ public class Order implements OrderStatusManager {
     @Override
     public String toString() {
         return "Order{" +
-                "cart=" + cart +
+                "id=" + id +
+                ", cart=" + cart +
                 ", email='" + email  +
                 ", paymentStrategy=" + paymentStrategy +
                 ", deliveryStrategy=" + deliveryStrategy +
@@ -120,7 +133,8 @@ public class Order implements OrderStatusManager {
      */
     public String getInfo() {
         return "Order{" +
-                "cart=" + cart +
+                "id=" + id +
+                ", cart=" + cart +
                 ", email='" + email  +
                 ", paymentStrategy=" + paymentStrategy +
                 ", deliveryStrategy=" + deliveryStrategy +
@@ -9,6 +9,8 @@ import Payment.CashOnDeliveryPayment;
 import Payment.PaymentByCard;
 import Payment.PaymentMethod;
 import Payment.PaymentStrategy;
+import Product.IdGenerator;
+import Product.SnowflakeIdGenerator;
 import org.example.Console;
 import Exceptions.EmptyException;
 
@@ -20,6 +22,7 @@ import java.util.List;
  */
 public class OrderService {
     public List<Order> orders;
+    private final IdGenerator idGenerator;
 
     /**
      * Retrieves the list of orders.
@@ -34,7 +37,17 @@ public class OrderService {
      * Constructs a new OrderService with an empty list of orders.
      */
     public OrderService() {
-        orders = new ArrayList<>();
+        this(new SnowflakeIdGenerator(1));
+    }
+
+    /**
+     * Constructs a new OrderService with an empty list of orders, taking order ids from the given generator.
+     *
+     * @param idGenerator the generator of order ids
+     */
+    public OrderService(IdGenerator idGenerator) {
+        this.orders = new ArrayList<>();
+        this.idGenerator = idGenerator;
     }
 
     /**
@@ -90,7 +103,7 @@ public class OrderService {
         PaymentStrategy paymentStrategy = this.getPaymentStrategy(cart);
         DeliveryStrategy deliveryStrategy = this.getDeliveryStrategy();
 
-        Order order = new Order(cart, email, paymentStrategy, deliveryStrategy);
+        Order order = new Order(idGenerator.nextId(), cart, email, paymentStrategy, deliveryStrategy);
 
         orders.add(order);
 
@@ -0,0 +1,326 @@
+package Product;
+
+import Filter.FilterType;
+import Index.AutocompleteIndex;
+import Index.BinaryIO;
+import Index.BitmapIndex;
+import Index.PriceIndex;
+import Index.SortedView;
+import Index.TrigramIndex;
+import Sort.SortStrategy;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a product catalog together with all of its indexes and sorted views.
+ * Primitive columns and index arrays are stored as contiguous big-endian arrays. Loading is a bulk copy:
+ * the file is mapped with {@link FileChannel#map} only to read it, and every column, index array, title and product
+ * is copied onto the heap, so the restored catalog does not depend on the file. What the load saves is the work
+ * of rebuilding: nothing is parsed field by field, sorted or re-indexed.
+ * Normalized titles, collation keys and the compressed cold fields are stored as well, so products are restored
+ * without normalizing, collating or compressing anything.
+ * Snapshots are written to a temporary file that is forced to disk and then atomically moved over the target,
+ * so a reader never sees a partially written snapshot.
+ */
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x50434154;
+    private static final int VERSION = 6;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a catalog.
+     *
+     * @param catalog the catalog to write, which must not change while it is written
+     * @param file the snapshot file, replaced atomically
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ProductCatalog catalog, Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                writeCatalog(catalog, out);
+                out.flush();
+                channel.force(true);
+            }
+
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot into a new catalog that does not observe its products.
+     * Stored views are restored for the given strategies with the same class and description,
+     * and views are built for the given strategies that have none stored.
+     *
+     * @param file the snapshot file
+     * @param strategies the sort strategies to keep views for
+     * @return the restored catalog
+     * @throws IOException if the file cannot be read or is not a catalog snapshot
+     */
+    public static ProductCatalog read(Path file, SortStrategy... strategies) throws IOException {
+        MappedByteBuffer in;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshots larger than 2 GB are not supported.");
+            }
+
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return readCatalog(in, strategies);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted catalog snapshot " + file + ".", e);
+        }
+    }
+
+    /**
+     * Writes the sections of the snapshot.
+     *
+     * @param catalog the catalog to write
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    private static void writeCatalog(ProductCatalog catalog, DataOutputStream out) throws IOException {
+        int size = catalog.getSize();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeByte(catalog.isLive(ordinal) ? 1 : 0);
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeLong(catalog.isLive(ordinal) ? catalog.getProduct(ordinal).getId() : 0);
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeFloat(catalog.getPrice(ordinal));
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeInt(catalog.getQuantity(ordinal));
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeInt(catalog.getBrandId(ordinal));
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            out.writeInt(catalog.getCategoryId(ordinal));
+        }
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (catalog.isLive(ordinal)) {
+                byte[] sortKey = catalog.getTitleSortKey(ordinal);
+                BinaryIO.writeString(out, catalog.getTitle(ordinal));
+                BinaryIO.writeString(out, catalog.getNormalizedTitle(ordinal));
+                out.writeInt(sortKey.length);
+                out.write(sortKey);
+                Product.COLD_FIELDS.writeRecord(catalog.getProduct(ordinal).getColdHandle(), out);
+            }
+        }
+
+        writeDictionary(catalog.getBrands(), out);
+        writeDictionary(catalog.getCategories(), out);
+        catalog.getTitleIndex().writeTo(out);
+        catalog.getPriceIndex().writeTo(out);
+        catalog.getBrandIndex().writeTo(out);
+        catalog.getCategoryIndex().writeTo(out);
+        catalog.getAutocompleteIndex().writeTo(out);
+
+        Map<SortStrategy, SortedView> views = catalog.getSortedViews();
+        out.writeInt(views.size());
+
+        for (Map.Entry<SortStrategy, SortedView> entry : views.entrySet()) {
+            BinaryIO.writeString(out, strategyKey(entry.getKey()));
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * Reads the sections of the snapshot.
+     *
+     * @param in the mapped snapshot
+     * @param strategies the sort strategies to keep views for
+     * @return the restored catalog
+     * @throws IllegalStateException if the data is not a supported catalog snapshot
+     */
+    private static ProductCatalog readCatalog(ByteBuffer in, SortStrategy[] strategies) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IllegalStateException("Not a catalog snapshot of version " + VERSION + ".");
+        }
+
+        int size = in.getInt();
+        byte[] live = new byte[size];
+        in.get(live);
+
+        long[] ids = BinaryIO.readLongs(in, size);
+        float[] prices = BinaryIO.readFloats(in, size);
+        int[] quantities = BinaryIO.readInts(in, size);
+        int[] brandCodes = BinaryIO.readInts(in, size);
+        int[] categoryCodes = BinaryIO.readInts(in, size);
+        String[] titles = new String[size];
+        String[] normalizedTitles = new String[size];
+        byte[][] sortKeys = new byte[size][];
+        long[] coldHandles = new long[size];
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (live[ordinal] != 0) {
+                titles[ordinal] = BinaryIO.readString(in);
+                normalizedTitles[ordinal] = BinaryIO.readString(in);
+                sortKeys[ordinal] = new byte[in.getInt()];
+                in.get(sortKeys[ordinal]);
+                coldHandles[ordinal] = Product.COLD_FIELDS.readRecord(in);
+            }
+        }
+
+        int[] brandIds = internDictionary(readDictionary(in), Product.BRANDS);
+        int[] categoryIds = internDictionary(readDictionary(in), Product.CATEGORIES);
+        Product[] products = new Product[size];
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (live[ordinal] != 0) {
+                products[ordinal] = new Product(ids[ordinal], titles[ordinal], normalizedTitles[ordinal], sortKeys[ordinal],
+                        prices[ordinal], coldHandles[ordinal], decode(brandIds, brandCodes[ordinal]),
+                        decode(categoryIds, categoryCodes[ordinal]), quantities[ordinal]);
+            }
+        }
+
+        TrigramIndex titleIndex = TrigramIndex.readFrom(in);
+        PriceIndex priceIndex = PriceIndex.readFrom(in);
+        BitmapIndex brandIndex = BitmapIndex.readFrom(in, FilterType.BRAND, brandIds);
+        BitmapIndex categoryIndex = BitmapIndex.readFrom(in, FilterType.CATEGORY, categoryIds);
+        AutocompleteIndex autocompleteIndex = AutocompleteIndex.readFrom(in);
+        ProductCatalog catalog = new ProductCatalog(products, size, titleIndex, brandIndex, categoryIndex, priceIndex, autocompleteIndex);
+        int viewCount = in.getInt();
+
+        for (int i = 0; i < viewCount; i++) {
+            String key = BinaryIO.readString(in);
+            SortStrategy strategy = findStrategy(strategies, key);
+
+            if (strategy == null || catalog.getSortedView(strategy) != null || strategy.ordinalComparator(catalog) == null) {
+                int viewSize = in.getInt();
+                in.position(in.position() + viewSize * Integer.BYTES);
+                continue;
+            }
+
+            catalog.attachSortedView(strategy, SortedView.readFrom(in, strategy.ordinalComparator(catalog)));
+        }
+
+        for (SortStrategy strategy : strategies) {
+            catalog.addSortedView(strategy);
+        }
+
+        return catalog;
+    }
+
+    /**
+     * Writes the values of a dictionary in id order.
+     *
+     * @param dictionary the dictionary
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    private static void writeDictionary(StringDictionary dictionary, DataOutputStream out) throws IOException {
+        int size = dictionary.size();
+        out.writeInt(size);
+
+        for (int id = 0; id < size; id++) {
+            BinaryIO.writeString(out, dictionary.get(id));
+        }
+    }
+
+    /**
+     * Reads the values of a dictionary in id order.
+     *
+     * @param in the buffer to read from
+     * @return the values by stored id
+     */
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] values = new String[in.getInt()];
+
+        for (int id = 0; id < values.length; id++) {
+            values[id] = BinaryIO.readString(in);
+        }
+
+        return values;
+    }
+
+    /**
+     * Interns the stored values of a dictionary, once per value rather than once per product.
+     *
+     * @param values the stored dictionary values
+     * @param dictionary the dictionary of the running catalog
+     * @return the id in the dictionary of every stored id
+     */
+    private static int[] internDictionary(String[] values, StringDictionary dictionary) {
+        int[] ids = new int[values.length];
+
+        for (int id = 0; id < values.length; id++) {
+            ids[id] = dictionary.intern(values[id]);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Translates a stored dictionary code.
+     *
+     * @param ids the dictionary id of every stored code
+     * @param code the stored code, or -1 for no value
+     * @return the dictionary id, or -1
+     */
+    private static int decode(int[] ids, int code) {
+        return code < 0 ? -1 : ids[code];
+    }
+
+    /**
+     * Builds the key a view is stored under, made of the class and the description of its strategy,
+     * so that strategies of the same class sorting by different keys are told apart.
+     *
+     * @param strategy the strategy of the view
+     * @return the key
+     */
+    private static String strategyKey(SortStrategy strategy) {
+        return strategy.getClass().getName() + ":" + strategy;
+    }
+
+    /**
+     * Finds the strategy with the given key among the strategies to restore views for.
+     *
+     * @param strategies the strategies
+     * @param key the key stored with a view
+     * @return the strategy, or null if none has this key
+     */
+    private static SortStrategy findStrategy(SortStrategy[] strategies, String key) {
+        for (SortStrategy strategy : strategies) {
+            if (strategyKey(strategy).equals(key)) {
+                return strategy;
+            }
+        }
+
+        return null;
+    }
+}
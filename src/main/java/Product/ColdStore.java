@@ -0,0 +1,522 @@
+package Product;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Off-heap store for rarely read product fields, such as the description and the image.
+ * Records are appended to direct byte buffers outside the Java heap, deflated when that makes them smaller,
+ * and addressed by a long handle. Recently read records are kept decoded in a small LRU cache.
+ * Handles index a table of record locations, so records can be moved without changing their handles:
+ * once more than half of the bytes of a full segment belong to freed records, its live records are moved
+ * to the segment being filled and the segment is released. Freed handles and the slots of released segments
+ * are reused by later records.
+ * Records are compressed and decoded outside the lock with codecs borrowed from a small shared pool, which ends
+ * the codecs it has no room for so their native memory is released; only changes to the segments,
+ * the location table and the cache are synchronized, so one store can be shared by all products.
+ */
+public class ColdStore {
+    private static final int SEGMENT_SIZE = 1 << 20;
+    private static final int HEADER_SIZE = 13;
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    private static final long FREE = -1;
+    private static final int CODEC_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(CODEC_POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(CODEC_POOL_SIZE);
+    private static final ThreadLocal<byte[]> DEFLATE_BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int[] liveBytes = new int[4];
+    private int[] freeSegments = new int[4];
+    private int freeSegmentCount;
+    private int current = -1;
+    private final Map<Long, Record> cache;
+    private long[] locations = new long[64];
+    private int[] generations = new int[64];
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+    private int handleCount;
+    private int recordCount;
+    private long hits;
+    private long misses;
+
+    /**
+     * Fields of one stored record.
+     *
+     * @param description the description of the product
+     * @param image the image URL of the product
+     */
+    public record Record(String description, String image) {}
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param cacheCapacity the maximum number of decoded records kept in memory
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public ColdStore(int cacheCapacity) {
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        }
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Record> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Appends a record to the store. The record is encoded and compressed before the store is locked.
+     *
+     * @param description the description of the product, or null
+     * @param image the image URL of the product, or null
+     * @return the handle of the record
+     */
+    public long put(String description, String image) {
+        byte[] raw = encode(description, image);
+        byte[] buffer = deflateBuffer(raw.length);
+        int deflatedLength = deflate(raw, buffer);
+        boolean compressed = deflatedLength >= 0;
+        byte[] payload = compressed ? buffer : raw;
+        int length = compressed ? deflatedLength : raw.length;
+
+        return append(compressed ? DEFLATED : RAW, raw.length, ByteBuffer.wrap(payload, 0, length));
+    }
+
+    /**
+     * Reads a record, decoding it only when it is not in the cache.
+     * The stored bytes are copied under the lock and decompressed after it is released.
+     * The decoded record is cached only if the handle was not freed in the meantime; the generation of the handle
+     * tells whether it was freed and reused by another record, which its location alone cannot.
+     *
+     * @param handle the handle returned by {@link #put(String, String)}
+     * @return the record
+     * @throws IllegalArgumentException if the handle does not belong to a stored record
+     */
+    public Record get(long handle) {
+        byte format;
+        byte[] raw;
+        byte[] payload;
+        int generation;
+
+        synchronized (this) {
+            Record record = cache.get(handle);
+
+            if (record != null) {
+                hits++;
+                return record;
+            }
+
+            misses++;
+            ByteBuffer segment = recordAt(locationOf(handle));
+            generation = generations[(int) handle];
+            format = segment.get();
+            segment.getInt();
+            raw = new byte[segment.getInt()];
+            payload = new byte[segment.getInt()];
+            segment.get(payload);
+        }
+
+        if (format == DEFLATED) {
+            inflate(payload, raw);
+        } else {
+            raw = payload;
+        }
+
+        Record record = decode(raw);
+
+        synchronized (this) {
+            if (generations[(int) handle] == generation && locations[(int) handle] != FREE) {
+                cache.put(handle, record);
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * Writes a record as it is stored, still compressed, so it can be restored with {@link #readRecord(ByteBuffer)}
+     * without compressing it again.
+     *
+     * @param handle the handle of the record
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the handle does not belong to a stored record
+     */
+    void writeRecord(long handle, DataOutputStream out) throws IOException {
+        byte[] record;
+
+        synchronized (this) {
+            ByteBuffer segment = recordAt(locationOf(handle));
+            int length = HEADER_SIZE + segment.getInt(segment.position() + HEADER_SIZE - Integer.BYTES);
+            record = new byte[length];
+            segment.get(record);
+        }
+
+        out.writeByte(record[0]);
+        out.write(record, HEADER_SIZE - 2 * Integer.BYTES, record.length - HEADER_SIZE + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Appends a record written by {@link #writeRecord(long, DataOutputStream)}, copying its bytes without
+     * decompressing or compressing them.
+     *
+     * @param in the buffer to read from, positioned at the record
+     * @return the handle of the restored record
+     */
+    long readRecord(ByteBuffer in) {
+        byte format = in.get();
+        int rawLength = in.getInt();
+        int length = in.getInt();
+
+        ByteBuffer payload = in.slice(in.position(), length);
+        in.position(in.position() + length);
+        return append(format, rawLength, payload);
+    }
+
+    /**
+     * Frees a record so its space can be reclaimed and its handle reused.
+     * When the segment holding the record is mostly free, its remaining records are moved and the segment is released.
+     *
+     * @param handle the handle of the record
+     * @throws IllegalArgumentException if the handle does not belong to a stored record
+     */
+    public synchronized void free(long handle) {
+        long location = locationOf(handle);
+        int segmentIndex = (int) (location >>> 32);
+        ByteBuffer segment = recordAt(location);
+
+        segment.position(segment.position() + HEADER_SIZE - Integer.BYTES);
+        int length = HEADER_SIZE + segment.getInt();
+
+        locations[(int) handle] = FREE;
+        generations[(int) handle]++;
+        cache.remove(handle);
+        recordCount--;
+
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+
+        freeHandles[freeCount++] = (int) handle;
+        liveBytes[segmentIndex] -= length;
+
+        if (segmentIndex != current && liveBytes[segmentIndex] * 2 < segments.get(segmentIndex).position()) {
+            compact(segmentIndex);
+        }
+    }
+
+    /**
+     * Retrieves the number of records in the store.
+     *
+     * @return the number of records that were put and not freed
+     */
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * Retrieves the number of reads answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of reads that had to decode a record.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of off-heap bytes reserved by the store.
+     *
+     * @return the reserved size in bytes
+     */
+    public synchronized long getReservedBytes() {
+        long bytes = 0;
+
+        for (ByteBuffer segment : segments) {
+            if (segment != null) {
+                bytes += segment.capacity();
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Appends a stored record to the segment being filled under a free or new handle.
+     *
+     * @param format whether the payload is raw or deflated
+     * @param rawLength the length of the serialized record before compression
+     * @param payload the bytes to store, consumed up to its limit
+     * @return the handle of the record
+     */
+    private synchronized long append(byte format, int rawLength, ByteBuffer payload) {
+        int length = payload.remaining();
+        int handle = freeCount > 0 ? freeHandles[--freeCount] : newHandle();
+        int segmentIndex = segmentFor(HEADER_SIZE + length);
+        ByteBuffer segment = segments.get(segmentIndex);
+
+        locations[handle] = ((long) segmentIndex << 32) | segment.position();
+        segment.put(format);
+        segment.putInt(handle);
+        segment.putInt(rawLength);
+        segment.putInt(length);
+        segment.put(payload);
+        liveBytes[segmentIndex] += HEADER_SIZE + length;
+        recordCount++;
+        return handle;
+    }
+
+    /**
+     * Moves the live records of a segment to the segment being filled and releases it.
+     * Records are found by walking the segment; a record is live when its handle still points at it.
+     * The slot of the released segment is reused by the next segment allocated.
+     *
+     * @param segmentIndex the index of the segment to release
+     */
+    private void compact(int segmentIndex) {
+        ByteBuffer source = segments.get(segmentIndex);
+        int end = source.position();
+        int offset = 0;
+
+        segments.set(segmentIndex, null);
+        liveBytes[segmentIndex] = 0;
+
+        while (offset < end) {
+            int handle = source.getInt(offset + 1);
+            int length = HEADER_SIZE + source.getInt(offset + HEADER_SIZE - Integer.BYTES);
+
+            if (locations[handle] == (((long) segmentIndex << 32) | offset)) {
+                int targetIndex = segmentFor(length);
+                ByteBuffer target = segments.get(targetIndex);
+
+                locations[handle] = ((long) targetIndex << 32) | target.position();
+                target.put(target.position(), source, offset, length);
+                target.position(target.position() + length);
+                liveBytes[targetIndex] += length;
+            }
+
+            offset += length;
+        }
+
+        if (freeSegmentCount == freeSegments.length) {
+            freeSegments = Arrays.copyOf(freeSegments, freeSegmentCount * 2);
+        }
+
+        freeSegments[freeSegmentCount++] = segmentIndex;
+    }
+
+    /**
+     * Looks up the location of a stored record.
+     *
+     * @param handle the handle of the record
+     * @return the segment index in the high half and the offset in the low half
+     * @throws IllegalArgumentException if the handle does not belong to a stored record
+     */
+    private long locationOf(long handle) {
+        if (handle < 0 || handle >= handleCount || locations[(int) handle] == FREE) {
+            throw new IllegalArgumentException("No cold store record for handle " + handle + ".");
+        }
+
+        return locations[(int) handle];
+    }
+
+    /**
+     * Creates a view of the segment holding a record, positioned at the record.
+     *
+     * @param location the location of the record
+     * @return the positioned view
+     */
+    private ByteBuffer recordAt(long location) {
+        ByteBuffer segment = segments.get((int) (location >>> 32)).duplicate();
+        segment.position((int) location);
+        return segment;
+    }
+
+    /**
+     * Allocates a handle that has never been used.
+     *
+     * @return the new handle
+     */
+    private int newHandle() {
+        if (handleCount == locations.length) {
+            locations = Arrays.copyOf(locations, handleCount * 2);
+            generations = Arrays.copyOf(generations, handleCount * 2);
+        }
+
+        return handleCount++;
+    }
+
+    /**
+     * Finds a segment with room for a record, allocating a new one when the segment being filled is full.
+     * A new segment takes the slot of a released segment when there is one, so the segment list does not grow
+     * beyond the number of segments alive at the same time.
+     *
+     * @param length the length of the record in bytes
+     * @return the index of the segment, positioned at the end of its data
+     */
+    private int segmentFor(int length) {
+        if (current >= 0 && segments.get(current).remaining() >= length) {
+            return current;
+        }
+
+        ByteBuffer segment = ByteBuffer.allocateDirect(Math.max(SEGMENT_SIZE, length));
+
+        if (freeSegmentCount > 0) {
+            current = freeSegments[--freeSegmentCount];
+            segments.set(current, segment);
+        } else {
+            if (segments.size() == liveBytes.length) {
+                liveBytes = Arrays.copyOf(liveBytes, liveBytes.length * 2);
+            }
+
+            current = segments.size();
+            segments.add(segment);
+        }
+
+        return current;
+    }
+
+    /**
+     * Serializes the fields of a record, writing the length of every field before its UTF-8 bytes.
+     * A length of -1 stands for null.
+     *
+     * @param description the description
+     * @param image the image URL
+     * @return the serialized record
+     */
+    private static byte[] encode(String description, String image) {
+        byte[] first = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        byte[] second = image == null ? null : image.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + (first == null ? 0 : first.length) + (second == null ? 0 : second.length));
+
+        for (byte[] field : new byte[][]{first, second}) {
+            buffer.putInt(field == null ? -1 : field.length);
+
+            if (field != null) {
+                buffer.put(field);
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Deserializes the fields of a record.
+     *
+     * @param raw the serialized record
+     * @return the record
+     */
+    private static Record decode(byte[] raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        String[] fields = new String[2];
+
+        for (int i = 0; i < fields.length; i++) {
+            int length = buffer.getInt();
+
+            if (length >= 0) {
+                fields[i] = new String(raw, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+        }
+
+        return new Record(fields[0], fields[1]);
+    }
+
+    /**
+     * Provides the compression buffer of the current thread, growing it if needed.
+     *
+     * @param capacity the number of bytes the buffer must hold
+     * @return the buffer
+     */
+    private static byte[] deflateBuffer(int capacity) {
+        byte[] buffer = DEFLATE_BUFFER.get();
+
+        if (buffer.length < capacity) {
+            buffer = new byte[Math.max(capacity, buffer.length * 2)];
+            DEFLATE_BUFFER.set(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Compresses bytes with the deflate algorithm, using a deflater borrowed from the pool.
+     *
+     * @param raw the bytes to compress
+     * @param buffer the array receiving the compressed bytes, at least as long as the bytes to compress
+     * @return the compressed length, or -1 if compressing does not make the bytes smaller
+     */
+    private static int deflate(byte[] raw, byte[] buffer) {
+        Deflater deflater = DEFLATERS.poll();
+
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+
+            int length = deflater.deflate(buffer, 0, Math.max(0, raw.length - 1));
+            return deflater.finished() ? length : -1;
+        } finally {
+            deflater.reset();
+
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decompresses bytes compressed with {@link #deflate(byte[], byte[])}, using an inflater borrowed from the pool.
+     *
+     * @param payload the compressed bytes
+     * @param raw the array receiving the decompressed bytes, of the original length
+     * @throws IllegalStateException if the stored data is corrupted
+     */
+    private static void inflate(byte[] payload, byte[] raw) {
+        Inflater inflater = INFLATERS.poll();
+
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+
+        try {
+            inflater.setInput(payload);
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted cold store record.", e);
+        } finally {
+            inflater.reset();
+
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
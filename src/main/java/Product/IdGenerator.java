@@ -0,0 +1,13 @@
+package Product;
+
+/**
+ * Interface for generators of product ids.
+ */
+public interface IdGenerator {
+    /**
+     * Generates a new id, distinct from all ids generated before by this generator.
+     *
+     * @return the new id
+     */
+    long nextId();
+}
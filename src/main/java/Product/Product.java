@@ -1,18 +1,49 @@
 package Product;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a product.
+ * Brands and categories are interned into the catalog-wide {@link #BRANDS} and {@link #CATEGORIES} dictionaries
+ * when the product is created, and only their int codes are stored in the product.
+ * The description and the image are only needed for the detail view, so they are kept off-heap in {@link #COLD_FIELDS}
+ * and loaded on demand, leaving the object with just the fields used by listings and filters.
+ * Their record is freed once the product is no longer reachable, so removed, replaced and reloaded products
+ * do not keep their cold fields alive.
  */
 public class Product {
-    private String id;
+    private static final int COLD_CACHE_CAPACITY = 256;
+
+    /**
+     * Dictionary of the brands of all products.
+     */
+    public static final StringDictionary BRANDS = new StringDictionary();
+
+    /**
+     * Dictionary of the categories of all products.
+     */
+    public static final StringDictionary CATEGORIES = new StringDictionary();
+
+    /**
+     * Store of the descriptions and images of all products.
+     */
+    public static final ColdStore COLD_FIELDS = new ColdStore(COLD_CACHE_CAPACITY);
+
+    private static final Cleaner COLD_FIELDS_CLEANER = Cleaner.create();
+
+    private long id;
     private String title;
+    private final String normalizedTitle;
+    private final byte[] titleSortKey;
     private float price;
-    private String description;
-    private String brand;
-    private String category;
+    private final long coldHandle;
+    private int brandId;
+    private int categoryId;
     private int quantity;
-    private String image;
+    private List<ProductObserver> observers;
 
     /**
      * Constructs a product with the specified attributes.
@@ -26,15 +57,58 @@ public class Product {
      * @param quantity the quantity of the product
      * @param image the image URL of the product
      */
-    public Product(String id, String title, float price, String description, String brand, String category, int quantity, String image){
+    public Product(long id, String title, float price, String description, String brand, String category, int quantity, String image){
+        this.id = id;
+        this.title = title;
+        this.normalizedTitle = TextNormalizer.normalize(title);
+        this.titleSortKey = TitleCollation.sortKey(title);
+        this.price = price;
+        long handle = COLD_FIELDS.put(description, image);
+        this.coldHandle = handle;
+        this.brandId = brand == null ? -1 : BRANDS.intern(brand);
+        this.categoryId = category == null ? -1 : CATEGORIES.intern(category);
+        this.quantity = quantity;
+        this.observers = new ArrayList<>();
+        // The release action only captures the handle, so it does not keep the product reachable.
+        COLD_FIELDS_CLEANER.register(this, () -> COLD_FIELDS.free(handle));
+    }
+
+    /**
+     * Constructs a product from fields restored by a {@link CatalogSnapshot}, without normalizing or collating
+     * the title, interning the brand and category or compressing the cold fields again.
+     *
+     * @param id the ID of the product
+     * @param title the title of the product
+     * @param normalizedTitle the normalized title
+     * @param titleSortKey the collation key of the title
+     * @param price the price of the product
+     * @param coldHandle the handle of the restored description and image in {@link #COLD_FIELDS}
+     * @param brandId the code of the brand, or -1
+     * @param categoryId the code of the category, or -1
+     * @param quantity the quantity of the product
+     */
+    Product(long id, String title, String normalizedTitle, byte[] titleSortKey, float price, long coldHandle,
+            int brandId, int categoryId, int quantity) {
         this.id = id;
         this.title = title;
+        this.normalizedTitle = normalizedTitle;
+        this.titleSortKey = titleSortKey;
         this.price = price;
-        this.description = description;
-        this.brand = brand;
-        this.category = category;
+        this.coldHandle = coldHandle;
+        this.brandId = brandId;
+        this.categoryId = categoryId;
         this.quantity = quantity;
-        this.image = image;
+        this.observers = new ArrayList<>();
+        COLD_FIELDS_CLEANER.register(this, () -> COLD_FIELDS.free(coldHandle));
+    }
+
+    /**
+     * Retrieves the ID of the product.
+     *
+     * @return the ID of the product
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -46,6 +120,27 @@ public class Product {
         return title;
     }
 
+    /**
+     * Retrieves the title of the product in the form used for searching, computed once when the product is built.
+     *
+     * @return the normalized title
+     * @see TextNormalizer#normalize(String)
+     */
+    public String getNormalizedTitle() {
+        return normalizedTitle;
+    }
+
+    /**
+     * Retrieves the collation key of the title, computed once when the product is built.
+     * The key is shared and must not be modified.
+     *
+     * @return the collation key of the title
+     * @see TitleCollation#sortKey(String)
+     */
+    public byte[] getTitleSortKey() {
+        return titleSortKey;
+    }
+
     /**
      * Retrieves the price of the product.
      *
@@ -60,14 +155,28 @@ public class Product {
      *
      * @return the brand of the product
      */
-    public String getBrand() { return  brand; }
+    public String getBrand() { return brandId < 0 ? null : BRANDS.get(brandId); }
+
+    /**
+     * Retrieves the code of the brand in the {@link #BRANDS} dictionary.
+     *
+     * @return the brand code, or -1 if the product has no brand
+     */
+    public int getBrandId() { return brandId; }
 
     /**
      * Retrieves the category of the product.
      *
      * @return the category of the product
      */
-    public String getCategory(){ return category; }
+    public String getCategory(){ return categoryId < 0 ? null : CATEGORIES.get(categoryId); }
+
+    /**
+     * Retrieves the code of the category in the {@link #CATEGORIES} dictionary.
+     *
+     * @return the category code, or -1 if the product has no category
+     */
+    public int getCategoryId() { return categoryId; }
 
     /**
      * Retrieves the quantity of the product.
@@ -76,6 +185,16 @@ public class Product {
      */
     public int getQauntity(){ return quantity; }
 
+    /**
+     * Changes the price of the product.
+     *
+     * @param price the new price of the product
+     */
+    public void changePrice(float price){
+        this.price = price;
+        notifyObservers();
+    }
+
     /**
      * Changes the quantity of the product.
      *
@@ -83,26 +202,99 @@ public class Product {
      */
     public void changeQuantity(int quantity){
         this.quantity = quantity;
+        notifyObservers();
+    }
+
+    /**
+     * Registers an observer to be notified of product changes.
+     *
+     * @param observer the observer to register
+     */
+    public void registerObserver(ProductObserver observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * Removes a registered observer so that it will no longer be notified of product changes.
+     *
+     * @param observer the observer to remove
+     */
+    public void removeObserver(ProductObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Notifies all registered observers of a product change.
+     */
+    public void notifyObservers() {
+        for (ProductObserver observer : observers) {
+            observer.update(this);
+        }
+    }
+
+
+    /**
+     * Retrieves the handle of the description and image in {@link #COLD_FIELDS}.
+     *
+     * @return the cold store handle
+     */
+    long getColdHandle() {
+        return coldHandle;
+    }
+
+    /**
+     * Retrieves the description of the product, loading it from the cold store.
+     *
+     * @return the description of the product
+     */
+    public String getDescription() {
+        return coldFields().description();
     }
 
+    /**
+     * Retrieves the image URL of the product, loading it from the cold store.
+     *
+     * @return the image URL of the product
+     */
+    public String getImage() {
+        return coldFields().image();
+    }
 
     /**
      * Retrieves detailed information about the product.
+     * The description and the image are loaded from the cold store.
      *
      * @return detailed information about the product
      */
     public String getInfo() {
+        ColdStore.Record cold = coldFields();
+
         return "Product {" +
                 "title='" + title + '\'' +
                 ", price=" + price +
-                ", description='" + description + '\'' +
-                ", image='" + image + '\'' +
-                ", brand='" + brand + '\'' +
-                ", category='" + category + '\'' +
+                ", description='" + cold.description() + '\'' +
+                ", image='" + cold.image() + '\'' +
+                ", brand='" + getBrand() + '\'' +
+                ", category='" + getCategory() + '\'' +
                 ", quantity=" + quantity +
                 '}';
     }
 
+    /**
+     * Loads the description and the image from the cold store.
+     * The product is kept reachable until the record has been read, so its cleaner cannot free the handle,
+     * and let another product reuse it, while the read is in progress.
+     *
+     * @return the cold fields of the product
+     */
+    private ColdStore.Record coldFields() {
+        try {
+            return COLD_FIELDS.get(coldHandle);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
     /**
      * Retrieves a string representation of the product.
      *
@@ -1,13 +1,14 @@
 package Product;
 
-import java.util.UUID;
-
-
 /**
  * Implementation of the Builder interface for building Product objects.
+ * Ids are taken from an {@link IdGenerator}, by default a Snowflake generator shared by all builders.
  */
 public class ProductBuilder implements Builder {
-    private String id;
+    private static final IdGenerator DEFAULT_ID_GENERATOR = new SnowflakeIdGenerator(0);
+
+    private final IdGenerator idGenerator;
+    private long id;
     private String title;
     private float price;
     private String description;
@@ -16,6 +17,22 @@ public class ProductBuilder implements Builder {
     private int quantity;
     private String image;
 
+    /**
+     * Constructs a builder that takes ids from the default generator.
+     */
+    public ProductBuilder() {
+        this(DEFAULT_ID_GENERATOR);
+    }
+
+    /**
+     * Constructs a builder that takes ids from the given generator.
+     *
+     * @param idGenerator the generator of product ids
+     */
+    public ProductBuilder(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
     /**
      * Sets the title of the product being built.
      *
@@ -134,7 +151,7 @@ public class ProductBuilder implements Builder {
      */
     @Override
     public Product build() {
-        this.id = UUID.randomUUID().toString();
+        this.id = idGenerator.nextId();
 
         return new Product(id, title, price, description, brand, category, quantity, image);
     }
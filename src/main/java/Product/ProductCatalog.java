@@ -0,0 +1,887 @@
+package Product;
+
+import Filter.FilterType;
+import Index.AutocompleteIndex;
+import Index.BitmapIndex;
+import Index.CatalogIndex;
+import Index.LongIntHashMap;
+import Index.PriceIndex;
+import Index.SortedView;
+import Index.TrigramIndex;
+import Sort.SortStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Columnar store of products.
+ * Every product gets an ordinal, and its hot fields are kept in primitive arrays indexed by that ordinal,
+ * so scans over prices, quantities, brands and categories do not have to touch the product objects.
+ * Brands and categories are stored as their codes in the {@link Product#BRANDS} and {@link Product#CATEGORIES} dictionaries.
+ * Products are identified by their ids, which are mapped to ordinals by a hash index.
+ * Removed products leave a tombstone until the catalog is compacted, so ordinals stay stable between compactions.
+ * The price of a tombstone is NaN, so it never falls within a price range.
+ * Secondary indexes keyed by ordinal are maintained on every change and rebuilt after a compaction.
+ * The columns are split into segments of {@value #SEGMENT_SIZE} ordinals, and {@link #copy()} shares the segments and
+ * the indexes with the copy instead of copying them. Whatever is shared is marked as such and copied by the first
+ * catalog that changes it, so a change to a copy only copies the segment and the index blocks it touches, and the
+ * catalog it was copied from is never changed.
+ * A catalog is not thread-safe; concurrent readers should be given a {@link #copy()} that is no longer changed.
+ */
+public class ProductCatalog implements ProductObserver {
+    /**
+     * Number of ordinals per column segment.
+     */
+    public static final int SEGMENT_SIZE = 4096;
+
+    private static final int SEGMENT_SHIFT = Integer.numberOfTrailingZeros(SEGMENT_SIZE);
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_COMPACTION_SIZE = 64;
+    private static final int MAX_INCREMENTAL_BATCH_SHARE = 16;
+
+    private Segment[] segments;
+    private int size;
+    private int liveCount;
+    private final LongIntHashMap ordinals;
+    private final TrigramIndex titleIndex;
+    private final BitmapIndex brandIndex;
+    private final BitmapIndex categoryIndex;
+    private final PriceIndex priceIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final Map<SortStrategy, SortedView> sortedViews;
+    private final List<CatalogIndex> indexes;
+    private final boolean observing;
+
+    /**
+     * Constructs an empty catalog that observes its products and refreshes their columns when they change.
+     */
+    public ProductCatalog() {
+        this(true);
+    }
+
+    /**
+     * Constructs an empty catalog.
+     *
+     * @param observeProducts whether the catalog should observe its products and refresh their columns when they change;
+     *                        otherwise the owner of the catalog has to call {@link #update(Product)} itself
+     */
+    public ProductCatalog(boolean observeProducts) {
+        this.observing = observeProducts;
+        this.segments = new Segment[1];
+        this.ordinals = new LongIntHashMap();
+        this.titleIndex = new TrigramIndex();
+        this.sortedViews = new LinkedHashMap<>();
+        this.indexes = new ArrayList<>();
+        this.brandIndex = new BitmapIndex(FilterType.BRAND);
+        this.categoryIndex = new BitmapIndex(FilterType.CATEGORY);
+        this.indexes.add(titleIndex);
+        this.indexes.add(brandIndex);
+        this.priceIndex = new PriceIndex();
+        this.indexes.add(categoryIndex);
+        this.indexes.add(priceIndex);
+        this.autocompleteIndex = new AutocompleteIndex();
+        this.indexes.add(autocompleteIndex);
+    }
+
+    /**
+     * Constructs a catalog from restored products and indexes, as read from a {@link CatalogSnapshot}.
+     * The restored catalog does not observe its products, and no index is rebuilt.
+     *
+     * @param products the products by ordinal, with null for tombstones
+     * @param size the number of ordinals in use
+     * @param titleIndex the restored title index
+     * @param brandIndex the restored brand bitmaps
+     * @param categoryIndex the restored category bitmaps
+     * @param priceIndex the restored price index
+     * @param autocompleteIndex the restored autocomplete trie
+     */
+    ProductCatalog(Product[] products, int size, TrigramIndex titleIndex, BitmapIndex brandIndex, BitmapIndex categoryIndex,
+                   PriceIndex priceIndex, AutocompleteIndex autocompleteIndex) {
+        this.observing = false;
+        this.segments = new Segment[Math.max((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT, 1)];
+        this.size = size;
+        this.ordinals = new LongIntHashMap();
+        this.titleIndex = titleIndex;
+        this.brandIndex = brandIndex;
+        this.categoryIndex = categoryIndex;
+        this.priceIndex = priceIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.sortedViews = new LinkedHashMap<>();
+        this.indexes = new ArrayList<>(List.of(titleIndex, brandIndex, categoryIndex, priceIndex, autocompleteIndex));
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Product product = products[ordinal];
+
+            if (product == null) {
+                writable(ordinal).prices[ordinal & SEGMENT_MASK] = Float.NaN;
+                continue;
+            }
+
+            writable(ordinal).products[ordinal & SEGMENT_MASK] = product;
+            write(ordinal, product);
+            ordinals.put(product.getId(), ordinal);
+            liveCount++;
+        }
+    }
+
+    /**
+     * Constructs a copy of a catalog, including all of its indexes and sorted views.
+     * Column segments and index blocks are shared with the source and marked as shared, so each catalog copies them
+     * before changing them.
+     *
+     * @param source the catalog to copy
+     */
+    private ProductCatalog(ProductCatalog source) {
+        this.observing = false;
+        this.segments = source.segments.clone();
+        this.size = source.size;
+        this.liveCount = source.liveCount;
+        this.ordinals = source.ordinals.copy();
+        this.titleIndex = source.titleIndex.copy();
+        this.brandIndex = source.brandIndex.copy();
+        this.categoryIndex = source.categoryIndex.copy();
+        this.priceIndex = source.priceIndex.copy();
+        this.autocompleteIndex = source.autocompleteIndex.copy();
+        this.sortedViews = new LinkedHashMap<>();
+        this.indexes = new ArrayList<>(List.of(titleIndex, brandIndex, categoryIndex, priceIndex, autocompleteIndex));
+
+        for (Segment segment : source.segments) {
+            if (segment != null) {
+                segment.shared = true;
+            }
+        }
+
+        for (Map.Entry<SortStrategy, SortedView> entry : source.sortedViews.entrySet()) {
+            SortedView view = entry.getValue().copy(entry.getKey().ordinalComparator(this));
+            sortedViews.put(entry.getKey(), view);
+            indexes.add(view);
+        }
+    }
+
+    /**
+     * Creates a copy of the catalog that can be changed without affecting this one.
+     * The copy does not observe its products, so its owner has to pass product changes on with {@link #update(Product)}.
+     * Copying only copies the tables of segments and blocks; the data itself is copied piece by piece as either
+     * catalog changes it.
+     *
+     * @return the copy
+     */
+    public ProductCatalog copy() {
+        return new ProductCatalog(this);
+    }
+
+    /**
+     * Adds a product to the catalog.
+     *
+     * @param product the product to add
+     * @return the ordinal assigned to the product, or the existing ordinal if a product with the same id is already in the catalog
+     */
+    public int add(Product product) {
+        int existing = ordinals.get(product.getId(), -1);
+
+        if (existing >= 0) {
+            return existing;
+        }
+
+        int ordinal = size++;
+        writable(ordinal).products[ordinal & SEGMENT_MASK] = product;
+        write(ordinal, product);
+        ordinals.put(product.getId(), ordinal);
+        liveCount++;
+
+        for (CatalogIndex index : indexes) {
+            index.add(this, ordinal);
+        }
+
+        if (observing) {
+            product.registerObserver(this);
+        }
+
+        return ordinal;
+    }
+
+    /**
+     * Adds several products to the catalog, writing all columns first and then rebuilding every index once,
+     * which is much cheaper than maintaining the indexes product by product.
+     * A batch that is small next to the catalog is indexed product by product instead, so it does not pay for
+     * rebuilding the indexes of the whole catalog.
+     *
+     * @param products the products to add; products whose id is already in the catalog are skipped
+     * @return the number of products added
+     */
+    public int addAll(Collection<Product> products) {
+        int first = size;
+        int added = 0;
+
+        for (Product product : products) {
+            if (ordinals.containsKey(product.getId())) {
+                continue;
+            }
+
+            int ordinal = size++;
+            writable(ordinal).products[ordinal & SEGMENT_MASK] = product;
+            write(ordinal, product);
+            ordinals.put(product.getId(), ordinal);
+            liveCount++;
+            added++;
+
+            if (observing) {
+                product.registerObserver(this);
+            }
+        }
+
+        if (added > 0 && added * MAX_INCREMENTAL_BATCH_SHARE < first) {
+            for (int ordinal = first; ordinal < size; ordinal++) {
+                for (CatalogIndex index : indexes) {
+                    index.add(this, ordinal);
+                }
+            }
+        } else if (added > 0) {
+            for (CatalogIndex index : indexes) {
+                index.rebuild(this);
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Removes a product from the catalog by its id.
+     *
+     * @param product the product to remove
+     * @return true if a product with the same id was in the catalog, false otherwise
+     */
+    public boolean remove(Product product) {
+        boolean removed = removeById(product.getId());
+
+        if (removed) {
+            compactIfSparse();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes several products from the catalog, compacting at most once at the end.
+     *
+     * @param products the products to remove
+     * @return the number of products whose ids were in the catalog
+     */
+    public int removeAll(Collection<Product> products) {
+        int removed = 0;
+
+        for (Product product : products) {
+            if (removeById(product.getId())) {
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            compactIfSparse();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Refreshes the columns of a product after it was changed.
+     * Indexes are only updated when a field other than the quantity changed; a quantity change only refreshes
+     * the stock ranking of the autocomplete index.
+     *
+     * @param product the product that was changed
+     */
+    @Override
+    public void update(Product product) {
+        int ordinal = ordinals.get(product.getId(), -1);
+
+        if (ordinal < 0 || getProduct(ordinal) != product) {
+            return;
+        }
+
+        if (hasSameIndexedFields(ordinal, product)) {
+            writable(ordinal).quantities[ordinal & SEGMENT_MASK] = product.getQauntity();
+            autocompleteIndex.refresh(this, ordinal);
+            return;
+        }
+
+        for (CatalogIndex index : indexes) {
+            index.remove(this, ordinal);
+        }
+
+        write(ordinal, product);
+
+        for (CatalogIndex index : indexes) {
+            index.add(this, ordinal);
+        }
+    }
+
+    /**
+     * Retrieves the number of ordinals in use, including removed ones.
+     * Loops over the catalog should go up to this value and skip ordinals that are not live.
+     *
+     * @return the number of ordinals in use
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of products in the catalog.
+     *
+     * @return the number of products in the catalog
+     */
+    public int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * Checks whether the ordinal holds a product that has not been removed.
+     *
+     * @param ordinal the ordinal to check
+     * @return true if the ordinal holds a product, false otherwise
+     */
+    public boolean isLive(int ordinal) {
+        return getProduct(ordinal) != null;
+    }
+
+    /**
+     * Retrieves the ordinal of a product.
+     *
+     * @param product the product to look up
+     * @return the ordinal of the product, or -1 if the product is not in the catalog
+     */
+    public int ordinalOf(Product product) {
+        int ordinal = ordinalOf(product.getId());
+
+        return ordinal >= 0 && getProduct(ordinal) == product ? ordinal : -1;
+    }
+
+    /**
+     * Retrieves the ordinal of the product with the given id.
+     *
+     * @param id the id of the product
+     * @return the ordinal of the product, or -1 if no product with this id is in the catalog
+     */
+    public int ordinalOf(long id) {
+        return ordinals.get(id, -1);
+    }
+
+    /**
+     * Finds the product with the given id.
+     *
+     * @param id the id of the product
+     * @return the product, or null if no product with this id is in the catalog
+     */
+    public Product findById(long id) {
+        int ordinal = ordinalOf(id);
+
+        return ordinal < 0 ? null : getProduct(ordinal);
+    }
+
+    /**
+     * Retrieves the product stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the product, or null if it was removed
+     */
+    public Product getProduct(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].products[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the title stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the title of the product
+     */
+    public String getTitle(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].titles[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the normalized title stored at the ordinal, as used by title search.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the normalized title of the product
+     * @see TextNormalizer#normalize(String)
+     */
+    public String getNormalizedTitle(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].normalizedTitles[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the collation key of the title stored at the ordinal, as used by locale-aware title sorting.
+     * The key is shared with the product and must not be modified.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the collation key of the title
+     * @see TitleCollation#sortKey(String)
+     */
+    public byte[] getTitleSortKey(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].titleSortKeys[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the price stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the price of the product
+     */
+    public float getPrice(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].prices[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the prices of one column segment, for scans that process many prices at once.
+     * Segment i holds the prices of ordinals i * {@link #SEGMENT_SIZE} and up. Only the entries of ordinals below
+     * {@link #getSize()} are in use, and the array must not be modified.
+     *
+     * @param segment the index of the segment
+     * @return the prices of the segment
+     */
+    public float[] getPriceSegment(int segment) {
+        return segments[segment].prices;
+    }
+
+    /**
+     * Retrieves the quantity stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the quantity of the product
+     */
+    public int getQuantity(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].quantities[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the dictionary id of the brand stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the brand id of the product
+     */
+    public int getBrandId(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].brandIds[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the dictionary id of the category stored at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @return the category id of the product
+     */
+    public int getCategoryId(int ordinal) {
+        return segments[ordinal >>> SEGMENT_SHIFT].categoryIds[ordinal & SEGMENT_MASK];
+    }
+
+    /**
+     * Retrieves the trigram index over product titles.
+     *
+     * @return the title index
+     */
+    public TrigramIndex getTitleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * Retrieves the autocomplete index over the words of product titles.
+     *
+     * @return the autocomplete index
+     */
+    public AutocompleteIndex getAutocompleteIndex() {
+        return autocompleteIndex;
+    }
+
+    /**
+     * Retrieves the bitmap index over brands.
+     *
+     * @return the brand index
+     */
+    public BitmapIndex getBrandIndex() {
+        return brandIndex;
+    }
+
+    /**
+     * Retrieves the bitmap index over categories.
+     *
+     * @return the category index
+     */
+    public BitmapIndex getCategoryIndex() {
+        return categoryIndex;
+    }
+
+    /**
+     * Retrieves the index of ordinals sorted by price.
+     *
+     * @return the price index
+     */
+    public PriceIndex getPriceIndex() {
+        return priceIndex;
+    }
+
+    /**
+     * Starts keeping a pre-sorted view of the catalog for a sort strategy.
+     *
+     * @param strategy the sort strategy to keep a view for
+     * @return the view, or null if the strategy cannot provide an ordinal comparator
+     */
+    public SortedView addSortedView(SortStrategy strategy) {
+        SortedView view = sortedViews.get(strategy);
+
+        if (view != null) {
+            return view;
+        }
+
+        IntBinaryOperator comparator = strategy.ordinalComparator(this);
+
+        if (comparator == null) {
+            return null;
+        }
+
+        view = new SortedView(comparator);
+        view.rebuild(this);
+        sortedViews.put(strategy, view);
+        indexes.add(view);
+        return view;
+    }
+
+    /**
+     * Attaches a restored pre-sorted view for a sort strategy.
+     *
+     * @param strategy the sort strategy of the view
+     * @param view the view, ordered by the comparator the strategy gives for this catalog
+     */
+    void attachSortedView(SortStrategy strategy, SortedView view) {
+        sortedViews.put(strategy, view);
+        indexes.add(view);
+    }
+
+    /**
+     * Retrieves all pre-sorted views kept by the catalog.
+     *
+     * @return the views by sort strategy
+     */
+    Map<SortStrategy, SortedView> getSortedViews() {
+        return sortedViews;
+    }
+
+    /**
+     * Retrieves the pre-sorted view kept for a sort strategy.
+     *
+     * @param strategy the sort strategy
+     * @return the view, or null if no view is kept for the strategy
+     */
+    public SortedView getSortedView(SortStrategy strategy) {
+        return sortedViews.get(strategy);
+    }
+
+    /**
+     * Retrieves the dictionary of brands.
+     *
+     * @return the dictionary of brands
+     */
+    public StringDictionary getBrands() {
+        return Product.BRANDS;
+    }
+
+    /**
+     * Retrieves the dictionary of categories.
+     *
+     * @return the dictionary of categories
+     */
+    public StringDictionary getCategories() {
+        return Product.CATEGORIES;
+    }
+
+    /**
+     * Retrieves the ordinals of all products in the catalog.
+     *
+     * @return the ordinals in ascending order
+     */
+    public int[] getOrdinals() {
+        int[] result = new int[liveCount];
+        int count = 0;
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (isLive(ordinal)) {
+                result[count++] = ordinal;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves all products in the catalog in ordinal order.
+     *
+     * @return the list of products
+     */
+    public List<Product> getProducts() {
+        List<Product> result = new ArrayList<>(liveCount);
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (isLive(ordinal)) {
+                result.add(getProduct(ordinal));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the products stored at the given ordinals, in the same order.
+     *
+     * @param ordinals the ordinals of the products
+     * @return the list of products
+     */
+    public List<Product> getProducts(int[] ordinals) {
+        List<Product> result = new ArrayList<>(ordinals.length);
+
+        for (int ordinal : ordinals) {
+            result.add(getProduct(ordinal));
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears the product with the given id from the columns and indexes, leaving a tombstone.
+     *
+     * @param id the id of the product
+     * @return true if a product with this id was in the catalog, false otherwise
+     */
+    private boolean removeById(long id) {
+        int ordinal = ordinals.remove(id, -1);
+
+        if (ordinal < 0) {
+            return false;
+        }
+
+        for (CatalogIndex index : indexes) {
+            index.remove(this, ordinal);
+        }
+
+        if (observing) {
+            getProduct(ordinal).removeObserver(this);
+        }
+
+        Segment segment = writable(ordinal);
+        int offset = ordinal & SEGMENT_MASK;
+
+        segment.products[offset] = null;
+        segment.titles[offset] = null;
+        segment.normalizedTitles[offset] = null;
+        segment.titleSortKeys[offset] = null;
+        segment.prices[offset] = Float.NaN;
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * Compacts the catalog once more than half of its ordinals are tombstones.
+     */
+    private void compactIfSparse() {
+        if (size >= MIN_COMPACTION_SIZE && liveCount < size / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the fields of a product into the columns at the ordinal.
+     *
+     * @param ordinal the ordinal of the product
+     * @param product the product to write
+     */
+    private void write(int ordinal, Product product) {
+        Segment segment = writable(ordinal);
+        int offset = ordinal & SEGMENT_MASK;
+
+        segment.titles[offset] = product.getTitle();
+        segment.normalizedTitles[offset] = product.getNormalizedTitle();
+        segment.titleSortKeys[offset] = product.getTitleSortKey();
+        segment.prices[offset] = product.getPrice();
+        segment.quantities[offset] = product.getQauntity();
+        segment.brandIds[offset] = product.getBrandId();
+        segment.categoryIds[offset] = product.getCategoryId();
+    }
+
+    /**
+     * Checks whether the columns at the ordinal already hold every field of the product except the quantity.
+     *
+     * @param ordinal the ordinal of the product
+     * @param product the product to compare with
+     * @return true if only the quantity may differ, false otherwise
+     */
+    private boolean hasSameIndexedFields(int ordinal, Product product) {
+        return getTitle(ordinal).equals(product.getTitle())
+                && Float.compare(getPrice(ordinal), product.getPrice()) == 0
+                && getBrandId(ordinal) == product.getBrandId()
+                && getCategoryId(ordinal) == product.getCategoryId();
+    }
+
+    /**
+     * Retrieves the segment holding an ordinal for a change. A segment shared with another catalog is copied first,
+     * and a segment too small for the ordinal is grown, so the returned segment is owned by this catalog.
+     *
+     * @param ordinal the ordinal to change
+     * @return the segment owned by this catalog
+     */
+    private Segment writable(int ordinal) {
+        int index = ordinal >>> SEGMENT_SHIFT;
+        int offset = ordinal & SEGMENT_MASK;
+
+        if (index >= segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(index + 1, segments.length * 2));
+        }
+
+        Segment segment = segments[index];
+
+        if (segment == null) {
+            segment = new Segment(capacityFor(offset, 0));
+            segments[index] = segment;
+        } else if (segment.shared || offset >= segment.capacity()) {
+            segment = segment.copy(capacityFor(offset, segment.capacity()));
+            segments[index] = segment;
+        }
+
+        return segment;
+    }
+
+    /**
+     * Computes the capacity a segment needs to hold an offset, doubling the current capacity as often as needed.
+     *
+     * @param offset the offset within the segment
+     * @param capacity the current capacity of the segment, or 0 for a new segment
+     * @return the new capacity, at most {@link #SEGMENT_SIZE}
+     */
+    private static int capacityFor(int offset, int capacity) {
+        int grown = Math.max(capacity, INITIAL_CAPACITY);
+
+        while (grown <= offset) {
+            grown *= 2;
+        }
+
+        return Math.min(grown, SEGMENT_SIZE);
+    }
+
+    /**
+     * Moves live products down over the tombstones, keeping their relative order, and reassigns ordinals.
+     * The live products are written into new segments, so segments shared with other catalogs stay untouched.
+     */
+    private void compact() {
+        Segment[] old = segments;
+        int target = 0;
+
+        segments = new Segment[old.length];
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Segment from = old[ordinal >>> SEGMENT_SHIFT];
+            int offset = ordinal & SEGMENT_MASK;
+
+            if (from.products[offset] == null) {
+                continue;
+            }
+
+            Segment to = writable(target);
+            int targetOffset = target & SEGMENT_MASK;
+
+            to.products[targetOffset] = from.products[offset];
+            to.titles[targetOffset] = from.titles[offset];
+            to.normalizedTitles[targetOffset] = from.normalizedTitles[offset];
+            to.titleSortKeys[targetOffset] = from.titleSortKeys[offset];
+            to.prices[targetOffset] = from.prices[offset];
+            to.quantities[targetOffset] = from.quantities[offset];
+            to.brandIds[targetOffset] = from.brandIds[offset];
+            to.categoryIds[targetOffset] = from.categoryIds[offset];
+
+            if (target != ordinal) {
+                ordinals.put(from.products[offset].getId(), target);
+            }
+
+            target++;
+        }
+
+        size = target;
+
+        for (CatalogIndex index : indexes) {
+            index.rebuild(this);
+        }
+    }
+
+    /**
+     * Columns of {@value #SEGMENT_SIZE} consecutive ordinals, or fewer while the last segment is still growing.
+     * Only a catalog that does not share the segment changes it.
+     */
+    private static final class Segment {
+        private final Product[] products;
+        private final String[] titles;
+        private final String[] normalizedTitles;
+        private final byte[][] titleSortKeys;
+        private final float[] prices;
+        private final int[] quantities;
+        private final int[] brandIds;
+        private final int[] categoryIds;
+        private boolean shared;
+
+        /**
+         * Constructs an empty segment.
+         *
+         * @param capacity the number of ordinals the segment can hold
+         */
+        Segment(int capacity) {
+            this(new Product[capacity], new String[capacity], new String[capacity], new byte[capacity][],
+                    new float[capacity], new int[capacity], new int[capacity], new int[capacity]);
+        }
+
+        /**
+         * Constructs a segment over its columns.
+         *
+         * @param products the product column
+         * @param titles the title column
+         * @param normalizedTitles the normalized title column
+         * @param titleSortKeys the title collation key column
+         * @param prices the price column
+         * @param quantities the quantity column
+         * @param brandIds the brand id column
+         * @param categoryIds the category id column
+         */
+        private Segment(Product[] products, String[] titles, String[] normalizedTitles, byte[][] titleSortKeys,
+                        float[] prices, int[] quantities, int[] brandIds, int[] categoryIds) {
+            this.products = products;
+            this.titles = titles;
+            this.normalizedTitles = normalizedTitles;
+            this.titleSortKeys = titleSortKeys;
+            this.prices = prices;
+            this.quantities = quantities;
+            this.brandIds = brandIds;
+            this.categoryIds = categoryIds;
+        }
+
+        /**
+         * Retrieves the number of ordinals the segment can hold.
+         *
+         * @return the capacity of the segment
+         */
+        int capacity() {
+            return products.length;
+        }
+
+        /**
+         * Copies the segment.
+         *
+         * @param capacity the capacity of the copy, at least the capacity of this segment
+         * @return the copy, not shared with any catalog
+         */
+        Segment copy(int capacity) {
+            return new Segment(Arrays.copyOf(products, capacity), Arrays.copyOf(titles, capacity),
+                    Arrays.copyOf(normalizedTitles, capacity), Arrays.copyOf(titleSortKeys, capacity),
+                    Arrays.copyOf(prices, capacity), Arrays.copyOf(quantities, capacity),
+                    Arrays.copyOf(brandIds, capacity), Arrays.copyOf(categoryIds, capacity));
+        }
+    }
+}
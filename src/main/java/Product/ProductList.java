@@ -0,0 +1,221 @@
+package Product;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of products split into blocks of at most {@value #BLOCK_SIZE} products, used for the snapshots of
+ * the list mode of {@link ProductsService}. Adding or removing a product creates a new list that shares every block
+ * with this one except the block it changes, so publishing a single change costs one block and the table of blocks
+ * instead of a copy of the whole list.
+ */
+final class ProductList extends AbstractList<Product> implements RandomAccess {
+    /**
+     * The empty list.
+     */
+    static final ProductList EMPTY = new ProductList(new Product[0][], new int[]{0});
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+
+    private final Product[][] blocks;
+    private final int[] starts;
+
+    /**
+     * Constructs a list over its blocks.
+     *
+     * @param blocks the blocks, none of them empty
+     * @param starts the position of the first product of every block, followed by the size of the list
+     */
+    private ProductList(Product[][] blocks, int[] starts) {
+        this.blocks = blocks;
+        this.starts = starts;
+    }
+
+    /**
+     * Creates a list holding the given products, in full blocks.
+     *
+     * @param products the products in list order
+     * @return the list
+     */
+    static ProductList of(Collection<Product> products) {
+        return EMPTY.withAll(products);
+    }
+
+    /**
+     * Retrieves the product at a position.
+     *
+     * @param index the position in the list
+     * @return the product at the position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    @Override
+    public Product get(int index) {
+        int block = blockOf(index);
+
+        return blocks[block][index - starts[block]];
+    }
+
+    /**
+     * Retrieves the number of products in the list.
+     *
+     * @return the number of products
+     */
+    @Override
+    public int size() {
+        return starts[blocks.length];
+    }
+
+    /**
+     * Finds the first position of a product, walking the blocks directly.
+     *
+     * @param o the product to look up
+     * @return the position of the product, or -1 if it is not in the list
+     */
+    @Override
+    public int indexOf(Object o) {
+        for (int block = 0; block < blocks.length; block++) {
+            for (int i = 0; i < blocks[block].length; i++) {
+                if (o == null ? blocks[block][i] == null : o.equals(blocks[block][i])) {
+                    return starts[block] + i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Creates a list with a product appended, sharing all blocks but the last one.
+     *
+     * @param product the product to append
+     * @return the new list
+     */
+    ProductList with(Product product) {
+        int last = blocks.length - 1;
+
+        if (last >= 0 && blocks[last].length < BLOCK_SIZE) {
+            Product[][] newBlocks = blocks.clone();
+            int[] newStarts = starts.clone();
+            newBlocks[last] = Arrays.copyOf(blocks[last], blocks[last].length + 1);
+            newBlocks[last][blocks[last].length] = product;
+            newStarts[blocks.length]++;
+            return new ProductList(newBlocks, newStarts);
+        }
+
+        return withBlock(new Product[]{product});
+    }
+
+    /**
+     * Creates a list with several products appended, sharing all existing blocks.
+     *
+     * @param products the products to append
+     * @return the new list
+     */
+    ProductList withAll(Collection<Product> products) {
+        ProductList result = this;
+        Product[] added = products.toArray(new Product[0]);
+
+        for (int from = 0; from < added.length; from += BLOCK_SIZE) {
+            result = result.withBlock(Arrays.copyOfRange(added, from, Math.min(from + BLOCK_SIZE, added.length)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a list without the first occurrence of a product, sharing all blocks but the one it was in.
+     *
+     * @param product the product to remove
+     * @return the new list, or this list if the product is not in it
+     */
+    ProductList without(Product product) {
+        int index = indexOf(product);
+
+        if (index < 0) {
+            return this;
+        }
+
+        int block = blockOf(index);
+        int offset = index - starts[block];
+        Product[] old = blocks[block];
+
+        if (old.length == 1) {
+            Product[][] newBlocks = new Product[blocks.length - 1][];
+            int[] newStarts = new int[blocks.length];
+            System.arraycopy(blocks, 0, newBlocks, 0, block);
+            System.arraycopy(blocks, block + 1, newBlocks, block, blocks.length - block - 1);
+            System.arraycopy(starts, 0, newStarts, 0, block);
+
+            for (int i = block; i < newStarts.length; i++) {
+                newStarts[i] = starts[i + 1] - 1;
+            }
+
+            return new ProductList(newBlocks, newStarts);
+        }
+
+        Product[] changed = new Product[old.length - 1];
+        System.arraycopy(old, 0, changed, 0, offset);
+        System.arraycopy(old, offset + 1, changed, offset, old.length - offset - 1);
+
+        Product[][] newBlocks = blocks.clone();
+        int[] newStarts = starts.clone();
+        newBlocks[block] = changed;
+
+        for (int i = block + 1; i < newStarts.length; i++) {
+            newStarts[i]--;
+        }
+
+        return new ProductList(newBlocks, newStarts);
+    }
+
+    /**
+     * Creates a list with a block appended after all existing ones.
+     *
+     * @param block the block to append, not empty
+     * @return the new list
+     */
+    private ProductList withBlock(Product[] block) {
+        Product[][] newBlocks = Arrays.copyOf(blocks, blocks.length + 1);
+        int[] newStarts = Arrays.copyOf(starts, starts.length + 1);
+        newBlocks[blocks.length] = block;
+        newStarts[newBlocks.length] = size() + block.length;
+        return new ProductList(newBlocks, newStarts);
+    }
+
+    /**
+     * Finds the block holding a position, directly while every block before it is full.
+     *
+     * @param index the position in the list
+     * @return the index of the block
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    private int blockOf(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size() + ".");
+        }
+
+        int guess = Math.min(index >>> BLOCK_SHIFT, blocks.length - 1);
+
+        if (starts[guess] <= index && index < starts[guess + 1]) {
+            return guess;
+        }
+
+        int low = 0;
+        int high = blocks.length - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,13 @@
+package Product;
+
+/**
+ * Interface for observers that want to be notified about product changes.
+ */
+public interface ProductObserver {
+    /**
+     * Called when a product changes.
+     *
+     * @param product the product that was changed
+     */
+    void update(Product product);
+}
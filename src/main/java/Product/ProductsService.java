@@ -1,18 +1,57 @@
 package Product;
 
+import Filter.FacetCounts;
 import Filter.FilterService;
+import Filter.FilterState;
+import Index.AutocompleteIndex;
+import Index.SortedView;
+import Sort.OrdinalSort;
+import Sort.SortByPrice;
 import Sort.SortStrategy;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing products, including sorting and filtering functionality.
+ * Products are kept either in a plain list or, in columnar mode, in a {@link ProductCatalog}.
+ * Query results are cached until the catalog epoch changes, which happens whenever a product is added,
+ * removed or changed.
+ * Readers work on an immutable snapshot of the products and never take a lock. Writers serialize on a lock,
+ * apply their change to a copy of the current snapshot and publish the copy, so searches are never blocked by writes
+ * and never observe a half-applied change. Copies share everything the change does not touch with the snapshot they
+ * were made from, so a single write only copies the catalog segments, index blocks or list blocks it changes.
  */
-public class ProductsService {
-    private List<Product> products;
-    private SortStrategy sortStrategy;
+public class ProductsService implements ProductObserver {
+    private static final int DEFAULT_QUERY_CACHE_CAPACITY = 64;
+    private static final FilterService NO_FILTERS = new FilterService();
+
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+    private volatile SortStrategy sortStrategy;
     private FilterService filterService;
+    private volatile QueryCache queryCache;
+
+    /**
+     * Published version of the products. Neither the list nor the catalog is changed after publication.
+     *
+     * @param epoch the catalog epoch of this version
+     * @param products the list of products, or null in columnar mode
+     * @param catalog the catalog of products, or null in list mode
+     */
+    private record Snapshot(long epoch, ProductList products, ProductCatalog catalog) {}
 
     /**
      * Constructs a ProductsService with the specified initial sort strategy and filter service.
@@ -21,9 +60,35 @@ public class ProductsService {
      * @param filterService the filter service to be used
      */
     public ProductsService(SortStrategy initialSortStrategy, FilterService filterService){
-        this.products = new ArrayList<Product>();
+        this.snapshot = new Snapshot(0, ProductList.EMPTY, null);
         this.sortStrategy = initialSortStrategy;
         this.filterService = filterService;
+        this.queryCache = new QueryCache(DEFAULT_QUERY_CACHE_CAPACITY);
+    }
+
+    /**
+     * Constructs a ProductsService with the specified initial sort strategy and filter service,
+     * optionally storing products in a columnar catalog.
+     *
+     * @param initialSortStrategy the initial sort strategy to be used
+     * @param filterService the filter service to be used
+     * @param columnar whether products should be stored in a columnar catalog
+     */
+    public ProductsService(SortStrategy initialSortStrategy, FilterService filterService, boolean columnar){
+        this(initialSortStrategy, filterService);
+
+        if(columnar){
+            this.snapshot = new Snapshot(0, null, new ProductCatalog(false));
+        }
+    }
+
+    /**
+     * Checks whether products are stored in a columnar catalog.
+     *
+     * @return true if the service runs in columnar mode, false otherwise
+     */
+    public boolean isColumnar() {
+        return snapshot.catalog() != null;
     }
 
     /**
@@ -44,13 +109,191 @@ public class ProductsService {
         this.sortStrategy = sortStrategy;
     }
 
+    /**
+     * Replaces the query result cache with an empty one of the given capacity.
+     *
+     * @param capacity the maximum number of cached queries, or 0 to disable caching
+     */
+    public void setQueryCacheCapacity(int capacity) {
+        this.queryCache = new QueryCache(capacity);
+    }
+
+    /**
+     * Retrieves the number of queries answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return queryCache.getHits();
+    }
+
+    /**
+     * Retrieves the number of queries that had to be computed.
+     *
+     * @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return queryCache.getMisses();
+    }
+
+    /**
+     * Retrieves the catalog epoch, which increases whenever a product is added, removed or changed.
+     *
+     * @return the catalog epoch
+     */
+    public long getEpoch() {
+        return snapshot.epoch();
+    }
+
+    /**
+     * Publishes a new snapshot after a product changed, invalidating cached query results.
+     * In columnar mode the change only copies the catalog segment and the index blocks it touches.
+     *
+     * @param product the product that was changed
+     */
+    @Override
+    public void update(Product product) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            ProductCatalog catalog = current.catalog();
+
+            if(catalog != null){
+                catalog = catalog.copy();
+                catalog.update(product);
+            }
+
+            snapshot = new Snapshot(current.epoch() + 1, current.products(), catalog);
+        }
+    }
+
+    /**
+     * Registers a sort strategy so that, in columnar mode, a pre-sorted view of the catalog is kept for it
+     * and queries using it walk the view instead of sorting their results.
+     *
+     * @param sortStrategy the sort strategy to register
+     */
+    public void registerSortStrategy(SortStrategy sortStrategy) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+
+            if(current.catalog() != null && current.catalog().getSortedView(sortStrategy) == null){
+                ProductCatalog catalog = current.catalog().copy();
+                catalog.addSortedView(sortStrategy);
+                snapshot = new Snapshot(current.epoch(), null, catalog);
+            }
+        }
+    }
+
+    /**
+     * Configures filtering to run in parallel once a query has to scan at least the given number of products.
+     * Results keep the order of a sequential scan, so sorting stays deterministic.
+     *
+     * @param pool the pool to run filtering tasks in, or null to always filter sequentially
+     * @param threshold the smallest number of products that is filtered in parallel
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public void configureParallelFiltering(ForkJoinPool pool, int threshold) {
+        filterService.setParallelExecution(pool, threshold);
+    }
+
+    /**
+     * Writes the current catalog, with its indexes and sorted views, to a binary snapshot file.
+     * The file is replaced atomically, so a concurrent reader sees either the old or the new snapshot.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if the service is not in columnar mode
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        ProductCatalog catalog = snapshot.catalog();
+
+        if(catalog == null){
+            throw new IllegalStateException("Only columnar catalogs can be saved as snapshots.");
+        }
+
+        CatalogSnapshot.write(catalog, file);
+    }
+
+    /**
+     * Replaces all products with the ones stored in a binary snapshot file and publishes them as a new snapshot.
+     * Sorted views stored in the file are reused for the sort strategies registered with the service,
+     * and views missing from the file are built.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be read or is not a catalog snapshot
+     * @throws IllegalStateException if the service is not in columnar mode
+     */
+    public void loadSnapshot(Path file) throws IOException {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+
+            if(current.catalog() == null){
+                throw new IllegalStateException("Snapshots can only be loaded into columnar catalogs.");
+            }
+
+            SortStrategy[] strategies = current.catalog().getSortedViews().keySet().toArray(new SortStrategy[0]);
+            ProductCatalog catalog = CatalogSnapshot.read(file, strategies);
+
+            for (int ordinal = 0; ordinal < current.catalog().getSize(); ordinal++) {
+                if(current.catalog().isLive(ordinal)){
+                    current.catalog().getProduct(ordinal).removeObserver(this);
+                }
+            }
+
+            for (int ordinal = 0; ordinal < catalog.getSize(); ordinal++) {
+                if(catalog.isLive(ordinal)){
+                    catalog.getProduct(ordinal).registerObserver(this);
+                }
+            }
+
+            snapshot = new Snapshot(current.epoch() + 1, null, catalog);
+        }
+    }
+
     /**
      * Adds a product to the list of products.
      *
      * @param product the product to be added
      */
     public void addProduct(Product product){
-        this.products.add(product);
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            product.registerObserver(this);
+
+            if(current.catalog() != null){
+                ProductCatalog catalog = current.catalog().copy();
+                catalog.add(product);
+                snapshot = new Snapshot(current.epoch() + 1, null, catalog);
+                return;
+            }
+
+            snapshot = new Snapshot(current.epoch() + 1, current.products().with(product), null);
+        }
+    }
+
+    /**
+     * Adds several products in a single write, publishing one new snapshot for the whole batch.
+     * In columnar mode the catalog indexes are rebuilt once instead of being updated for every product.
+     *
+     * @param products the products to be added
+     */
+    public void addProducts(Collection<Product> products) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+
+            for (Product product : products) {
+                product.registerObserver(this);
+            }
+
+            if(current.catalog() != null){
+                ProductCatalog catalog = current.catalog().copy();
+                catalog.addAll(products);
+                snapshot = new Snapshot(current.epoch() + 1, null, catalog);
+                return;
+            }
+
+            snapshot = new Snapshot(current.epoch() + 1, current.products().withAll(products), null);
+        }
     }
 
     /**
@@ -59,29 +302,538 @@ public class ProductsService {
      * @param product the product to be removed
      */
     public void removeProduct(Product product) {
-       this.products.remove(product);
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            product.removeObserver(this);
+
+            if(current.catalog() != null){
+                ProductCatalog catalog = current.catalog().copy();
+                catalog.remove(product);
+                snapshot = new Snapshot(current.epoch() + 1, null, catalog);
+                return;
+            }
+
+            snapshot = new Snapshot(current.epoch() + 1, current.products().without(product), null);
+        }
+    }
+
+    /**
+     * Removes several products in a single write, publishing one new snapshot for the whole batch.
+     * In columnar mode every product is located through the id index and the catalog is compacted at most once.
+     *
+     * @param products the products to be removed
+     */
+    public void removeProducts(Collection<Product> products) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+
+            for (Product product : products) {
+                product.removeObserver(this);
+            }
+
+            if(current.catalog() != null){
+                ProductCatalog catalog = current.catalog().copy();
+                catalog.removeAll(products);
+                snapshot = new Snapshot(current.epoch() + 1, null, catalog);
+                return;
+            }
+
+            Set<Long> ids = new HashSet<>();
+
+            for (Product product : products) {
+                ids.add(product.getId());
+            }
+
+            List<Product> remaining = new ArrayList<>(current.products());
+            remaining.removeIf(product -> ids.contains(product.getId()));
+            snapshot = new Snapshot(current.epoch() + 1, ProductList.of(remaining), null);
+        }
+    }
+
+    /**
+     * Finds a product by its id. In columnar mode the lookup goes through the id index of the catalog.
+     *
+     * @param id the id of the product
+     * @return the product, or null if there is no product with this id
+     */
+    public Product findProduct(long id) {
+        Snapshot current = snapshot;
+
+        if(current.catalog() != null){
+            return current.catalog().findById(id);
+        }
+
+        for (Product product : current.products()) {
+            if(product.getId() == id){
+                return product;
+            }
+        }
+
+        return null;
     }
 
     /**
      * Retrieves a list of products filtered and sorted based on the provided name.
+     * Names are matched ignoring case and accents, and repeated queries with the same filters, normalized name
+     * and sort strategy are answered from the cache as long as no product changed in between.
      *
      * @param name the name to filter the products by
-     * @return a list of products filtered and sorted based on the provided name
+     * @return an unmodifiable list of products filtered and sorted based on the provided name
      */
     public List<Product> getProducts(String name){
-        List<Product> filteredProducts = products;
+        Snapshot current = snapshot;
+        SortStrategy sortStrategy = this.sortStrategy;
+        QueryCache queryCache = this.queryCache;
+        FilterState filters = filterService != null ? this.filterService.getState() : null;
+        String term = TextNormalizer.normalize(name);
+        List<Product> cachedProducts = queryCache.get(filters, term, sortStrategy, current.epoch());
+
+        if(cachedProducts != null){
+            return cachedProducts;
+        }
+
+        List<Product> result = Collections.unmodifiableList(current.catalog() != null ?
+                getCatalogProducts(current.catalog(), sortStrategy, term) :
+                getListProducts(current.products(), sortStrategy, term));
+        queryCache.put(filters, term, sortStrategy, current.epoch(), result);
+        return result;
+    }
+
+    /**
+     * Streams the products filtered and sorted based on the provided name, evaluating the query lazily.
+     * Filters are checked only as the stream pulls products. When the order comes from an index, products are
+     * streamed straight from it without buffering, so a consumer that stops after a few products also stops the scan.
+     * That index is a sorted view of the strategy, the price index when sorting by price, or catalog order without a
+     * strategy. Any other order is sorted once, before the stream is returned.
+     * The stream reads the snapshot and the filters current when it is created, so later changes do not affect it.
+     *
+     * @param name the name to filter the products by
+     * @return a stream of products filtered and sorted based on the provided name
+     */
+    public Stream<Product> streamProducts(String name){
+        Snapshot current = snapshot;
+        SortStrategy sortStrategy = this.sortStrategy;
+        FilterService filters = filterService != null ? filterService : NO_FILTERS;
+        ProductCatalog catalog = current.catalog();
+
+        if(catalog == null){
+            Stream<Product> matches = filters.streamProducts(current.products(), name);
 
-        if(filterService != null){
-            filteredProducts = this.filterService.filterProducts(this.products, name);
+            return sortStrategy == null ? matches : sortStrategy.sortProducts(matches.toList()).stream();
         }
 
+        SortedView view = sortStrategy != null ? catalog.getSortedView(sortStrategy) : null;
+        IntStream ordinals;
+
+        if(sortStrategy == null){
+            ordinals = filters.streamOrdinals(catalog, name);
+        } else if(view != null){
+            ordinals = filters.streamOrdinals(catalog, name, view);
+        } else if(sortStrategy instanceof SortByPrice){
+            ordinals = filters.streamOrdinalsByPrice(catalog, name);
+        } else {
+            ordinals = IntStream.of(sortStrategy.sortOrdinals(catalog, filters.filterOrdinals(catalog, name)));
+        }
+
+        return ordinals.mapToObj(catalog::getProduct);
+    }
+
+    /**
+     * Runs a query into the buffer pooled for the current thread.
+     *
+     * @param name the name to filter the products by
+     * @return a buffer backed by the arrays pooled for the thread, valid until the thread runs its next pooled query
+     * @throws IllegalStateException if the service is not in columnar mode
+     * @see #query(String, QueryBuffer)
+     */
+    public QueryBuffer query(String name){
+        return query(name, QueryBuffer.forCurrentThread());
+    }
+
+    /**
+     * Filters and sorts the products based on the provided name, writing the result ordinals into a reusable buffer
+     * instead of building lists, so repeated queries with a reused buffer allocate nothing.
+     * The result comes in index order when the sort strategy has a sorted view or sorts by price;
+     * otherwise the buffer is sorted in place with the ordinal comparator of the strategy.
+     * Strategies without an ordinal comparator fall back to {@link SortStrategy#sortOrdinals}, which allocates.
+     * The query cache is bypassed.
+     *
+     * @param name the name to filter the products by
+     * @param buffer the buffer to write the result into
+     * @return the buffer holding the result
+     * @throws IllegalStateException if the service is not in columnar mode
+     */
+    public QueryBuffer query(String name, QueryBuffer buffer){
+        ProductCatalog catalog = snapshot.catalog();
+
+        if(catalog == null){
+            throw new IllegalStateException("Queries into buffers need a columnar catalog.");
+        }
+
+        SortStrategy sortStrategy = this.sortStrategy;
+        FilterService filters = filterService != null ? filterService : NO_FILTERS;
+        String term = buffer.termOf(name);
+        SortedView view = sortStrategy != null ? catalog.getSortedView(sortStrategy) : null;
+        int[] ordinals = buffer.ordinals(catalog.getLiveCount());
+        int count;
+
+        if(view != null){
+            count = filters.filterInto(catalog, term, view, ordinals);
+        } else if(sortStrategy instanceof SortByPrice){
+            count = filters.filterByPriceInto(catalog, term, ordinals);
+        } else {
+            count = filters.filterInto(catalog, term, ordinals);
+
+            if(sortStrategy != null){
+                sortInPlace(catalog, sortStrategy, ordinals, count, buffer);
+            }
+        }
+
+        buffer.fill(catalog, count);
+        return buffer;
+    }
+
+    /**
+     * Sorts the first ordinals of a buffer array with a strategy, merging through the scratch array of the buffer.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param sortStrategy the sort strategy of the query
+     * @param ordinals the ordinal array of the buffer
+     * @param count the number of ordinals to sort
+     * @param buffer the buffer providing the comparator and the scratch array
+     */
+    private static void sortInPlace(ProductCatalog catalog, SortStrategy sortStrategy, int[] ordinals, int count, QueryBuffer buffer){
+        IntBinaryOperator comparator = buffer.comparatorOf(sortStrategy, catalog);
+
+        if(comparator != null){
+            OrdinalSort.sort(ordinals, count, comparator, buffer.scratch(count));
+            return;
+        }
+
+        int[] sorted = sortStrategy.sortOrdinals(catalog, Arrays.copyOf(ordinals, count));
+        System.arraycopy(sorted, 0, ordinals, 0, count);
+    }
+
+    /**
+     * Counts how many products matching the name each brand, category and price bucket would yield
+     * under the other active filters, in one pass over the current snapshot.
+     *
+     * @param name the name to filter the products by
+     * @param priceBounds the ascending bounds between price buckets
+     * @return the facet counts
+     * @throws IllegalArgumentException if the price bounds are not strictly ascending
+     */
+    public FacetCounts getFacets(String name, float... priceBounds){
+        Snapshot current = snapshot;
+        FilterService filters = filterService != null ? filterService : NO_FILTERS;
+
+        return current.catalog() != null ?
+                filters.countFacets(current.catalog(), name, priceBounds) :
+                filters.countFacets(current.products(), name, priceBounds);
+    }
+
+    /**
+     * Suggests products whose title has a word starting with the prefix, ranked by stock, ignoring case and accents.
+     * In columnar mode the suggestions come from the autocomplete index of the catalog;
+     * otherwise the product list is scanned.
+     *
+     * @param prefix the typed prefix
+     * @param limit the maximum number of suggestions, at most {@link AutocompleteIndex#TOP_N}
+     * @return the suggested products, best first
+     * @throws IllegalArgumentException if the limit is negative or greater than {@link AutocompleteIndex#TOP_N}
+     */
+    public List<Product> suggestProducts(String prefix, int limit){
+        Snapshot current = snapshot;
+
+        if(current.catalog() != null){
+            return current.catalog().getProducts(current.catalog().getAutocompleteIndex().suggest(current.catalog(), prefix, limit));
+        }
+
+        if(limit < 0 || limit > AutocompleteIndex.TOP_N){
+            throw new IllegalArgumentException("The limit must be between 0 and " + AutocompleteIndex.TOP_N + ".");
+        }
+
+        String key = TextNormalizer.normalize(prefix);
+        List<Product> matches = new ArrayList<>();
+
+        for (Product product : current.products()) {
+            if(!key.isEmpty() && hasWordStartingWith(product.getNormalizedTitle(), key)){
+                matches.add(product);
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Product::getQauntity).reversed());
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    /**
+     * Checks whether a word of a title starts with a key.
+     *
+     * @param title the normalized title
+     * @param key the normalized key
+     * @return true if the title starts with the key or has the key right after whitespace, false otherwise
+     */
+    private static boolean hasWordStartingWith(String title, String key){
+        for (int position = title.indexOf(key); position >= 0; position = title.indexOf(key, position + 1)) {
+            if(position == 0 || Character.isWhitespace(title.charAt(position - 1))){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Retrieves products from the plain product list.
+     *
+     * @param products the products of the snapshot being read
+     * @param sortStrategy the sort strategy of the query
+     * @param name the name to filter the products by
+     * @return a list of products filtered and sorted based on the provided name
+     */
+    private List<Product> getListProducts(List<Product> products, SortStrategy sortStrategy, String name){
+        List<Product> filteredProducts = filterService != null ?
+                this.filterService.filterProducts(products, name) :
+                new ArrayList<>(products);
+
         if(sortStrategy != null){
-            return this.sortStrategy.sortProducts(filteredProducts);
+            return sortStrategy.sortProducts(filteredProducts);
         }
 
         return  filteredProducts;
     }
 
+    /**
+     * Retrieves one page of the products filtered and sorted based on the provided name.
+     * Only the first offset + limit results are selected, with a bounded heap or by walking a pre-sorted view,
+     * instead of sorting every matching product.
+     *
+     * @param name the name to filter the products by
+     * @param offset the number of matching products to skip
+     * @param limit the maximum number of products to return
+     * @return the page of products
+     * @throws IllegalArgumentException if the offset or the limit is negative
+     */
+    public List<Product> getProducts(String name, int offset, int limit){
+        if(offset < 0 || limit < 0){
+            throw new IllegalArgumentException("Offset and limit cannot be negative.");
+        }
+
+        Snapshot current = snapshot;
+        SortStrategy sortStrategy = this.sortStrategy;
+        ProductCatalog catalog = current.catalog();
+
+        if(catalog != null){
+            return catalog.getProducts(getCatalogPage(catalog, sortStrategy, name, -1, offset, limit));
+        }
+
+        return getListPage(current.products(), sortStrategy, name, null, offset, limit);
+    }
+
+    /**
+     * Retrieves the page of products that follows a product of the previous page in the current sort order.
+     * Unlike an offset, the cursor lets a pre-sorted view resume right after the product,
+     * so pages deep into the result cost the same as the first one.
+     *
+     * @param name the name to filter the products by
+     * @param after the last product of the previous page
+     * @param limit the maximum number of products to return
+     * @return the page of products
+     * @throws IllegalArgumentException if the limit is negative or the product is not in the service
+     */
+    public List<Product> getProductsAfter(String name, Product after, int limit){
+        if(limit < 0){
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+
+        Snapshot current = snapshot;
+        SortStrategy sortStrategy = this.sortStrategy;
+        ProductCatalog catalog = current.catalog();
+
+        if(catalog != null){
+            int afterOrdinal = catalog.ordinalOf(after);
+
+            if(afterOrdinal < 0){
+                throw new IllegalArgumentException("The cursor product is not in the catalog.");
+            }
+
+            return catalog.getProducts(getCatalogPage(catalog, sortStrategy, name, afterOrdinal, 0, limit));
+        }
+
+        return getListPage(current.products(), sortStrategy, name, after, 0, limit);
+    }
+
+    /**
+     * Selects one page of catalog ordinals.
+     *
+     * @param catalog the catalog of the snapshot being read
+     * @param sortStrategy the sort strategy of the query
+     * @param name the name to filter the products by
+     * @param afterOrdinal the ordinal of the cursor product, or -1 to start from the beginning
+     * @param skip the number of matching products to skip
+     * @param limit the maximum number of products to return
+     * @return the ordinals of the page
+     */
+    private int[] getCatalogPage(ProductCatalog catalog, SortStrategy sortStrategy, String name, int afterOrdinal, int skip, int limit){
+        FilterService filters = filterService != null ? filterService : NO_FILTERS;
+        SortedView view = sortStrategy != null ? catalog.getSortedView(sortStrategy) : null;
+
+        if(view != null){
+            return filters.filterOrdinals(catalog, name, view, afterOrdinal, skip, limit);
+        }
+
+        int[] matches = filters.filterOrdinals(catalog, name);
+        IntBinaryOperator comparator = sortStrategy != null ? sortStrategy.ordinalComparator(catalog) : Integer::compare;
+
+        if(comparator == null){
+            int[] sorted = sortStrategy.sortOrdinals(catalog, matches);
+            int start = 0;
+
+            if(afterOrdinal >= 0){
+                while (start < sorted.length && sorted[start] != afterOrdinal) {
+                    start++;
+                }
+
+                start++;
+            }
+
+            return slice(sorted, start, skip, limit);
+        }
+
+        return selectPage(matches, afterOrdinal, skip, limit, comparator);
+    }
+
+    /**
+     * Selects one page of the plain product list.
+     *
+     * @param products the products of the snapshot being read
+     * @param sortStrategy the sort strategy of the query
+     * @param name the name to filter the products by
+     * @param after the cursor product, or null to start from the beginning
+     * @param skip the number of matching products to skip
+     * @param limit the maximum number of products to return
+     * @return the page of products
+     * @throws IllegalArgumentException if the cursor product does not match the query
+     */
+    private List<Product> getListPage(List<Product> products, SortStrategy sortStrategy, String name, Product after, int skip, int limit){
+        List<Product> filteredProducts = filterService != null ? this.filterService.filterProducts(products, name) : products;
+        int afterIndex = after == null ? -1 : filteredProducts.indexOf(after);
+
+        if(after != null && afterIndex < 0){
+            throw new IllegalArgumentException("The cursor product does not match the query.");
+        }
+
+        Comparator<Product> comparator = sortStrategy != null ? sortStrategy.getComparator() : null;
+        int[] page;
+
+        if(sortStrategy != null && comparator == null){
+            filteredProducts = sortStrategy.sortProducts(filteredProducts);
+            page = slice(identity(filteredProducts.size()), after == null ? 0 : filteredProducts.indexOf(after) + 1, skip, limit);
+        } else {
+            List<Product> source = filteredProducts;
+            IntBinaryOperator indexComparator = comparator == null ?
+                    (left, right) -> 0 :
+                    (left, right) -> comparator.compare(source.get(left), source.get(right));
+
+            page = selectPage(identity(source.size()), afterIndex, skip, limit, indexComparator);
+        }
+
+        List<Product> result = new ArrayList<>(page.length);
+
+        for (int index : page) {
+            result.add(filteredProducts.get(index));
+        }
+
+        return result;
+    }
+
+    /**
+     * Selects a page of positions after a cursor with a bounded heap.
+     *
+     * @param items the ordinals or list indexes to select from
+     * @param after the cursor ordinal or index, or -1 to start from the beginning
+     * @param skip the number of items to skip
+     * @param limit the maximum number of items to return
+     * @param comparator compares two items
+     * @return the items of the page in sorted order
+     */
+    private static int[] selectPage(int[] items, int after, int skip, int limit, IntBinaryOperator comparator){
+        if(after >= 0){
+            items = OrdinalSort.keepAfter(items, after, comparator);
+        }
+
+        int[] first = OrdinalSort.selectFirst(items, (int) Math.min((long) skip + limit, items.length), comparator);
+        return Arrays.copyOfRange(first, Math.min(skip, first.length), first.length);
+    }
+
+    /**
+     * Cuts a page out of already sorted items.
+     *
+     * @param sorted the sorted items
+     * @param start the position of the first item after the cursor
+     * @param skip the number of items to skip
+     * @param limit the maximum number of items to return
+     * @return the items of the page
+     */
+    private static int[] slice(int[] sorted, int start, int skip, int limit){
+        int from = (int) Math.min((long) start + skip, sorted.length);
+        int to = (int) Math.min((long) from + limit, sorted.length);
+
+        return Arrays.copyOfRange(sorted, from, to);
+    }
+
+    /**
+     * Creates the array of indexes 0 to size - 1.
+     *
+     * @param size the number of indexes
+     * @return the array of indexes
+     */
+    private static int[] identity(int size){
+        int[] indexes = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Retrieves products from the columnar catalog, filtering and sorting on ordinals
+     * and materializing product objects only for the final result.
+     *
+     * @param catalog the catalog of the snapshot being read
+     * @param sortStrategy the sort strategy of the query
+     * @param name the name to filter the products by
+     * @return a list of products filtered and sorted based on the provided name
+     */
+    private List<Product> getCatalogProducts(ProductCatalog catalog, SortStrategy sortStrategy, String name){
+        if(filterService == null && sortStrategy == null){
+            return catalog.getProducts();
+        }
+
+        if(filterService != null && sortStrategy instanceof SortByPrice){
+            return catalog.getProducts(this.filterService.filterOrdinalsByPrice(catalog, name));
+        }
+
+        SortedView view = sortStrategy != null ? catalog.getSortedView(sortStrategy) : null;
+
+        if(view != null){
+            return catalog.getProducts(filterService != null ?
+                    this.filterService.filterOrdinals(catalog, name, view) :
+                    view.toArray());
+        }
+
+        int[] ordinals = filterService != null ?
+                this.filterService.filterOrdinals(catalog, name) :
+                catalog.getOrdinals();
+
+        if(sortStrategy != null){
+            ordinals = sortStrategy.sortOrdinals(catalog, ordinals);
+        }
+
+        return catalog.getProducts(ordinals);
+    }
 
     /**
      * Prints the applied filters.
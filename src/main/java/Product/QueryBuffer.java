@@ -0,0 +1,234 @@
+package Product;
+
+import Sort.SortStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Reusable buffer a columnar query writes the ordinals of its result into, read as a lightweight view
+ * of the catalog snapshot the query ran on.
+ * Reusing a buffer makes steady-state queries allocation-free. Its arrays only grow while results get larger.
+ * The normalized name and the sort comparator of the previous query are kept and reused by the next query
+ * with the same name, strategy and snapshot.
+ * A buffer is not thread-safe, and every query run with it replaces its contents.
+ * {@link #forCurrentThread()} hands out buffers backed by arrays pooled per thread. The pool keeps only
+ * the arrays and the last normalized name, never a catalog, so an idle thread does not keep an old snapshot alive.
+ */
+public class QueryBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ThreadLocal<Storage> POOL = ThreadLocal.withInitial(() -> new Storage(INITIAL_CAPACITY));
+
+    private final Storage storage;
+    private int size;
+    private ProductCatalog catalog;
+    private SortStrategy comparatorStrategy;
+    private ProductCatalog comparatorCatalog;
+    private IntBinaryOperator comparator;
+
+    /**
+     * Constructs an empty buffer with a small initial capacity.
+     */
+    public QueryBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty buffer.
+     *
+     * @param capacity the number of ordinals the buffer holds before it has to grow
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public QueryBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        }
+
+        this.storage = new Storage(capacity);
+    }
+
+    /**
+     * Constructs an empty buffer writing into existing arrays.
+     *
+     * @param storage the arrays of the buffer
+     */
+    private QueryBuffer(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Creates a buffer backed by the arrays pooled for the current thread.
+     * Only the small buffer object is allocated; its result stays valid until the thread fills another buffer
+     * from the pool, and the catalog it refers to is released with the buffer.
+     *
+     * @return a buffer sharing the arrays of the current thread
+     */
+    public static QueryBuffer forCurrentThread() {
+        return new QueryBuffer(POOL.get());
+    }
+
+    /**
+     * Retrieves the number of products in the result.
+     *
+     * @return the number of products
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the result is empty.
+     *
+     * @return true if no product matched, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retrieves the catalog ordinal at a position of the result.
+     *
+     * @param index the position in the result
+     * @return the ordinal in the catalog the query ran on
+     * @throws IndexOutOfBoundsException if the index is outside the result
+     */
+    public int getOrdinal(int index) {
+        return storage.ordinals[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * Retrieves the product at a position of the result.
+     *
+     * @param index the position in the result
+     * @return the product
+     * @throws IndexOutOfBoundsException if the index is outside the result
+     */
+    public Product getProduct(int index) {
+        return catalog.getProduct(getOrdinal(index));
+    }
+
+    /**
+     * Retrieves the catalog snapshot the last query ran on.
+     *
+     * @return the catalog, or null if no query ran yet
+     */
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Performs an action for every product of the result, in order.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(Consumer<? super Product> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(catalog.getProduct(storage.ordinals[i]));
+        }
+    }
+
+    /**
+     * Copies the result into a new list, for callers that need to keep it beyond the next query.
+     *
+     * @return the products of the result
+     */
+    public List<Product> toList() {
+        List<Product> products = new ArrayList<>(size);
+        forEach(products::add);
+        return products;
+    }
+
+    /**
+     * Provides the ordinal array for the next query, growing it if needed.
+     *
+     * @param capacity the largest number of ordinals the query can write
+     * @return the ordinal array
+     */
+    int[] ordinals(int capacity) {
+        if (storage.ordinals.length < capacity) {
+            storage.ordinals = new int[Math.max(capacity, storage.ordinals.length * 2)];
+        }
+
+        return storage.ordinals;
+    }
+
+    /**
+     * Provides a scratch array for sorting, growing it if needed.
+     *
+     * @param capacity the number of ordinals to sort
+     * @return the scratch array
+     */
+    int[] scratch(int capacity) {
+        if (storage.scratch.length < capacity) {
+            storage.scratch = new int[Math.max(capacity, storage.ordinals.length)];
+        }
+
+        return storage.scratch;
+    }
+
+    /**
+     * Publishes the result written into the ordinal array.
+     *
+     * @param catalog the catalog the query ran on
+     * @param size the number of ordinals written
+     */
+    void fill(ProductCatalog catalog, int size) {
+        this.catalog = catalog;
+        this.size = size;
+    }
+
+    /**
+     * Normalizes a query name, reusing the result of the previous query when the name is the same.
+     *
+     * @param name the name to normalize
+     * @return the normalized name
+     * @see TextNormalizer#normalize(String)
+     */
+    String termOf(String name) {
+        if (storage.term == null || !Objects.equals(storage.name, name)) {
+            storage.term = TextNormalizer.normalize(name);
+            storage.name = name;
+        }
+
+        return storage.term;
+    }
+
+    /**
+     * Retrieves the ordinal comparator of a strategy bound to a catalog, reusing the previous one for the same pair.
+     *
+     * @param strategy the sort strategy
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator, or null if the strategy does not provide one
+     */
+    IntBinaryOperator comparatorOf(SortStrategy strategy, ProductCatalog catalog) {
+        if (strategy != comparatorStrategy || catalog != comparatorCatalog) {
+            this.comparator = strategy.ordinalComparator(catalog);
+            this.comparatorStrategy = strategy;
+            this.comparatorCatalog = catalog;
+        }
+
+        return comparator;
+    }
+
+    /**
+     * Arrays and name cache of a buffer, which hold no reference to any catalog and can be pooled per thread.
+     */
+    private static class Storage {
+        private int[] ordinals;
+        private int[] scratch = new int[0];
+        private String name;
+        private String term;
+
+        /**
+         * Constructs empty arrays.
+         *
+         * @param capacity the number of ordinals the arrays hold before they have to grow
+         */
+        Storage(int capacity) {
+            this.ordinals = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Product;
+
+import Filter.FilterState;
+import Sort.SortStrategy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of product query results with least-recently-used eviction.
+ * Every entry remembers the catalog epoch it was computed at, and is treated as a miss once the epoch moved on.
+ * All methods are synchronized, so the cache can be shared by concurrent readers.
+ */
+public class QueryCache {
+    private final int capacity;
+    private final Map<Key, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * Key of a cached query.
+     *
+     * @param filters the snapshot of the filters, or null if no filters are used
+     * @param name the name the products were filtered by
+     * @param sortStrategy the sort strategy, or null if the products were not sorted
+     */
+    private record Key(FilterState filters, String name, SortStrategy sortStrategy) {}
+
+    /**
+     * Cached result with the catalog epoch it was computed at.
+     *
+     * @param epoch the catalog epoch
+     * @param products the query result
+     */
+    private record Entry(long epoch, List<Product> products) {}
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity the maximum number of cached queries
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public QueryCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > QueryCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up a cached query result.
+     *
+     * @param filters the snapshot of the filters, or null if no filters are used
+     * @param name the name the products are filtered by
+     * @param sortStrategy the sort strategy, or null if the products are not sorted
+     * @param epoch the current catalog epoch
+     * @return the cached result, or null if there is no result for the current epoch
+     */
+    public synchronized List<Product> get(FilterState filters, String name, SortStrategy sortStrategy, long epoch) {
+        Key key = new Key(filters, name, sortStrategy);
+        Entry entry = entries.get(key);
+
+        if (entry == null || entry.epoch() != epoch) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.products();
+    }
+
+    /**
+     * Stores a query result.
+     *
+     * @param filters the snapshot of the filters, or null if no filters are used
+     * @param name the name the products were filtered by
+     * @param sortStrategy the sort strategy, or null if the products were not sorted
+     * @param epoch the catalog epoch the result was computed at
+     * @param products the query result, which must not be modified afterwards
+     */
+    public synchronized void put(FilterState filters, String name, SortStrategy sortStrategy, long epoch, List<Product> products) {
+        if (capacity > 0) {
+            entries.put(new Key(filters, name, sortStrategy), new Entry(epoch, products));
+        }
+    }
+
+    /**
+     * Retrieves the number of lookups that found a result.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that did not find a result.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of cached queries.
+     *
+     * @return the number of cached queries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,67 @@
+package Product;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-ordered 64-bit ids in the style of Snowflake ids.
+ * An id packs the milliseconds since {@link #EPOCH} into its upper 41 bits, a 12-bit sequence number
+ * and finally a 10-bit node id, so generators with different node ids never produce the same id.
+ * The last id is kept in an atomic long, so ids are generated without locking and without allocation.
+ * When more than 4096 ids are requested within one millisecond, the sequence carries over into the next millisecond.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    /**
+     * Start of the timestamps stored in ids, 2024-01-01T00:00:00Z.
+     */
+    public static final long EPOCH = 1_704_067_200_000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    private final long node;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Constructs a generator for a node.
+     *
+     * @param node the node id, between 0 and 1023
+     * @throws IllegalArgumentException if the node id is out of range
+     */
+    public SnowflakeIdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + ".");
+        }
+
+        this.node = node;
+    }
+
+    /**
+     * Generates the next id, which is greater than every id generated before by this generator.
+     *
+     * @return the new id
+     */
+    @Override
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << (SEQUENCE_BITS + NODE_BITS);
+
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(now, ((previous >>> NODE_BITS) + 1) << NODE_BITS) | node;
+
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Extracts the creation time of an id.
+     *
+     * @param id an id generated by a Snowflake generator
+     * @return the creation time in milliseconds since the Unix epoch
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (SEQUENCE_BITS + NODE_BITS)) + EPOCH;
+    }
+}
@@ -0,0 +1,86 @@
+package Product;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that encodes repeated string values as small integer ids.
+ * Ids are never reused or reassigned, so they can be stored instead of the values and decoded at any time.
+ * Lookups do not lock, and new values are added under a lock, so one dictionary can be shared by all threads.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private volatile int size;
+
+    /**
+     * Returns the id of the value, adding it to the dictionary if it is not known yet.
+     *
+     * @param value the value to encode
+     * @return the id of the value
+     */
+    public int intern(String value) {
+        Integer id = ids.get(value);
+
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(value);
+
+            if (id == null) {
+                id = size;
+                String[] current = values;
+
+                if (id == current.length) {
+                    current = Arrays.copyOf(current, id * 2);
+                }
+
+                current[id] = value;
+                values = current;
+                size = id + 1;
+                ids.put(value, id);
+            }
+
+            return id;
+        }
+    }
+
+    /**
+     * Finds the id of the value without adding it to the dictionary.
+     *
+     * @param value the value to look up
+     * @return the id of the value, or -1 if the value is not known
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retrieves the value encoded by the id.
+     *
+     * @param id the id of the value
+     * @return the value encoded by the id
+     * @throws IndexOutOfBoundsException if the id was not handed out by this dictionary
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown dictionary id " + id + ".");
+        }
+
+        return values[id];
+    }
+
+    /**
+     * Retrieves the number of distinct values in the dictionary.
+     *
+     * @return the number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+}
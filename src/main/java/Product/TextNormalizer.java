@@ -0,0 +1,34 @@
+package Product;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folds text into the form used for searching: lowercased, decomposed with Unicode NFKD and stripped of
+ * combining marks, so "Café", "CAFE" and "cafe" all become "cafe" and Cyrillic and Latin titles are treated alike.
+ * Titles are normalized once when a product is built; search terms are normalized once per query.
+ */
+public final class TextNormalizer {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Normalizes a text for searching.
+     * The text is lowercased both before and after decomposition, so the result is stable when normalized again.
+     *
+     * @param text the text to normalize, or null
+     * @return the normalized text, or an empty string for null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,51 @@
+package Product;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Turns titles into binary collation keys that order them like a Ukrainian dictionary:
+ * Ukrainian letters in alphabet order (Г, Ґ, Д, Е, Є, ... И, І, Ї, Й), each Latin or Cyrillic letter
+ * with its case variants next to each other instead of all capitals first.
+ * Comparing two keys with {@link #compare(byte[], byte[])} gives the same result as the collator comparing the titles,
+ * so a key is computed once when a product is built and sorting only compares bytes.
+ * Every thread computes keys with its own copy of the collator, so building products in parallel does not contend.
+ */
+public final class TitleCollation {
+    /**
+     * Locale whose alphabet titles are sorted by.
+     */
+    public static final Locale LOCALE = Locale.forLanguageTag("uk-UA");
+
+    private static final Collator PROTOTYPE = Collator.getInstance(LOCALE);
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> (Collator) PROTOTYPE.clone());
+
+    private TitleCollation() {
+    }
+
+    /**
+     * Computes the collation key of a title.
+     *
+     * @param title the title, or null
+     * @return the binary collation key, empty for null
+     */
+    public static byte[] sortKey(String title) {
+        if (title == null) {
+            return new byte[0];
+        }
+
+        return COLLATOR.get().getCollationKey(title).toByteArray();
+    }
+
+    /**
+     * Compares two collation keys.
+     *
+     * @param left the first key
+     * @param right the second key
+     * @return a negative number, zero or a positive number as the first title sorts before, with or after the second
+     */
+    public static int compare(byte[] left, byte[] right) {
+        return Arrays.compareUnsigned(left, right);
+    }
+}
@@ -0,0 +1,367 @@
+package Sort;
+
+import Product.Product;
+import Product.ProductCatalog;
+import Product.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of SortStrategy for sorting products by several keys in turn, such as price and then title.
+ * The first two leading numeric keys are extracted once per product and packed into a 64-bit key, which is sorted
+ * together with the ordinals by a stable LSD radix sort. When a title key comes earlier, the first characters of the
+ * title fill the rest of the 64 bits. Only products tied on the packed key are compared by the remaining keys,
+ * starting with the full title. Products equal on every key keep their original order.
+ */
+public class CompositeSort implements SortStrategy {
+    private final List<SortKey> keys;
+    private final int numericPrefix;
+
+    /**
+     * Constructs a strategy sorting by the given keys, the first key being the most significant.
+     *
+     * @param keys the keys to sort by
+     * @throws IllegalArgumentException if no key is given
+     */
+    public CompositeSort(SortKey... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("At least one sort key is required.");
+        }
+
+        this.keys = List.of(keys);
+
+        int prefix = 0;
+
+        while (prefix < keys.length && keys[prefix].isNumeric()) {
+            prefix++;
+        }
+
+        this.numericPrefix = prefix;
+    }
+
+    /**
+     * Retrieves the keys of the strategy.
+     *
+     * @return the keys, most significant first
+     */
+    public List<SortKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Sorts the list of products by the keys of the strategy.
+     *
+     * @param products the list of products to be sorted
+     * @return the sorted list of products
+     */
+    @Override
+    public List<Product> sortProducts(List<Product> products) {
+        Product[] source = products.toArray(new Product[0]);
+        int[][] radixKeys = new int[radixKeyCount()][];
+
+        for (int k = 0; k < radixKeys.length; k++) {
+            if (k < numericPrefix) {
+                radixKeys[k] = keysOf(keys.get(k), source);
+            } else {
+                String[] titles = new String[source.length];
+
+                for (int i = 0; i < titles.length; i++) {
+                    titles[i] = source[i].getTitle();
+                }
+
+                titlePrefixKeys(radixKeys, k, titles);
+                break;
+            }
+        }
+
+        int[] positions = new int[source.length];
+
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+
+        Comparator<Product> rest = comparatorOf(keys.subList(restFrom(), keys.size()));
+        sort(radixKeys, positions, rest == null ? null : (left, right) -> rest.compare(source[left], source[right]));
+        List<Product> sortedProducts = new ArrayList<>(source.length);
+
+        for (int position : positions) {
+            sortedProducts.add(source[position]);
+        }
+
+        return sortedProducts;
+    }
+
+    /**
+     * Sorts ordinals of a columnar catalog by the keys of the strategy, reading the keys from the catalog columns.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals to be sorted
+     * @return the sorted ordinals
+     */
+    @Override
+    public int[] sortOrdinals(ProductCatalog catalog, int[] ordinals) {
+        int[][] radixKeys = new int[radixKeyCount()][];
+
+        for (int k = 0; k < radixKeys.length; k++) {
+            if (k < numericPrefix) {
+                radixKeys[k] = keysOf(keys.get(k), catalog, ordinals);
+            } else {
+                String[] titles = new String[ordinals.length];
+
+                for (int i = 0; i < titles.length; i++) {
+                    titles[i] = catalog.getTitle(ordinals[i]);
+                }
+
+                titlePrefixKeys(radixKeys, k, titles);
+                break;
+            }
+        }
+
+        int[] sortedOrdinals = ordinals.clone();
+        sort(radixKeys, sortedOrdinals, ordinalComparatorOf(keys.subList(restFrom(), keys.size()), catalog));
+        return sortedOrdinals;
+    }
+
+    /**
+     * Returns the comparator of products by all keys of the strategy.
+     *
+     * @return the product comparator
+     */
+    @Override
+    public Comparator<Product> getComparator() {
+        return comparatorOf(keys);
+    }
+
+    /**
+     * Returns a comparator of catalog ordinals by all keys of the strategy.
+     * Strategies sorting by stock return null, because stock changes do not update the catalog indexes
+     * and a pre-sorted view by stock would go stale.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator, or null if the keys include the stock
+     */
+    @Override
+    public IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return keys.contains(SortKey.STOCK) ? null : ordinalComparatorOf(keys, catalog);
+    }
+
+    /**
+     * Counts the int keys packed into the 64-bit radix key: the first two leading numeric keys,
+     * or the title prefix when a title key comes before two numeric keys.
+     *
+     * @return the number of int keys, one or two
+     */
+    private int radixKeyCount() {
+        return numericPrefix < keys.size() ? 2 : Math.min(numericPrefix, 2);
+    }
+
+    /**
+     * Finds the first key the radix key does not decide on its own, which ties are compared from.
+     *
+     * @return the index of the first key to compare
+     */
+    private int restFrom() {
+        return Math.min(numericPrefix, 2);
+    }
+
+    /**
+     * Sorts values by the radix keys and then by the comparator among values with equal radix keys.
+     *
+     * @param radixKeys one or two int keys by position, most significant first
+     * @param values the values to sort in place, in the same order as the keys
+     * @param rest compares two values by the keys the radix keys do not decide, or null if there are none
+     */
+    private static void sort(int[][] radixKeys, int[] values, IntBinaryOperator rest) {
+        long[] packed = new long[values.length];
+
+        for (int i = 0; i < packed.length; i++) {
+            long high = OrdinalSort.unsignedKey(radixKeys[0][i]);
+            long low = radixKeys.length > 1 ? OrdinalSort.unsignedKey(radixKeys[1][i]) : 0;
+            packed[i] = (high << 32) | low;
+        }
+
+        OrdinalSort.sort(packed, values, rest);
+    }
+
+    /**
+     * Fills the remaining radix keys with the first characters of the titles, two UTF-16 characters per key.
+     * Missing characters count as zero, so a title sorts before the titles it is a prefix of, as with
+     * {@link String#compareTo}; titles with equal prefixes are then compared in full.
+     *
+     * @param radixKeys the radix keys to fill
+     * @param from the first radix key to fill
+     * @param titles the title at each position
+     */
+    private static void titlePrefixKeys(int[][] radixKeys, int from, String[] titles) {
+        for (int k = from; k < radixKeys.length; k++) {
+            int[] chars = new int[titles.length];
+
+            for (int i = 0; i < titles.length; i++) {
+                chars[i] = packChars(titles[i], (k - from) * 2);
+            }
+
+            radixKeys[k] = chars;
+        }
+    }
+
+    /**
+     * Packs two characters of a text into an int whose signed order matches their unsigned order.
+     *
+     * @param text the text
+     * @param from the position of the first character
+     * @return the packed characters
+     */
+    private static int packChars(String text, int from) {
+        int first = from < text.length() ? text.charAt(from) : 0;
+        int second = from + 1 < text.length() ? text.charAt(from + 1) : 0;
+
+        return ((first << 16) | second) ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Extracts a numeric key of every product.
+     *
+     * @param key the numeric key
+     * @param products the products
+     * @return the key of each product, in the same order
+     */
+    private static int[] keysOf(SortKey key, Product[] products) {
+        int[] values = new int[products.length];
+
+        for (int i = 0; i < values.length; i++) {
+            Product product = products[i];
+
+            values[i] = switch (key) {
+                case PRICE -> OrdinalSort.priceKey(product.getPrice());
+                case STOCK -> product.getQauntity();
+                default -> product.getBrandId();
+            };
+        }
+
+        return key == SortKey.BRAND ? rankBrands(values, Product.BRANDS) : values;
+    }
+
+    /**
+     * Extracts a numeric key of every ordinal from the catalog columns.
+     *
+     * @param key the numeric key
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals
+     * @return the key of each ordinal, in the same order
+     */
+    private static int[] keysOf(SortKey key, ProductCatalog catalog, int[] ordinals) {
+        int[] values = new int[ordinals.length];
+
+        for (int i = 0; i < values.length; i++) {
+            int ordinal = ordinals[i];
+
+            values[i] = switch (key) {
+                case PRICE -> OrdinalSort.priceKey(catalog.getPrice(ordinal));
+                case STOCK -> catalog.getQuantity(ordinal);
+                default -> catalog.getBrandId(ordinal);
+            };
+        }
+
+        return key == SortKey.BRAND ? rankBrands(values, catalog.getBrands()) : values;
+    }
+
+    /**
+     * Replaces brand codes with the rank of the brand name among the brands present, with a missing brand first.
+     *
+     * @param codes the brand codes, or -1 for no brand; replaced in place
+     * @param brands the dictionary the codes come from
+     * @return the ranks
+     */
+    private static int[] rankBrands(int[] codes, StringDictionary brands) {
+        int maxCode = -1;
+
+        for (int code : codes) {
+            maxCode = Math.max(maxCode, code);
+        }
+
+        int[] ranks = new int[maxCode + 2];
+        List<Integer> present = new ArrayList<>();
+
+        for (int code : codes) {
+            if (ranks[code + 1] == 0) {
+                ranks[code + 1] = 1;
+                present.add(code);
+            }
+        }
+
+        present.sort(Comparator.<Integer, String>comparing(code -> code < 0 ? null : brands.get(code),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        for (int rank = 0; rank < present.size(); rank++) {
+            ranks[present.get(rank) + 1] = rank;
+        }
+
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = ranks[codes[i] + 1];
+        }
+
+        return codes;
+    }
+
+    /**
+     * Chains the product comparators of the keys.
+     *
+     * @param keys the keys, most significant first
+     * @return the chained comparator, or null if there are no keys
+     */
+    private static Comparator<Product> comparatorOf(List<SortKey> keys) {
+        Comparator<Product> comparator = null;
+
+        for (SortKey key : keys) {
+            comparator = comparator == null ? key.comparator() : comparator.thenComparing(key.comparator());
+        }
+
+        return comparator;
+    }
+
+    /**
+     * Chains the ordinal comparators of the keys.
+     *
+     * @param keys the keys, most significant first
+     * @param catalog the catalog the ordinals belong to
+     * @return the chained comparator, or null if there are no keys
+     */
+    private static IntBinaryOperator ordinalComparatorOf(List<SortKey> keys, ProductCatalog catalog) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        IntBinaryOperator[] comparators = new IntBinaryOperator[keys.size()];
+
+        for (int i = 0; i < comparators.length; i++) {
+            comparators[i] = keys.get(i).ordinalComparator(catalog);
+        }
+
+        return (left, right) -> {
+            for (IntBinaryOperator comparator : comparators) {
+                int compare = comparator.applyAsInt(left, right);
+
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+
+            return 0;
+        };
+    }
+
+    /**
+     * Returns a string representation of this sorting strategy.
+     *
+     * @return a string representation of this sorting strategy
+     */
+    @Override
+    public String toString(){
+        return "Sorting by " + keys.stream().map(key -> key.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,475 @@
+package Sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Helpers for sorting arrays of catalog ordinals without boxing them.
+ * Sorts of at least the parallel threshold are split into fork/join tasks whose sorted pieces are merged stably,
+ * so they produce the same order as a sequential sort; see {@link #setParallelExecution(ForkJoinPool, int)}.
+ */
+public final class OrdinalSort {
+    /**
+     * Default smallest number of values that is sorted in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 17;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int RADIX_SORT_THRESHOLD = 64;
+    private static final int RADIX = 256;
+    private static final int MIN_LEAF_SIZE = 1 << 13;
+
+    private static volatile ForkJoinPool parallelPool = ForkJoinPool.commonPool();
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private OrdinalSort() {}
+
+    /**
+     * Configures when sorts run in parallel. By default sorts of at least {@link #DEFAULT_PARALLEL_THRESHOLD} values
+     * run in the common pool, as long as it has more than one thread.
+     *
+     * @param pool the pool to run sorting tasks in, or null to always sort sequentially
+     * @param threshold the smallest number of values that is sorted in parallel
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public static void setParallelExecution(ForkJoinPool pool, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Parallel threshold must be positive.");
+        }
+
+        parallelPool = pool;
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Converts a price into an int whose signed order matches {@link Float#compare}.
+     *
+     * @param price the price to convert
+     * @return the sortable key of the price
+     */
+    public static int priceKey(float price) {
+        int bits = Float.floatToIntBits(price);
+
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Sorts ordinals by a primitive int key, keeping the original order of ordinals with equal keys.
+     *
+     * @param ordinals the ordinals to sort in place
+     * @param keys the sort key of each ordinal, in the same order as the ordinals
+     */
+    public static void sortByKey(int[] ordinals, int[] keys) {
+        long[] packed = new long[ordinals.length];
+
+        for (int i = 0; i < ordinals.length; i++) {
+            packed[i] = unsignedKey(keys[i]) << 32;
+        }
+
+        sort(packed, ordinals, null);
+    }
+
+    /**
+     * Sorts values by unsigned 64-bit keys and values with equal keys by a comparator, keeping the original order
+     * of values that still compare as equal. The keys are radix sorted and only runs of equal keys are compared,
+     * so the keys should hold as much of the order as possible. Large arrays are sorted in parallel.
+     *
+     * @param keys the sort keys, sorted in place
+     * @param values the value of each key, moved along with it
+     * @param comparator compares two values with equal keys, or null to keep them in their original order
+     */
+    public static void sort(long[] keys, int[] values, IntBinaryOperator comparator) {
+        if (isParallel(values.length)) {
+            sortInParallel(keys, values, comparator);
+            return;
+        }
+
+        radixSort(keys, values);
+
+        if (comparator != null) {
+            sortTies(keys, values, comparator);
+        }
+    }
+
+    /**
+     * Converts a signed int key into a long whose unsigned order matches the signed order of the key.
+     *
+     * @param key the key
+     * @return the key as an unsigned 32-bit value
+     */
+    public static long unsignedKey(int key) {
+        return (key ^ Integer.MIN_VALUE) & 0xffffffffL;
+    }
+
+    /**
+     * Sorts values by unsigned 64-bit keys, keeping the original order of values with equal keys.
+     * Large arrays are sorted with an LSD radix sort that moves each key together with its value,
+     * so no pass has to look anything up in random order; bytes that are the same for every key are skipped.
+     * Small arrays use an insertion sort.
+     *
+     * @param keys the sort keys, sorted in place
+     * @param values the value of each key, moved along with it
+     */
+    public static void radixSort(long[] keys, int[] values) {
+        if (keys.length < RADIX_SORT_THRESHOLD) {
+            insertionSort(keys, values);
+            return;
+        }
+
+        int[][] counts = new int[Long.BYTES][RADIX];
+
+        for (long key : keys) {
+            for (int digit = 0; digit < Long.BYTES; digit++) {
+                counts[digit][(int) (key >>> (digit * 8)) & (RADIX - 1)]++;
+            }
+        }
+
+        long[] sourceKeys = keys;
+        int[] sourceValues = values;
+        long[] targetKeys = new long[keys.length];
+        int[] targetValues = new int[values.length];
+
+        for (int digit = 0; digit < Long.BYTES; digit++) {
+            int shift = digit * 8;
+            int[] offsets = counts[digit];
+
+            if (offsets[(int) (sourceKeys[0] >>> shift) & (RADIX - 1)] == sourceKeys.length) {
+                continue;
+            }
+
+            for (int i = 0, offset = 0; i < RADIX; i++) {
+                int count = offsets[i];
+                offsets[i] = offset;
+                offset += count;
+            }
+
+            for (int i = 0; i < sourceKeys.length; i++) {
+                long key = sourceKeys[i];
+                int position = offsets[(int) (key >>> shift) & (RADIX - 1)]++;
+                targetKeys[position] = key;
+                targetValues[position] = sourceValues[i];
+            }
+
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapValues = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swapValues;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+            System.arraycopy(sourceValues, 0, values, 0, values.length);
+        }
+    }
+
+    /**
+     * Sorts values by unsigned keys with an insertion sort, keeping the original order of values with equal keys.
+     *
+     * @param keys the sort keys, sorted in place
+     * @param values the value of each key, moved along with it
+     */
+    private static void insertionSort(long[] keys, int[] values) {
+        for (int i = 1; i < keys.length; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+
+            while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sorts each run of values that share a key with a comparator, after the keys were sorted by {@link #radixSort}.
+     * This finishes a sort whose keys only hold a prefix of the order, such as the first characters of a title.
+     *
+     * @param keys the sorted keys
+     * @param values the values of the keys, whose runs are sorted in place
+     * @param comparator compares two values with equal keys
+     */
+    public static void sortTies(long[] keys, int[] values, IntBinaryOperator comparator) {
+        int start = 0;
+
+        for (int i = 1; i <= keys.length; i++) {
+            if (i == keys.length || keys[i] != keys[start]) {
+                if (i - start > 1) {
+                    int[] run = Arrays.copyOfRange(values, start, i);
+                    mergeSort(run, comparator);
+                    System.arraycopy(run, 0, values, start, run.length);
+                }
+
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * Sorts ordinals with a comparator, keeping the original order of ordinals that compare as equal.
+     *
+     * @param ordinals the ordinals to sort in place
+     * @param comparator compares two ordinals
+     */
+    public static void sort(int[] ordinals, IntBinaryOperator comparator) {
+        if (isParallel(ordinals.length)) {
+            sortInParallel(null, ordinals, comparator);
+            return;
+        }
+
+        mergeSort(ordinals, comparator);
+    }
+
+    /**
+     * Sorts the first ordinals of an array with a comparator, keeping the original order of ordinals that compare
+     * as equal. The merge runs through a caller-supplied scratch array, so nothing is allocated; the sort is always
+     * sequential.
+     *
+     * @param ordinals the ordinals, whose first size entries are sorted in place
+     * @param size the number of ordinals to sort
+     * @param comparator compares two ordinals
+     * @param scratch a scratch array at least size long
+     */
+    public static void sort(int[] ordinals, int size, IntBinaryOperator comparator, int[] scratch) {
+        System.arraycopy(ordinals, 0, scratch, 0, size);
+        mergeSort(scratch, ordinals, 0, size, comparator);
+    }
+
+    /**
+     * Sorts a range of values sequentially by optional keys and then by a comparator, as one piece of a parallel sort.
+     *
+     * @param keys the unsigned sort keys, or null to sort by the comparator only
+     * @param values the values
+     * @param comparator compares two values with equal keys, or null
+     * @param from the first position of the range
+     * @param to the position after the end of the range
+     */
+    static void sortRange(long[] keys, int[] values, IntBinaryOperator comparator, int from, int to) {
+        int[] rangeValues = Arrays.copyOfRange(values, from, to);
+
+        if (keys == null) {
+            mergeSort(rangeValues, comparator);
+        } else {
+            long[] rangeKeys = Arrays.copyOfRange(keys, from, to);
+            radixSort(rangeKeys, rangeValues);
+
+            if (comparator != null) {
+                sortTies(rangeKeys, rangeValues, comparator);
+            }
+
+            System.arraycopy(rangeKeys, 0, keys, from, rangeKeys.length);
+        }
+
+        System.arraycopy(rangeValues, 0, values, from, rangeValues.length);
+    }
+
+    /**
+     * Checks whether a sort of the given size should run in parallel.
+     *
+     * @param size the number of values to sort
+     * @return true if a pool with more than one thread is configured and the size reaches the threshold, false otherwise
+     */
+    private static boolean isParallel(int size) {
+        ForkJoinPool pool = parallelPool;
+
+        return pool != null && pool.getParallelism() > 1 && size >= parallelThreshold;
+    }
+
+    /**
+     * Sorts values in the configured pool.
+     *
+     * @param keys the unsigned sort keys, or null to sort by the comparator only
+     * @param values the values to sort in place
+     * @param comparator compares two values with equal keys, or null
+     */
+    private static void sortInParallel(long[] keys, int[] values, IntBinaryOperator comparator) {
+        ForkJoinPool pool = parallelPool;
+        int leafSize = Math.max(MIN_LEAF_SIZE, values.length / (pool.getParallelism() * 4));
+
+        pool.invoke(new ParallelSort(keys, values, comparator, leafSize));
+    }
+
+    /**
+     * Sorts ordinals sequentially with a stable merge sort.
+     *
+     * @param ordinals the ordinals to sort in place
+     * @param comparator compares two ordinals
+     */
+    private static void mergeSort(int[] ordinals, IntBinaryOperator comparator) {
+        int[] buffer = ordinals.clone();
+
+        mergeSort(buffer, ordinals, 0, ordinals.length, comparator);
+    }
+
+    /**
+     * Selects the first ordinals in comparator order without sorting all of them, using a bounded max-heap.
+     * Ordinals comparing as equal are ordered by their value, as a stable sort of ascending ordinals would.
+     *
+     * @param ordinals the ordinals to select from, in ascending order
+     * @param count the number of ordinals to select
+     * @param comparator compares two ordinals
+     * @return the selected ordinals in sorted order
+     */
+    public static int[] selectFirst(int[] ordinals, int count, IntBinaryOperator comparator) {
+        IntBinaryOperator order = (left, right) -> {
+            int compare = comparator.applyAsInt(left, right);
+            return compare != 0 ? compare : Integer.compare(left, right);
+        };
+
+        if (count >= ordinals.length) {
+            int[] sorted = ordinals.clone();
+            sort(sorted, order);
+            return sorted;
+        }
+
+        int[] heap = new int[count];
+        int size = 0;
+
+        for (int ordinal : ordinals) {
+            if (size < count) {
+                heap[size] = ordinal;
+                siftUp(heap, size++, order);
+            } else if (count > 0 && order.applyAsInt(ordinal, heap[0]) < 0) {
+                heap[0] = ordinal;
+                siftDown(heap, size, order);
+            }
+        }
+
+        sort(heap, order);
+        return heap;
+    }
+
+    /**
+     * Keeps only the ordinals that come after a cursor ordinal in comparator order, ties broken by ordinal.
+     *
+     * @param ordinals the ordinals to filter
+     * @param afterOrdinal the cursor ordinal
+     * @param comparator compares two ordinals
+     * @return the ordinals after the cursor
+     */
+    public static int[] keepAfter(int[] ordinals, int afterOrdinal, IntBinaryOperator comparator) {
+        int[] result = new int[ordinals.length];
+        int count = 0;
+
+        for (int ordinal : ordinals) {
+            int compare = comparator.applyAsInt(ordinal, afterOrdinal);
+
+            if (compare > 0 || (compare == 0 && ordinal > afterOrdinal)) {
+                result[count++] = ordinal;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Moves the last added element of a max-heap up to its place.
+     *
+     * @param heap the heap
+     * @param index the index of the added element
+     * @param order compares two ordinals
+     */
+    private static void siftUp(int[] heap, int index, IntBinaryOperator order) {
+        int value = heap[index];
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+
+            if (order.applyAsInt(heap[parent], value) >= 0) {
+                break;
+            }
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = value;
+    }
+
+    /**
+     * Moves the root of a max-heap down to its place.
+     *
+     * @param heap the heap
+     * @param size the number of elements in the heap
+     * @param order compares two ordinals
+     */
+    private static void siftDown(int[] heap, int size, IntBinaryOperator order) {
+        int value = heap[0];
+        int index = 0;
+
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && order.applyAsInt(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+
+            if (order.applyAsInt(heap[child], value) <= 0) {
+                break;
+            }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = value;
+    }
+
+    /**
+     * Sorts the range of the source into the destination; both arrays must hold the same values on entry.
+     *
+     * @param source the array used as scratch space
+     * @param destination the array receiving the sorted range
+     * @param from the first index of the range
+     * @param to the index after the last one of the range
+     * @param comparator compares two ordinals
+     */
+    private static void mergeSort(int[] source, int[] destination, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = destination[i];
+                int j = i - 1;
+
+                while (j >= from && comparator.applyAsInt(destination[j], value) > 0) {
+                    destination[j + 1] = destination[j];
+                    j--;
+                }
+
+                destination[j + 1] = value;
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(destination, source, from, middle, comparator);
+        mergeSort(destination, source, middle, to, comparator);
+
+        if (comparator.applyAsInt(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, from, destination, from, to - from);
+            return;
+        }
+
+        int left = from;
+        int right = middle;
+
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(source[left], source[right]) <= 0)) {
+                destination[i] = source[left++];
+            } else {
+                destination[i] = source[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Sort;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Fork/join task that sorts values by optional unsigned keys and then by a comparator.
+ * The range is split in halves until pieces are small enough to be sorted sequentially, and sorted halves are merged
+ * taking from the left half first on ties. Since every step is stable, the result is the same as the sequential sort.
+ */
+class ParallelSort extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] keys;
+    private final int[] values;
+    private final long[] keyBuffer;
+    private final int[] valueBuffer;
+    private final transient IntBinaryOperator comparator;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+
+    /**
+     * Constructs a task sorting a whole array of values.
+     *
+     * @param keys the unsigned sort key of each value, sorted in place, or null to sort by the comparator only
+     * @param values the values to sort in place
+     * @param comparator compares two values with equal keys, or null if equal keys keep their order
+     * @param leafSize the largest range that is sorted without splitting
+     */
+    ParallelSort(long[] keys, int[] values, IntBinaryOperator comparator, int leafSize) {
+        this(keys, values, keys == null ? null : new long[keys.length], new int[values.length], comparator, 0, values.length, leafSize);
+    }
+
+    /**
+     * Constructs a task sorting a range of values with shared merge buffers.
+     *
+     * @param keys the unsigned sort keys, or null
+     * @param values the values
+     * @param keyBuffer the buffer keys are merged into, or null without keys
+     * @param valueBuffer the buffer values are merged into
+     * @param comparator compares two values with equal keys, or null
+     * @param from the first position of the range
+     * @param to the position after the end of the range
+     * @param leafSize the largest range that is sorted without splitting
+     */
+    private ParallelSort(long[] keys, int[] values, long[] keyBuffer, int[] valueBuffer, IntBinaryOperator comparator,
+                         int from, int to, int leafSize) {
+        this.keys = keys;
+        this.values = values;
+        this.keyBuffer = keyBuffer;
+        this.valueBuffer = valueBuffer;
+        this.comparator = comparator;
+        this.from = from;
+        this.to = to;
+        this.leafSize = Math.max(1, leafSize);
+    }
+
+    /**
+     * Sorts the range, splitting it into subtasks when it is larger than the leaf size.
+     */
+    @Override
+    protected void compute() {
+        if (to - from <= leafSize) {
+            OrdinalSort.sortRange(keys, values, comparator, from, to);
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        ParallelSort left = new ParallelSort(keys, values, keyBuffer, valueBuffer, comparator, from, middle, leafSize);
+        ParallelSort right = new ParallelSort(keys, values, keyBuffer, valueBuffer, comparator, middle, to, leafSize);
+
+        left.fork();
+        right.compute();
+        left.join();
+
+        if (compare(middle, middle - 1) >= 0) {
+            return;
+        }
+
+        merge(middle);
+    }
+
+    /**
+     * Merges the sorted halves of the range through the buffers, taking from the left half on ties.
+     *
+     * @param middle the first position of the right half
+     */
+    private void merge(int middle) {
+        int left = from;
+        int right = middle;
+
+        for (int i = from; i < to; i++) {
+            int position = right >= to || (left < middle && compare(right, left) >= 0) ? left++ : right++;
+
+            valueBuffer[i] = values[position];
+
+            if (keys != null) {
+                keyBuffer[i] = keys[position];
+            }
+        }
+
+        System.arraycopy(valueBuffer, from, values, from, to - from);
+
+        if (keys != null) {
+            System.arraycopy(keyBuffer, from, keys, from, to - from);
+        }
+    }
+
+    /**
+     * Compares the values at two positions by key and then by the comparator.
+     *
+     * @param first the position of the first value
+     * @param second the position of the second value
+     * @return a negative number, zero or a positive number as the first value sorts before, with or after the second
+     */
+    private int compare(int first, int second) {
+        if (keys != null) {
+            int order = Long.compareUnsigned(keys[first], keys[second]);
+
+            if (order != 0) {
+                return order;
+            }
+        }
+
+        return comparator == null ? 0 : comparator.applyAsInt(values[first], values[second]);
+    }
+}
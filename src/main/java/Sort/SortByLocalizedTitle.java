@@ -0,0 +1,116 @@
+package Sort;
+
+import Product.Product;
+import Product.ProductCatalog;
+import Product.TitleCollation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Implementation of SortStrategy for sorting products by title in the order of the Ukrainian alphabet,
+ * ignoring case differences before letter differences. Titles are compared by the collation keys cached with
+ * every product, so no collator runs while sorting: the first bytes of each key are radix sorted
+ * and only titles sharing those bytes are compared in full.
+ *
+ * @see TitleCollation
+ */
+public class SortByLocalizedTitle implements SortStrategy{
+    /**
+     * Sorts the list of products by title.
+     *
+     * @param products the list of products to be sorted
+     * @return the sorted list of products
+     */
+    @Override
+    public List<Product> sortProducts(List<Product> products) {
+        Product[] source = products.toArray(new Product[0]);
+        int[] positions = new int[source.length];
+        long[] keys = new long[source.length];
+
+        for (int i = 0; i < source.length; i++) {
+            positions[i] = i;
+            keys[i] = prefixOf(source[i].getTitleSortKey());
+        }
+
+        OrdinalSort.sort(keys, positions, (left, right) -> TitleCollation.compare(source[left].getTitleSortKey(), source[right].getTitleSortKey()));
+        List<Product> sortedProducts = new ArrayList<Product>(source.length);
+
+        for (int position : positions) {
+            sortedProducts.add(source[position]);
+        }
+
+        return sortedProducts;
+    }
+
+    /**
+     * Returns the comparator of products by the collation keys of their titles.
+     *
+     * @return the product comparator
+     */
+    @Override
+    public Comparator<Product> getComparator() {
+        return (left, right) -> TitleCollation.compare(left.getTitleSortKey(), right.getTitleSortKey());
+    }
+
+    /**
+     * Sorts ordinals of a columnar catalog by the title collation key column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals to be sorted
+     * @return the sorted ordinals
+     */
+    @Override
+    public int[] sortOrdinals(ProductCatalog catalog, int[] ordinals) {
+        int[] sortedOrdinals = ordinals.clone();
+        long[] keys = new long[sortedOrdinals.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = prefixOf(catalog.getTitleSortKey(sortedOrdinals[i]));
+        }
+
+        OrdinalSort.sort(keys, sortedOrdinals, ordinalComparator(catalog));
+        return sortedOrdinals;
+    }
+
+    /**
+     * Returns a comparator of catalog ordinals by the title collation key column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator
+     */
+    @Override
+    public IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return (left, right) -> TitleCollation.compare(catalog.getTitleSortKey(left), catalog.getTitleSortKey(right));
+    }
+
+    /**
+     * Packs the first eight bytes of a collation key into a long whose unsigned order matches the order of the keys.
+     * Missing bytes count as zero, so keys that share their first eight bytes, or that are a prefix of each other,
+     * tie and are compared in full.
+     *
+     * @param key the collation key
+     * @return the key prefix
+     */
+    private static long prefixOf(byte[] key) {
+        long prefix = 0;
+
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix = (prefix << 8) | (i < key.length ? key[i] & 0xff : 0);
+        }
+
+        return prefix;
+    }
+
+    /**
+     * Returns a string representation of this sorting strategy.
+     *
+     * @return a string representation of this sorting strategy
+     */
+    @Override
+    public String toString(){
+        return "Sorting by title (alphabetical)";
+    }
+}
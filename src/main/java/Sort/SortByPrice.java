@@ -1,29 +1,85 @@
 package Sort;
 
 import Product.Product;
+import Product.ProductCatalog;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.IntBinaryOperator;
 
 /**
  * Implementation of SortStrategy for sorting products by price.
  */
 public class SortByPrice implements SortStrategy{
     /**
-     * Sorts the list of products by price.
+     * Sorts the list of products by price, extracting the price keys once and radix sorting them.
      *
      * @param products the list of products to be sorted
      * @return the sorted list of products
      */
     @Override
     public List<Product> sortProducts(List<Product> products) {
-        List<Product> sortedProducts = new ArrayList<Product>(products);
+        Product[] source = products.toArray(new Product[0]);
+        int[] positions = new int[source.length];
+        int[] keys = new int[source.length];
+
+        for (int i = 0; i < source.length; i++) {
+            positions[i] = i;
+            keys[i] = OrdinalSort.priceKey(source[i].getPrice());
+        }
+
+        OrdinalSort.sortByKey(positions, keys);
+        List<Product> sortedProducts = new ArrayList<Product>(source.length);
+
+        for (int position : positions) {
+            sortedProducts.add(source[position]);
+        }
 
-        sortedProducts.sort(Comparator.comparingDouble(Product::getPrice));
         return sortedProducts;
     }
 
+    /**
+     * Returns the comparator of products by price.
+     *
+     * @return the product comparator
+     */
+    @Override
+    public Comparator<Product> getComparator() {
+        return Comparator.comparingDouble(Product::getPrice);
+    }
+
+    /**
+     * Sorts ordinals of a columnar catalog by the price column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals to be sorted
+     * @return the sorted ordinals
+     */
+    @Override
+    public int[] sortOrdinals(ProductCatalog catalog, int[] ordinals) {
+        int[] sortedOrdinals = ordinals.clone();
+        int[] keys = new int[sortedOrdinals.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = OrdinalSort.priceKey(catalog.getPrice(sortedOrdinals[i]));
+        }
+
+        OrdinalSort.sortByKey(sortedOrdinals, keys);
+        return sortedOrdinals;
+    }
+
+    /**
+     * Returns a comparator of catalog ordinals by the price column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator
+     */
+    @Override
+    public IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return (left, right) -> Float.compare(catalog.getPrice(left), catalog.getPrice(right));
+    }
+
     /**
      * Returns a string representation of this sorting strategy.
      *
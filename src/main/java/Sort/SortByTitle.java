@@ -1,29 +1,78 @@
 package Sort;
 
 import Product.Product;
+import Product.ProductCatalog;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.IntBinaryOperator;
 
 /**
  * Implementation of SortStrategy for sorting products by title.
  */
 public class SortByTitle implements SortStrategy{
     /**
-     * Sorts the list of products by title.
+     * Sorts the list of products by title, sorting their positions so large lists can be sorted in parallel.
      *
      * @param products the list of products to be sorted
      * @return the sorted list of products
      */
     @Override
     public List<Product> sortProducts(List<Product> products) {
-        List<Product> sortedProducts = new ArrayList<Product>(products);
+        Product[] source = products.toArray(new Product[0]);
+        int[] positions = new int[source.length];
+
+        for (int i = 0; i < source.length; i++) {
+            positions[i] = i;
+        }
+
+        OrdinalSort.sort(positions, (left, right) -> source[left].getTitle().compareTo(source[right].getTitle()));
+        List<Product> sortedProducts = new ArrayList<Product>(source.length);
+
+        for (int position : positions) {
+            sortedProducts.add(source[position]);
+        }
 
-        sortedProducts.sort(Comparator.comparing(Product::getTitle));
         return sortedProducts;
     }
 
+    /**
+     * Returns the comparator of products by title.
+     *
+     * @return the product comparator
+     */
+    @Override
+    public Comparator<Product> getComparator() {
+        return Comparator.comparing(Product::getTitle);
+    }
+
+    /**
+     * Sorts ordinals of a columnar catalog by the title column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals to be sorted
+     * @return the sorted ordinals
+     */
+    @Override
+    public int[] sortOrdinals(ProductCatalog catalog, int[] ordinals) {
+        int[] sortedOrdinals = ordinals.clone();
+
+        OrdinalSort.sort(sortedOrdinals, ordinalComparator(catalog));
+        return sortedOrdinals;
+    }
+
+    /**
+     * Returns a comparator of catalog ordinals by the title column.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator
+     */
+    @Override
+    public IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return (left, right) -> catalog.getTitle(left).compareTo(catalog.getTitle(right));
+    }
+
     /**
      * Returns a string representation of this sorting strategy.
      *
@@ -0,0 +1,77 @@
+package Sort;
+
+import Product.Product;
+import Product.ProductCatalog;
+
+import java.util.Comparator;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Key a {@link CompositeSort} can order products by. All keys sort in ascending order;
+ * brands are ordered by name, with products without a brand first.
+ */
+public enum SortKey {
+    PRICE,
+    TITLE,
+    BRAND,
+    STOCK;
+
+    /**
+     * Checks whether the key can be turned into a primitive int per product and radix sorted.
+     * Brands qualify because the few distinct brands of a result are ranked by name before sorting.
+     *
+     * @return true for every key except the title
+     */
+    boolean isNumeric() {
+        return this != TITLE;
+    }
+
+    /**
+     * Returns the comparator of products by this key.
+     *
+     * @return the product comparator
+     */
+    Comparator<Product> comparator() {
+        return switch (this) {
+            case PRICE -> (left, right) -> Float.compare(left.getPrice(), right.getPrice());
+            case TITLE -> Comparator.comparing(Product::getTitle);
+            case BRAND -> Comparator.comparing(Product::getBrand, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case STOCK -> Comparator.comparingInt(Product::getQauntity);
+        };
+    }
+
+    /**
+     * Returns the comparator of catalog ordinals by this key.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator
+     */
+    IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return switch (this) {
+            case PRICE -> (left, right) -> Float.compare(catalog.getPrice(left), catalog.getPrice(right));
+            case TITLE -> (left, right) -> catalog.getTitle(left).compareTo(catalog.getTitle(right));
+            case BRAND -> (left, right) -> compareBrands(catalog, catalog.getBrandId(left), catalog.getBrandId(right));
+            case STOCK -> (left, right) -> Integer.compare(catalog.getQuantity(left), catalog.getQuantity(right));
+        };
+    }
+
+    /**
+     * Compares two brands by name, with a missing brand first.
+     *
+     * @param catalog the catalog whose brand dictionary the codes come from
+     * @param left the code of the first brand, or -1 for none
+     * @param right the code of the second brand, or -1 for none
+     * @return a negative number, zero or a positive number as the first brand sorts before, with or after the second
+     */
+    private static int compareBrands(ProductCatalog catalog, int left, int right) {
+        if (left == right) {
+            return 0;
+        }
+
+        if (left < 0 || right < 0) {
+            return left < 0 ? -1 : 1;
+        }
+
+        return catalog.getBrands().get(left).compareTo(catalog.getBrands().get(right));
+    }
+}
@@ -1,8 +1,11 @@
 package Sort;
 
 import Product.Product;
+import Product.ProductCatalog;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.IntBinaryOperator;
 
 
 /**
@@ -18,6 +21,49 @@ public interface SortStrategy {
      */
     List<Product> sortProducts(List<Product> products);
 
+    /**
+     * Returns the comparator of products this strategy sorts by, which lets callers select
+     * only the first results of a query instead of sorting all of them.
+     * The default implementation returns null, meaning the strategy can only sort whole lists.
+     *
+     * @return the product comparator, or null if the strategy does not provide one
+     */
+    default Comparator<Product> getComparator() {
+        return null;
+    }
+
+    /**
+     * Sorts ordinals of a columnar catalog using the implemented sorting strategy.
+     * The default implementation sorts the product objects and maps them back to their ordinals;
+     * strategies should override it to sort on the catalog columns directly.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @param ordinals the ordinals to be sorted
+     * @return the sorted ordinals
+     */
+    default int[] sortOrdinals(ProductCatalog catalog, int[] ordinals) {
+        List<Product> sortedProducts = sortProducts(catalog.getProducts(ordinals));
+        int[] sortedOrdinals = new int[sortedProducts.size()];
+
+        for (int i = 0; i < sortedOrdinals.length; i++) {
+            sortedOrdinals[i] = catalog.ordinalOf(sortedProducts.get(i));
+        }
+
+        return sortedOrdinals;
+    }
+
+    /**
+     * Returns a comparator of catalog ordinals that matches the order of this strategy,
+     * which lets the catalog keep a pre-sorted view for it.
+     * The default implementation returns null, meaning the strategy can only sort on demand.
+     *
+     * @param catalog the catalog the ordinals belong to
+     * @return the ordinal comparator, or null if the strategy does not provide one
+     */
+    default IntBinaryOperator ordinalComparator(ProductCatalog catalog) {
+        return null;
+    }
+
     /**
      * Returns a string representation of this sorting strategy.
      *
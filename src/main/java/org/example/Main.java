@@ -51,6 +51,9 @@ public class Main {
 
         allowedSortStrategies.add(sortByTitleStrategy);
         allowedSortStrategies.add(sortByPriceStrategy);
+        allowedSortStrategies.add(new SortByLocalizedTitle());
+        allowedSortStrategies.add(new CompositeSort(SortKey.PRICE, SortKey.TITLE));
+        allowedSortStrategies.add(new CompositeSort(SortKey.BRAND, SortKey.PRICE));
 
         //FILTER
         FilterType filterToConfigure = null;
@@ -142,12 +145,17 @@ public class Main {
                     }
                     case "Customer_Step1.1.2": {
                         productNameToFind = Console.askProductNameToSearch();
+
+                        for (Product suggestion : productsService.suggestProducts(productNameToFind, 5)) {
+                            System.out.println("Suggestion: " + suggestion.getTitle());
+                        }
                         step = step.substring(0, step.length() - 2);
 
                         break;
                     }
                     case "Customer_Step1.2": {
                         productsService.printAppliedFilters();
+                        System.out.println(productsService.getFacets(productNameToFind, 50, 100, 500));
                         String filtersAction = Console.askFilterActions();
 
                         if (!Objects.equals(filtersAction, "5")){
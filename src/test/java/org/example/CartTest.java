@@ -17,12 +17,12 @@ public class CartTest {
     }
 
     void addProductTestsSetUp() {
-        product1 = new Product("1", "Sample Product", 20, "some description", "some brand", "some category", 10 ,"image url");
+        product1 = new Product(1, "Sample Product", 20, "some description", "some brand", "some category", 10 ,"image url");
     }
 
     void removeProductTestsAndChangeQuantityTestsSetUp() throws Exception {
-        product1 = new Product("1", "Sample Product 1", 10, "some description 1", "some brand 1", "some category 1", 10 ,"image url 1");
-        product2 = new Product("2", "Sample Product 2", 20, "some description 2", "some brand 2", "some category 2", 5 ,"image url 2");
+        product1 = new Product(1, "Sample Product 1", 10, "some description 1", "some brand 1", "some category 1", 10 ,"image url 1");
+        product2 = new Product(2, "Sample Product 2", 20, "some description 2", "some brand 2", "some category 2", 5 ,"image url 2");
 
         cart.addProduct(product1, 3);
         cart.addProduct(product2, 2);
@@ -182,4 +182,14 @@ public class CartTest {
         assertEquals(7, product1.getQauntity());
         assertEquals(3, product2.getQauntity());
     }
+
+    @Test
+    void testFindProductById() throws Exception {
+        removeProductTestsAndChangeQuantityTestsSetUp();
+
+        assertSame(cart.getProducts().get(1), cart.findProduct(2));
+        cart.removeProduct(cart.findProduct(2));
+        assertNull(cart.findProduct(2));
+        assertEquals(30, cart.getTotalPrice());
+    }
 }
@@ -2,11 +2,15 @@ package org.example;
 
 import Filter.*;
 import Product.Product;
+import Product.ProductCatalog;
+import Product.TextNormalizer;
 import org.junit.jupiter.api.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -35,9 +39,9 @@ public class FilterServiceTest {
 
     void filterProductsSetUp(){
         products = Arrays.asList(
-                new Product("1", "title1", 120, "description1", "brand1", "category1", 10, "image1"),
-                new Product("2", "title2", 100, "description2", "brand2", "category1", 10, "image2"),
-                new Product("3", "title3", 200, "description3", "brand3", "category2", 10, "image3")
+                new Product(1, "title1", 120, "description1", "brand1", "category1", 10, "image1"),
+                new Product(2, "title2", 100, "description2", "brand2", "category1", 10, "image2"),
+                new Product(3, "title3", 200, "description3", "brand3", "category2", 10, "image3")
         );
     }
 
@@ -221,4 +225,178 @@ public class FilterServiceTest {
         assertEquals(1, filteredProducts.size());
         assertTrue(filteredProducts.get(0).getBrand().equals("brand1") && filteredProducts.get(0).getTitle().contains("title1"));
     }
+
+    @Test
+    void testFilterStateFollowsChanges() {
+        allFiltersSetUp();
+        FilterState state = filterService.getState();
+
+        filterService.removeArrayFilter(FilterType.BRAND, "Milka");
+        assertNotEquals(state, filterService.getState());
+
+        filterService.addBrandToFilter("Milka");
+        assertEquals(state, filterService.getState());
+    }
+
+    @Test
+    void testFilterListsCannotBypassFilters() {
+        assertThrows(UnsupportedOperationException.class, () -> filterService.getBrandFilters().add("Milka"));
+    }
+
+    @Test
+    void testParallelFilteringKeepsOrder() {
+        List<Product> manyProducts = new ArrayList<>();
+        ProductCatalog catalog = new ProductCatalog();
+
+        for (int i = 0; i < 5000; i++) {
+            Product product = new Product(i, "title" + i, i % 200, "description", "brand" + i % 3, "category", 1, "image");
+            manyProducts.add(product);
+            catalog.add(product);
+        }
+
+        filterService.addBrandToFilter("brand1");
+        filterService.changePriceFilters(FilterType.MIN_PRICE, 50f);
+        List<Product> sequential = filterService.filterProducts(manyProducts, "1");
+        List<Product> sequentialCatalog = filterService.filterProducts(catalog, "");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        filterService.setParallelExecution(pool, 1000);
+
+        assertEquals(sequential, filterService.filterProducts(manyProducts, "1"));
+        assertEquals(sequentialCatalog, filterService.filterProducts(catalog, ""));
+        pool.shutdown();
+    }
+
+    @Test
+    void testParallelThresholdMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> filterService.setParallelExecution(ForkJoinPool.commonPool(), 0));
+    }
+
+    @Test
+    void testPriceRangeMaskMatchesScalarCheck() {
+        float[] prices = new float[203];
+
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = (i * 37) % 100;
+        }
+
+        prices[5] = Float.NaN;
+        int[] positions = PriceRangeMask.toPositions(PriceRangeMask.select(prices, prices.length, 20f, 40f));
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] >= 20f && prices[i] <= 40f) {
+                expected.add(i);
+            }
+        }
+
+        assertEquals(expected, Arrays.stream(positions).boxed().toList());
+    }
+
+    @Test
+    void testWidePriceRangeOnCatalogSkipsRemovedProducts() {
+        ProductCatalog catalog = new ProductCatalog();
+        List<Product> expected = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product(i, "title" + i, i, "description", "brand", "category", 1, "image");
+            catalog.add(product);
+
+            if (i >= 10 && i % 7 != 0) {
+                expected.add(product);
+            }
+        }
+
+        for (int i = 0; i < 100; i += 7) {
+            catalog.remove(catalog.getProduct(i));
+        }
+
+        filterService.changePriceFilters(FilterType.MIN_PRICE, 10f);
+
+        assertEquals(expected, filterService.filterProducts(catalog, ""));
+    }
+
+    @Test
+    void testFacetsCountEachDimensionUnderTheOtherFilters() {
+        filterProductsSetUp();
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+        filterService.addBrandToFilter("brand1");
+        filterService.changePriceFilters(FilterType.MAX_PRICE, 150f);
+
+        for (FacetCounts facets : List.of(filterService.countFacets(products, "title", 110, 150),
+                filterService.countFacets(catalog, "title", 110, 150))) {
+            assertEquals(1, facets.getMatchCount());
+            assertEquals(Map.of("brand1", 1, "brand2", 1), facets.getBrandCounts());
+            assertEquals(Map.of("category1", 1), facets.getCategoryCounts());
+            assertArrayEquals(new int[]{0, 1, 0}, facets.getPriceCounts());
+        }
+
+        assertEquals(0, filterService.countFacets(catalog, "title3").getMatchCount());
+        assertThrows(IllegalArgumentException.class, () -> filterService.countFacets(products, "", 100, 50));
+    }
+
+    @Test
+    void testNameMatchingIgnoresCaseAndAccents() {
+        List<Product> accented = List.of(
+                new Product(1, "Crème brûlée", 120, "description1", "brand1", "category1", 10, "image1"),
+                new Product(2, "Шоколад Молочний", 100, "description2", "brand2", "category1", 10, "image2"),
+                new Product(3, "creme soda", 200, "description3", "brand3", "category2", 10, "image3")
+        );
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(accented);
+
+        assertEquals("creme brulee", TextNormalizer.normalize("CRÈME Brûlée"));
+        assertEquals(List.of(accented.get(0)), filterService.filterProducts(accented, "BRULEE"));
+        assertEquals(List.of(accented.get(0), accented.get(2)), filterService.filterProducts(catalog, "Crème"));
+        assertEquals(List.of(accented.get(1)), filterService.filterProducts(catalog, "молочний"));
+        assertArrayEquals(new int[]{1}, filterService.filterOrdinalsByPrice(catalog, "ШОКО"));
+    }
+
+    @Test
+    void testUnknownFilterValuesAreNotInterned() {
+        filterService.addBrandToFilter("Brand typed before any product");
+        filterService.addCategoryFilter("Category typed before any product");
+        ProductCatalog catalog = new ProductCatalog();
+
+        assertTrue(filterService.filterProducts(new ArrayList<>(), "").isEmpty());
+        assertEquals(0, filterService.countFacets(catalog, "").getMatchCount());
+        assertEquals(-1, Product.BRANDS.find("Brand typed before any product"));
+        assertEquals(-1, Product.CATEGORIES.find("Category typed before any product"));
+
+        Product product = new Product(1, "title", 10, "description", "Brand typed before any product", "Category typed before any product", 1, "image");
+        catalog.add(product);
+
+        assertEquals(List.of(product), filterService.filterProducts(List.of(product), ""));
+        assertEquals(List.of(product), filterService.filterProducts(catalog, ""));
+    }
+
+    @Test
+    void testQueriesSeeWholeFilterChangesWhileFiltersChange() throws InterruptedException {
+        filterProductsSetUp();
+        ProductCatalog catalog = new ProductCatalog();
+        products.forEach(catalog::add);
+        List<Product> filtered = List.of(products.get(0));
+        List<Throwable> failures = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                filterService.addBrandToFilter("brand1");
+                filterService.clearAllFilters();
+            }
+        });
+
+        writer.setUncaughtExceptionHandler((thread, failure) -> failures.add(failure));
+        writer.start();
+
+        while (writer.isAlive()) {
+            List<Product> fromList = filterService.filterProducts(products, "");
+            List<Product> fromCatalog = filterService.filterProducts(catalog, "title");
+
+            assertTrue(fromList.equals(products) || fromList.equals(filtered), fromList.toString());
+            assertTrue(fromCatalog.equals(products) || fromCatalog.equals(filtered), fromCatalog.toString());
+        }
+
+        writer.join();
+        assertEquals(List.of(), failures);
+    }
 }
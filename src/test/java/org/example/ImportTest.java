@@ -0,0 +1,106 @@
+package org.example;
+
+import Filter.FilterService;
+import Import.*;
+import Product.*;
+import Sort.SortByPrice;
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportTest {
+    private ProductsService productsService;
+    private CatalogImporter importer;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        productsService = new ProductsService(new SortByPrice(), null, true);
+        pool = new ForkJoinPool(4);
+        importer = new CatalogImporter(productsService, new SnowflakeIdGenerator(5), pool, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private ImportReport importText(String text, ImportFormat format) throws IOException {
+        return importer.importFrom(new BufferedReader(new StringReader(text)), format);
+    }
+
+    @Test
+    void testImportCsv() throws IOException {
+        ImportReport report = importText("""
+                title,price,brand,category,quantity,description,image
+                Milk,30,Galychyna,dairy,20,"Fresh, 2.5%",milk.png
+                Chocolate,50,Milka,Sweets,10,"The ""best"" one",
+                ,10,Milka,Sweets,1,,
+                Bread,abc,Kyivkhlib,Bakery,5,,
+                Cheese,90,Galychyna,dairy,-1,,
+
+                Butter,40,Galychyna,dairy,3,,
+                Kefir,20,Galychyna,dairy,3
+                """, ImportFormat.CSV);
+
+        assertEquals(7, report.rows());
+        assertEquals(3, report.imported());
+        assertEquals(4, report.rejected());
+        assertEquals(4, report.rejectSamples().size());
+        assertTrue(report.rejectSamples().get(0).startsWith("Line 4:"));
+
+        List<Product> products = productsService.getProducts("");
+        assertEquals(List.of("Milk", "Butter", "Chocolate"), products.stream().map(Product::getTitle).toList());
+        assertEquals("Fresh, 2.5%", products.get(0).getDescription());
+        assertEquals("The \"best\" one", products.get(2).getDescription());
+        assertEquals("Galychyna", products.get(1).getBrand());
+    }
+
+    @Test
+    void testImportJsonLines() throws IOException {
+        ImportReport report = importText("""
+                {"title": "Milk", "price": 30, "brand": "Galychyna", "category": "dairy", "quantity": 20, "image": null}
+                {"title":"Tea \\"Green\\"","price":15.5,"brand":"Lipton","category":"Drinks","quantity":3,"sku":"x1","description":"caf\\u00e9"}
+                {"title": "Broken", "price": 10
+                {"title": "Nested", "price": 10, "brand": "a", "category": "b", "quantity": 1, "tags": [1]}
+                """, ImportFormat.JSON_LINES);
+
+        assertEquals(4, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(2, report.rejected());
+        assertTrue(report.rowsPerSecond() > 0);
+
+        List<Product> products = productsService.getProducts("");
+        assertEquals("Tea \"Green\"", products.get(0).getTitle());
+        assertEquals("café", products.get(0).getDescription());
+        assertNull(products.get(1).getImage());
+    }
+
+    @Test
+    void testBulkImportKeepsFileOrderAcrossChunks() throws IOException {
+        StringBuilder text = new StringBuilder("title,price,brand,category,quantity\n");
+
+        for (int i = 0; i < 1000; i++) {
+            text.append("item").append(i).append(",1,brand,category,1\n");
+        }
+
+        productsService = new ProductsService(null, new FilterService(), true);
+        importer = new CatalogImporter(productsService, new SnowflakeIdGenerator(6), pool, 64);
+        ImportReport report = importText(text.toString(), ImportFormat.CSV);
+
+        assertEquals(1000, report.imported());
+        List<Product> products = productsService.getProducts("");
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("item" + i, products.get(i).getTitle());
+        }
+
+        assertEquals(List.of(products.get(123)), productsService.getProducts("item123"));
+    }
+}
@@ -0,0 +1,314 @@
+package org.example;
+
+import Index.*;
+import Product.*;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexTest {
+    private ProductCatalog catalog;
+    private Product milk, chocolate, bread;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog();
+
+        milk = new Product(1, "Pack of milk", 30, "description", "Galychyna", "dairy", 20, "image");
+        chocolate = new Product(2, "Milk chocolate", 50, "description", "Milka", "Sweets", 10, "image");
+        bread = new Product(3, "White bread", 20, "description", "Kyivkhlib", "Bakery", 5, "image");
+
+        catalog.add(milk);
+        catalog.add(chocolate);
+        catalog.add(bread);
+    }
+
+    @Test
+    void testTrigramCandidatesContainAllMatches() {
+        TrigramIndex index = catalog.getTitleIndex();
+
+        assertArrayEquals(new int[]{0, 1}, index.candidates("milk"));
+        assertArrayEquals(new int[]{0}, index.candidates("pack"));
+        assertArrayEquals(new int[]{0, 1}, index.candidates("ilk"));
+        assertEquals(0, index.candidates("juice").length);
+        assertNull(index.candidates("mi"));
+    }
+
+    @Test
+    void testTrigramIndexFollowsCatalogChanges() {
+        catalog.remove(milk);
+        catalog.add(new Product(4, "Goat milk", 70, "description", "Ferma", "dairy", 3, "image"));
+
+        assertArrayEquals(new int[]{1, 3}, catalog.getTitleIndex().candidates("milk"));
+    }
+
+    @Test
+    void testRoaringBitmapSwitchesContainers() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(i * 2);
+        }
+
+        bitmap.add(1 << 20);
+        assertEquals(10001, bitmap.getCardinality());
+        assertTrue(bitmap.contains(19998));
+        assertFalse(bitmap.contains(19999));
+
+        for (int i = 0; i < 9000; i++) {
+            bitmap.remove(i * 2);
+        }
+
+        assertEquals(1001, bitmap.getCardinality());
+        assertEquals(18000, bitmap.toArray()[0]);
+        assertEquals(1 << 20, bitmap.toArray()[1000]);
+    }
+
+    @Test
+    void testRoaringBitmapOrAnd() {
+        RoaringBitmap evens = new RoaringBitmap();
+        RoaringBitmap thirds = new RoaringBitmap();
+
+        for (int i = 0; i < 200000; i++) {
+            if (i % 2 == 0) evens.add(i);
+            if (i % 3 == 0) thirds.add(i);
+        }
+
+        RoaringBitmap union = RoaringBitmap.or(evens, thirds);
+        RoaringBitmap intersection = RoaringBitmap.and(evens, thirds);
+
+        assertEquals(133333, union.getCardinality());
+        assertEquals(33334, intersection.getCardinality());
+        assertTrue(intersection.contains(199998));
+        assertFalse(union.contains(199999));
+    }
+
+    @Test
+    void testRoaringBitmapRoundTrip() throws IOException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+
+        for (int i = 0; i < 70000; i++) {
+            bitmap.add(i % 7 == 0 ? i : i * 100);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.writeTo(new DataOutputStream(bytes));
+        RoaringBitmap restored = RoaringBitmap.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertArrayEquals(bitmap.toArray(), restored.toArray());
+        restored.add(3);
+        assertTrue(restored.contains(3));
+        assertFalse(bitmap.contains(3));
+    }
+
+    @Test
+    void testBitmapIndexFollowsCatalog() {
+        int milka = catalog.getBrands().find("Milka");
+        int galychyna = catalog.getBrands().find("Galychyna");
+        int dairy = catalog.getCategories().find("dairy");
+
+        assertArrayEquals(new int[]{1}, catalog.getBrandIndex().get(milka).toArray());
+        assertArrayEquals(new int[]{0, 1}, catalog.getBrandIndex().union(new int[]{galychyna, milka, -1}).toArray());
+
+        catalog.remove(milk);
+
+        assertTrue(catalog.getCategoryIndex().get(dairy).isEmpty());
+    }
+
+    @Test
+    void testPriceIndexSlices() {
+        PriceIndex index = catalog.getPriceIndex();
+
+        assertArrayEquals(new int[]{2, 0, 1}, index.getOrdinals(0, index.size()));
+        assertArrayEquals(new int[]{0, 1}, index.getOrdinals(index.lowerBound(30), index.upperBound(50)));
+        assertEquals(index.lowerBound(31), index.upperBound(49));
+    }
+
+    @Test
+    void testPriceIndexFollowsPriceChanges() {
+        milk.changePrice(60);
+        catalog.add(new Product(4, "Cheese", 50, "description", "Galychyna", "dairy", 3, "image"));
+
+        assertArrayEquals(new int[]{2, 1, 3, 0}, catalog.getPriceIndex().getOrdinals(0, 4));
+    }
+
+    @Test
+    void testLongIntHashMapSurvivesRemovals() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 4096L, i);
+        }
+
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(i, map.remove(i * 4096L, -1));
+        }
+
+        assertEquals(500, map.size());
+        assertEquals(-1, map.get(0, -1));
+        assertEquals(999, map.get(999 * 4096L, -1));
+        assertFalse(map.containsKey(998 * 4096L));
+
+        LongIntHashMap copy = map.copy();
+        copy.put(7, 7);
+        assertFalse(map.containsKey(7));
+    }
+
+    @Test
+    void testAutocompleteRanksWordPrefixesByStock() {
+        AutocompleteIndex index = catalog.getAutocompleteIndex();
+
+        assertArrayEquals(new int[]{0, 1}, index.suggest(catalog, "MI", 10));
+        assertArrayEquals(new int[]{1}, index.suggest(catalog, "choc", 10));
+        assertArrayEquals(new int[]{0}, index.suggest(catalog, "mi", 1));
+        assertEquals(0, index.suggest(catalog, "ilk", 10).length);
+
+        chocolate.changeQuantity(40);
+        catalog.add(new Product(4, "Goat milk", 70, "description", "Ferma", "dairy", 30, "image"));
+        catalog.remove(milk);
+
+        assertArrayEquals(new int[]{1, 3}, index.suggest(catalog, "mil", 10));
+        assertArrayEquals(new int[]{1, 3}, catalog.copy().getAutocompleteIndex().suggest(catalog, "m", 10));
+        assertEquals(0, index.suggest(catalog, "pack", 10).length);
+    }
+
+    @Test
+    void testAutocompleteCopiesShareUnchangedNodes() {
+        ProductCatalog copy = catalog.copy();
+        assertArrayEquals(new int[]{0, 1}, catalog.getAutocompleteIndex().suggest(catalog, "mi", 10));
+        assertArrayEquals(new int[]{0, 1}, copy.getAutocompleteIndex().suggest(copy, "mi", 10));
+
+        copy.add(new Product(4, "Milkshake", 40, "description", "Ferma", "dairy", 15, "image"));
+        copy.remove(milk);
+        chocolate.changeQuantity(50);
+
+        assertArrayEquals(new int[]{1, 0}, catalog.getAutocompleteIndex().suggest(catalog, "mi", 10));
+        assertArrayEquals(new int[]{3, 1}, copy.getAutocompleteIndex().suggest(copy, "mi", 10));
+        assertArrayEquals(new int[]{2}, copy.getAutocompleteIndex().suggest(copy, "white", 10));
+    }
+
+    @Test
+    void testAutocompleteRemovalsFromCommonWordsLeaveSourceUnchanged() {
+        ProductCatalog source = new ProductCatalog(false);
+
+        for (int id = 0; id < 5000; id++) {
+            source.add(new Product(id, "Milk milk " + id, 10, null, "brand", "category", id, null));
+        }
+
+        ProductCatalog copy = source.copy();
+
+        for (int id = 4999; id >= 4990; id--) {
+            copy.remove(source.getProduct(id));
+        }
+
+        assertArrayEquals(new int[]{4999, 4998, 4997}, source.getAutocompleteIndex().suggest(source, "milk", 3));
+        assertArrayEquals(new int[]{4989, 4988, 4987}, copy.getAutocompleteIndex().suggest(copy, "milk", 3));
+        assertArrayEquals(new int[]{4989}, copy.getAutocompleteIndex().suggest(copy, "milk milk 498", 1));
+    }
+
+    @Test
+    void testAutocompleteKeysStopAtWordEnds() {
+        ProductCatalog titles = new ProductCatalog();
+        Random random = new Random(3);
+        Set<String> prefixes = new HashSet<>();
+
+        for (int id = 0; id < 500; id++) {
+            StringBuilder title = new StringBuilder();
+
+            for (int word = 0; word < 6; word++) {
+                int length = 3 + random.nextInt(20);
+                String text = random.ints(length, 'a', 'g').collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+
+                for (int end = 1; end <= Math.min(length, 16); end++) {
+                    prefixes.add(text.substring(0, end));
+                }
+
+                title.append(word == 0 ? "" : " ").append(text);
+            }
+
+            titles.add(new Product(id, title.toString(), 10, null, "brand", "category", id, null));
+        }
+
+        String title = titles.getProduct(7).getTitle();
+        String firstWord = title.substring(0, title.indexOf(' '));
+        String longPrefix = title.substring(0, Math.min(title.length(), firstWord.length() + 5));
+
+        assertEquals(prefixes.size() + 1, titles.getAutocompleteIndex().nodeCount());
+        assertTrue(Arrays.stream(titles.getAutocompleteIndex().suggest(titles, longPrefix, 10)).anyMatch(ordinal -> ordinal == 7));
+        assertTrue(Arrays.stream(titles.getAutocompleteIndex().suggest(titles, title, 10)).anyMatch(ordinal -> ordinal == 7));
+        assertEquals(0, titles.getAutocompleteIndex().suggest(titles, firstWord + "  ", 10).length);
+    }
+
+    @Test
+    void testPostingListCopiesStaySortedAcrossBlocks() {
+        Random random = new Random(11);
+        PostingList list = new PostingList();
+        Set<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int ordinal = random.nextInt(50000);
+            list.add(ordinal);
+            expected.add(ordinal);
+        }
+
+        PostingList copy = list.copy();
+        Set<Integer> copied = new TreeSet<>(expected);
+
+        for (int i = 0; i < 20000; i++) {
+            int ordinal = random.nextInt(50000);
+
+            if (i % 2 == 0) {
+                copy.remove(ordinal);
+                copied.remove(ordinal);
+            } else {
+                list.add(ordinal);
+                expected.add(ordinal);
+            }
+        }
+
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+        assertArrayEquals(copied.stream().mapToInt(Integer::intValue).toArray(), copy.toArray());
+        assertEquals(copied.contains(123), copy.contains(123));
+
+        int[] candidates = expected.stream().mapToInt(Integer::intValue).toArray();
+        int kept = copy.retainAll(candidates, candidates.length);
+        assertEquals(expected.stream().filter(copied::contains).count(), kept);
+    }
+
+    @Test
+    void testLongIntHashMapCopiesAcrossPartitions() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        for (int i = 0; i < 20000; i++) {
+            map.put(i, i);
+        }
+
+        LongIntHashMap copy = map.copy();
+
+        for (int i = 0; i < 20000; i += 2) {
+            copy.remove(i, -1);
+        }
+
+        for (int i = 20000; i < 30000; i++) {
+            copy.put(i, i);
+        }
+
+        assertEquals(20000, map.size());
+        assertEquals(20000, copy.size());
+
+        for (int i = 0; i < 30000; i++) {
+            assertEquals(i < 20000 ? i : -1, map.get(i, -1));
+            assertEquals(i % 2 == 1 || i >= 20000 ? i : -1, copy.get(i, -1));
+        }
+    }
+}
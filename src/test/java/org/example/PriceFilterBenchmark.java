@@ -0,0 +1,73 @@
+package org.example;
+
+import Filter.PriceRangeMask;
+import Product.Product;
+import Product.ProductCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the per-object price loop with the price column mask.
+ * Build with {@code -Pvector} and run with {@code --add-modules jdk.incubator.vector} to measure the vectorized path,
+ * and without them for the fallback.
+ */
+public class PriceFilterBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        ProductCatalog catalog = new ProductCatalog();
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product(i, "title" + i, (i * 7919) % 1000, "description", "brand", "category", 1, "image");
+            products.add(product);
+            catalog.add(product);
+        }
+
+        float min = 250;
+        float max = 750;
+        long sink = 0;
+
+        for (int warmup = 0; warmup < ROUNDS; warmup++) {
+            sink += objectLoop(products, min, max) + maskScan(catalog, min, max);
+        }
+
+        long start = System.nanoTime();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += objectLoop(products, min, max);
+        }
+
+        long objects = System.nanoTime() - start;
+        start = System.nanoTime();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += maskScan(catalog, min, max);
+        }
+
+        long mask = System.nanoTime() - start;
+
+        System.out.printf("vectorized: %b%n", PriceRangeMask.isVectorized());
+        System.out.printf("per-object loop: %.2f ms/op%n", objects / 1e6 / ROUNDS);
+        System.out.printf("price mask:      %.2f ms/op%n", mask / 1e6 / ROUNDS);
+        System.out.println("checksum: " + sink);
+    }
+
+    private static int objectLoop(List<Product> products, float min, float max) {
+        int count = 0;
+
+        for (Product product : products) {
+            if (product.getPrice() >= min && product.getPrice() <= max) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int maskScan(ProductCatalog catalog, float min, float max) {
+        return PriceRangeMask.toPositions(PriceRangeMask.select(catalog, min, max)).length;
+    }
+}
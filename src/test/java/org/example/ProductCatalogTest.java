@@ -0,0 +1,439 @@
+package org.example;
+
+import Filter.*;
+import Index.SortedView;
+import Product.*;
+import Sort.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCatalogTest {
+    private ProductCatalog catalog;
+    private Product product1, product2, product3;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog();
+
+        product1 = new Product(1, "title1", 120, "description1", "brand1", "category1", 10, "image1");
+        product2 = new Product(2, "title2", 100, "description2", "brand2", "category1", 10, "image2");
+        product3 = new Product(3, "title3", 200, "description3", "brand1", "category2", 10, "image3");
+
+        catalog.add(product1);
+        catalog.add(product2);
+        catalog.add(product3);
+    }
+
+    @Test
+    void testColumnsAreDictionaryEncoded() {
+        assertEquals(3, catalog.getLiveCount());
+        assertEquals("brand2", catalog.getBrands().get(catalog.getBrandId(1)));
+        assertSame(Product.BRANDS, catalog.getBrands());
+        assertEquals(catalog.getBrandId(0), catalog.getBrandId(2));
+        assertEquals("category2", catalog.getCategories().get(catalog.getCategoryId(2)));
+        assertEquals(100f, catalog.getPrice(1));
+    }
+
+    @Test
+    void testQuantityChangeUpdatesColumn() {
+        product2.changeQuantity(3);
+
+        assertEquals(3, catalog.getQuantity(catalog.ordinalOf(product2)));
+    }
+
+    @Test
+    void testRemoveLeavesOtherOrdinalsStable() {
+        catalog.remove(product2);
+
+        assertEquals(2, catalog.getLiveCount());
+        assertFalse(catalog.isLive(1));
+        assertEquals(2, catalog.ordinalOf(product3));
+        assertEquals(Arrays.asList(product1, product3), catalog.getProducts());
+    }
+
+    @Test
+    void testCompactionKeepsOrder() {
+        Product[] extra = new Product[100];
+
+        for (int i = 0; i < extra.length; i++) {
+            extra[i] = new Product(1000 + i, "extra" + i, i, "", "brand", "category", 1, "");
+            catalog.add(extra[i]);
+        }
+
+        catalog.remove(product2);
+
+        for (int i = 0; i < 60; i++) {
+            catalog.remove(extra[i]);
+        }
+
+        assertEquals(42, catalog.getLiveCount());
+        assertTrue(catalog.getSize() < 103);
+        assertEquals(product3, catalog.getProducts().get(1));
+        assertEquals(extra[60], catalog.getProducts().get(2));
+        assertEquals(extra[99], catalog.getProduct(catalog.ordinalOf(extra[99])));
+    }
+
+    @Test
+    void testFilterOnColumnsMatchesListFilter() {
+        FilterService filterService = new FilterService();
+        filterService.addBrandToFilter("brand1");
+        filterService.addBrandToFilter("unknown brand");
+        filterService.changePriceFilters(FilterType.MAX_PRICE, 150f);
+
+        List<Product> expected = filterService.filterProducts(Arrays.asList(product1, product2, product3), "title");
+
+        assertEquals(expected, filterService.filterProducts(catalog, "title"));
+    }
+
+    @Test
+    void testSortOnColumnsMatchesListSort() {
+        List<Product> products = Arrays.asList(product1, product2, product3);
+        int[] ordinals = catalog.getOrdinals();
+
+        assertEquals(new SortByPrice().sortProducts(products), catalog.getProducts(new SortByPrice().sortOrdinals(catalog, ordinals)));
+        assertEquals(new SortByTitle().sortProducts(products), catalog.getProducts(new SortByTitle().sortOrdinals(catalog, ordinals)));
+    }
+
+    @Test
+    void testColumnarProductsService() {
+        ProductsService productsService = new ProductsService(new SortByPrice(), new FilterService(), true);
+        productsService.addProduct(product1);
+        productsService.addProduct(product2);
+        productsService.addProduct(product3);
+        productsService.removeProduct(product3);
+
+        assertTrue(productsService.isColumnar());
+        assertEquals(Arrays.asList(product2, product1), productsService.getProducts(""));
+    }
+
+    @Test
+    void testPriceRangeQueryIsSortedByPrice() {
+        FilterService filterService = new FilterService();
+        filterService.changePriceFilters(FilterType.MIN_PRICE, 110f);
+        product2.changePrice(150);
+
+        List<Product> expected = new SortByPrice().sortProducts(filterService.filterProducts(Arrays.asList(product1, product2, product3), ""));
+
+        assertEquals(expected, catalog.getProducts(filterService.filterOrdinalsByPrice(catalog, "")));
+        assertEquals(Arrays.asList(product1, product2, product3), filterService.filterProducts(catalog, ""));
+
+        filterService.addBrandToFilter("brand1");
+
+        assertEquals(Arrays.asList(product1, product3), catalog.getProducts(filterService.filterOrdinalsByPrice(catalog, "title")));
+    }
+
+    @Test
+    void testSortedViewQueriesMatchSortedList() {
+        SortByTitle sortByTitle = new SortByTitle();
+        ProductsService productsService = new ProductsService(sortByTitle, new FilterService(), true);
+        productsService.registerSortStrategy(sortByTitle);
+
+        Product product4 = new Product(4, "title0", 50, "description4", "brand2", "category2", 10, "image4");
+        productsService.addProduct(product3);
+        productsService.addProduct(product1);
+        productsService.addProduct(product4);
+        productsService.addProduct(product2);
+
+        assertEquals(Arrays.asList(product4, product1, product2, product3), productsService.getProducts(""));
+        assertEquals(Arrays.asList(product4), productsService.getProducts("title0"));
+    }
+
+    @Test
+    void testSortedViewFollowsChanges() {
+        SortByPrice sortByPrice = new SortByPrice();
+        catalog.addSortedView(sortByPrice);
+
+        product3.changePrice(10);
+        catalog.remove(product1);
+
+        assertArrayEquals(new int[]{2, 1}, catalog.getSortedView(sortByPrice).toArray());
+    }
+
+    @Test
+    void testColumnarPagesMatchFullQuery() {
+        SortByTitle sortByTitle = new SortByTitle();
+        ProductsService productsService = new ProductsService(sortByTitle, new FilterService(), true);
+
+        for (int i = 0; i < 50; i++) {
+            productsService.addProduct(new Product(i, "item" + (i * 7 % 50), i % 5, "", "brand", "category", 1, ""));
+        }
+
+        List<Product> all = productsService.getProducts("");
+        assertEquals(all.subList(10, 20), productsService.getProducts("", 10, 10));
+
+        productsService.registerSortStrategy(sortByTitle);
+        assertEquals(all.subList(10, 20), productsService.getProducts("", 10, 10));
+        assertEquals(all.subList(21, 26), productsService.getProductsAfter("", all.get(20), 5));
+        assertEquals(all.subList(48, 50), productsService.getProducts("", 48, 10));
+
+        productsService.setSortStrategy(new SortByPrice());
+        List<Product> byPrice = productsService.getProducts("item");
+        assertEquals(byPrice.subList(5, 15), productsService.getProducts("item", 5, 10));
+        assertEquals(byPrice.subList(31, 34), productsService.getProductsAfter("item", byPrice.get(30), 3));
+    }
+
+    @Test
+    void testPageAfterMissingCursorIsRejected() {
+        SortStrategy byTitle = new SortByTitle();
+        catalog.addSortedView(byTitle);
+        int removed = catalog.ordinalOf(product1);
+        catalog.remove(product1);
+        SortedView view = catalog.getSortedView(byTitle);
+
+        assertArrayEquals(new int[]{2}, new FilterService().filterOrdinals(catalog, "", view, 1, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new FilterService().filterOrdinals(catalog, "", view, removed, 0, 5));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        SortByTitle sortByTitle = new SortByTitle();
+        catalog.addSortedView(sortByTitle);
+        ProductCatalog copy = catalog.copy();
+        Product product4 = new Product(4, "title0", 50, "description4", "brand3", "category1", 10, "image4");
+
+        copy.add(product4);
+        copy.remove(product1);
+        product2.changePrice(500);
+
+        assertEquals(3, catalog.getLiveCount());
+        assertEquals(-1, catalog.ordinalOf(product4));
+        assertEquals(500f, catalog.getPrice(catalog.ordinalOf(product2)));
+        assertEquals(100f, copy.getPrice(copy.ordinalOf(product2)));
+        assertEquals(Arrays.asList(product4, product2, product3), copy.getProducts(copy.getSortedView(sortByTitle).toArray()));
+        assertEquals(Arrays.asList(product1, product2, product3), catalog.getProducts(catalog.getSortedView(sortByTitle).toArray()));
+    }
+
+    @Test
+    void testCopiesShareSegmentsWithoutChangingTheSource() {
+        SortByPrice byPrice = new SortByPrice();
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 2 * ProductCatalog.SEGMENT_SIZE + 100; i++) {
+            products.add(new Product(100 + i, "item " + i, i % 300, "", "brand" + (i % 7), "category" + (i % 3), i % 50, ""));
+        }
+
+        ProductCatalog source = new ProductCatalog(false);
+        source.addAll(products);
+        source.addSortedView(byPrice);
+        ProductCatalog copy = source.copy();
+        Product added = new Product(99999, "fresh item", 5, "", "brand1", "category1", 3, "");
+
+        copy.add(added);
+        copy.remove(products.get(10));
+        copy.remove(products.get(ProductCatalog.SEGMENT_SIZE + 10));
+        source.remove(products.get(20));
+        products.get(30).changeQuantity(77);
+        copy.update(products.get(30));
+
+        assertEquals(products.size() - 1, source.getLiveCount());
+        assertEquals(products.size() - 1, copy.getLiveCount());
+        assertSame(products.get(10), source.findById(110));
+        assertNull(copy.findById(110));
+        assertNull(source.findById(120));
+        assertSame(products.get(20), copy.findById(120));
+        assertEquals(-1, source.ordinalOf(added));
+        assertEquals(30 % 50, source.getQuantity(source.ordinalOf(products.get(30))));
+        assertEquals(77, copy.getQuantity(copy.ordinalOf(products.get(30))));
+        int removed = source.ordinalOf(products.get(10));
+        assertTrue(Arrays.stream(source.getTitleIndex().candidates("item 10")).anyMatch(ordinal -> ordinal == removed));
+        assertFalse(Arrays.stream(copy.getTitleIndex().candidates("item 10")).anyMatch(ordinal -> ordinal == removed));
+        assertArrayEquals(new int[]{copy.ordinalOf(added)}, copy.getTitleIndex().candidates("fresh"));
+        assertArrayEquals(new int[0], source.getTitleIndex().candidates("fresh"));
+        assertEquals(source.getLiveCount(), source.getPriceIndex().size());
+        assertEquals(copy.getLiveCount(), copy.getSortedView(byPrice).size());
+        assertTrue(copy.getSortedView(byPrice).positionOf(copy.ordinalOf(added)) >= 0);
+
+        SortedView view = copy.getSortedView(byPrice);
+
+        for (int position = 1; position < view.size(); position++) {
+            assertTrue(copy.getPrice(view.getOrdinal(position - 1)) <= copy.getPrice(view.getOrdinal(position)));
+        }
+        assertTrue(source.getBrandIndex().get(Product.BRANDS.find("brand3")).contains(removed));
+        assertFalse(copy.getBrandIndex().get(Product.BRANDS.find("brand3")).contains(removed));
+        assertEquals(source.getLiveCount(), PriceRangeMask.toPositions(PriceRangeMask.select(source, 0, 300)).length);
+    }
+
+    @Test
+    void testIdIndexAndBulkRemove() {
+        Product[] extra = new Product[100];
+
+        for (int i = 0; i < extra.length; i++) {
+            extra[i] = new Product(1000 + i, "extra" + i, i, "", "brand", "category", 1, "");
+            catalog.add(extra[i]);
+        }
+
+        assertSame(product2, catalog.findById(2));
+        assertEquals(-1, catalog.ordinalOf(new Product(2, "title2", 100, "", "", "", 0, "")));
+        assertEquals(80, catalog.removeAll(Arrays.asList(extra).subList(0, 80)));
+
+        assertEquals(23, catalog.getLiveCount());
+        assertEquals(23, catalog.getSize());
+        assertNull(catalog.findById(1000));
+        assertSame(extra[90], catalog.getProduct(catalog.ordinalOf(1090)));
+    }
+
+    @Test
+    void testBrandsAreInternedWhenProductsAreBuilt() {
+        Product product = new ProductBuilder().setTitle("title").setBrand("brand-interned").setCategory("category1").build();
+
+        assertEquals(Product.BRANDS.find("brand-interned"), product.getBrandId());
+        assertEquals(product1.getCategoryId(), product.getCategoryId());
+        assertEquals("brand-interned", product.getBrand());
+    }
+
+    @Test
+    void testProductsWithoutBrandOrCategory() {
+        Product brandless = new ProductBuilder().setTitle("brandless").setPrice(5).setCategory("category1").build();
+        Product categoryless = new ProductBuilder().setTitle("categoryless").setPrice(6).setBrand("brand1").build();
+        FilterService filterService = new FilterService();
+        ProductsService columnar = new ProductsService(new SortByPrice(), filterService, true);
+
+        catalog.add(brandless);
+        catalog.add(categoryless);
+        columnar.addProducts(List.of(product1, brandless, categoryless));
+        filterService.addBrandToFilter("brand1");
+
+        assertEquals(-1, catalog.getBrandId(catalog.ordinalOf(brandless)));
+        assertArrayEquals(new int[]{0, 2, 4}, catalog.getBrandIndex().get(product1.getBrandId()).toArray());
+        assertArrayEquals(new int[]{0, 1, 3}, catalog.getCategoryIndex().get(product1.getCategoryId()).toArray());
+        assertEquals(List.of(categoryless, product1), columnar.getProducts(""));
+
+        catalog.remove(brandless);
+        catalog.remove(categoryless);
+        columnar.removeProduct(brandless);
+
+        assertEquals(3, catalog.getLiveCount());
+        assertEquals(List.of(categoryless, product1), columnar.getProducts(""));
+    }
+
+    @Test
+    void testColdStoreRoundTrip() {
+        ColdStore store = new ColdStore(1);
+        String longDescription = "Milk chocolate with hazelnuts. ".repeat(200);
+        long first = store.put(longDescription, "https://example.com/1.png");
+        long second = store.put(null, "Шоколад");
+
+        assertEquals(new ColdStore.Record(longDescription, "https://example.com/1.png"), store.get(first));
+        assertEquals(new ColdStore.Record(null, "Шоколад"), store.get(second));
+        assertEquals("Шоколад", store.get(second).image());
+        assertEquals(1, store.getHits());
+        assertEquals(2, store.getMisses());
+        assertTrue(product1.getInfo().contains("description='description1'"));
+        assertEquals("image1", product1.getImage());
+    }
+
+    @Test
+    void testColdStoreReleasesFreedSegments() {
+        ColdStore store = new ColdStore(4);
+        Random random = new Random(42);
+        String[] descriptions = new String[2000];
+        long[] handles = new long[descriptions.length];
+
+        for (int i = 0; i < descriptions.length; i++) {
+            StringBuilder description = new StringBuilder();
+            random.ints(1500, 'a', 'z' + 1).forEach(letter -> description.append((char) letter));
+            descriptions[i] = description.toString();
+            handles[i] = store.put(descriptions[i], "image" + i);
+        }
+
+        long reserved = store.getReservedBytes();
+
+        for (int i = 0; i < handles.length; i++) {
+            if (i % 10 != 0) {
+                store.free(handles[i]);
+            }
+        }
+
+        assertEquals(200, store.size());
+        assertTrue(store.getReservedBytes() < reserved);
+        assertThrows(IllegalArgumentException.class, () -> store.get(handles[1]));
+
+        for (int i = 0; i < handles.length; i += 10) {
+            assertEquals(new ColdStore.Record(descriptions[i], "image" + i), store.get(handles[i]));
+        }
+
+        long reused = store.put(null, "reused");
+        assertTrue(reused < handles.length);
+        assertEquals(new ColdStore.Record(null, "reused"), store.get(reused));
+    }
+
+    @Test
+    void testColdStoreReusesReleasedSegments() {
+        ColdStore store = new ColdStore(0);
+        Random random = new Random(7);
+        Map<Long, String> kept = new HashMap<>();
+        long reserved = 0;
+
+        for (int round = 0; round < 20; round++) {
+            long[] handles = new long[1000];
+
+            for (int i = 0; i < handles.length; i++) {
+                StringBuilder description = new StringBuilder();
+                random.ints(1500, 'a', 'z' + 1).forEach(letter -> description.append((char) letter));
+                handles[i] = store.put(description.toString(), null);
+
+                if (i % 50 == 0) {
+                    kept.put(handles[i], description.toString());
+                }
+            }
+
+            for (int i = 0; i < handles.length; i++) {
+                if (i % 50 != 0) {
+                    store.free(handles[i]);
+                }
+            }
+
+            reserved = round == 0 ? store.getReservedBytes() : reserved;
+        }
+
+        assertEquals(kept.size(), store.size());
+        assertTrue(store.getReservedBytes() <= 2 * reserved);
+        kept.forEach((handle, description) -> assertEquals(new ColdStore.Record(description, null), store.get(handle)));
+    }
+
+    @Test
+    void testSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+        SortStrategy byPrice = new SortByPrice();
+        SortStrategy byTitle = new SortByTitle();
+        Product chocolate = new Product(4, "chocolate", 150, null, "brand2", "category2", 0, "image4");
+        Path file = directory.resolve("catalog.bin");
+        catalog.add(chocolate);
+        catalog.addSortedView(byPrice);
+        catalog.remove(product2);
+
+        CatalogSnapshot.write(catalog, file);
+        ProductCatalog restored = CatalogSnapshot.read(file, byPrice, byTitle);
+
+        assertEquals(catalog.getSize(), restored.getSize());
+        assertEquals(3, restored.getLiveCount());
+        assertFalse(restored.isLive(1));
+        assertArrayEquals(catalog.getSortedView(byPrice).toArray(), restored.getSortedView(byPrice).toArray());
+        assertArrayEquals(new int[]{3, 0, 2}, restored.getSortedView(byTitle).toArray());
+        assertArrayEquals(new int[]{3}, restored.getTitleIndex().candidates("choc"));
+        assertArrayEquals(catalog.getPriceIndex().getOrdinals(0, 3), restored.getPriceIndex().getOrdinals(0, 3));
+        assertEquals("description1", restored.findById(1).getDescription());
+        assertNull(restored.findById(4).getDescription());
+        assertEquals(product3.getBrandId(), restored.getBrandId(restored.ordinalOf(3)));
+        assertArrayEquals(new int[]{0, 2}, restored.getBrandIndex().get(product1.getBrandId()).toArray());
+        assertArrayEquals(catalog.getCategoryIndex().get(chocolate.getCategoryId()).toArray(),
+                restored.getCategoryIndex().get(chocolate.getCategoryId()).toArray());
+        assertEquals(catalog.getNormalizedTitle(3), restored.getNormalizedTitle(3));
+        assertArrayEquals(catalog.getTitleSortKey(0), restored.getTitleSortKey(0));
+        assertArrayEquals(catalog.getAutocompleteIndex().suggest(catalog, "cho", 5),
+                restored.getAutocompleteIndex().suggest(restored, "cho", 5));
+        assertEquals("image4", restored.findById(4).getImage());
+        assertFalse(Files.list(directory).anyMatch(path -> path.toString().endsWith(".tmp")));
+    }
+}
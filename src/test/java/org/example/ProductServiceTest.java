@@ -1,10 +1,23 @@
 package org.example;
 
+import Filter.*;
 import Product.*;
+import Sort.*;
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ProductServiceTest {
@@ -15,8 +28,8 @@ public class ProductServiceTest {
     @BeforeEach
     void setUp() {
         productsService = new ProductsService(null, null);
-        product1 = new Product("1", "Sample Product 1", 10, "some description 1", "some brand 1", "some category 1", 10 ,"image url 1");
-        product2 = new Product("2", "Sample Product 2", 20, "some description 2", "some brand 2", "some category 2", 5 ,"image url 2");
+        product1 = new Product(1, "Sample Product 1", 10, "some description 1", "some brand 1", "some category 1", 10 ,"image url 1");
+        product2 = new Product(2, "Sample Product 2", 20, "some description 2", "some brand 2", "some category 2", 5 ,"image url 2");
     }
 
     @Test
@@ -49,4 +62,325 @@ public class ProductServiceTest {
         assertFalse(productsService.getProducts("").contains(product1));
         assertEquals(0, productsService.getProducts("").size());
     }
+
+    @Test
+    void testGetProductsPage() {
+        productsService = new ProductsService(new SortByPrice(), null);
+        Product product3 = new Product(3, "Sample Product 3", 15, "some description 3", "some brand 3", "some category 3", 1 ,"image url 3");
+        Product product4 = new Product(4, "Sample Product 4", 10, "some description 4", "some brand 4", "some category 4", 1 ,"image url 4");
+        productsService.addProduct(product2);
+        productsService.addProduct(product1);
+        productsService.addProduct(product3);
+        productsService.addProduct(product4);
+
+        assertEquals(Arrays.asList(product1, product4), productsService.getProducts("", 0, 2));
+        assertEquals(Arrays.asList(product3, product2), productsService.getProducts("", 2, 5));
+        assertEquals(Arrays.asList(product3), productsService.getProductsAfter("", product4, 1));
+        assertTrue(productsService.getProducts("", 4, 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> productsService.getProducts("", -1, 2));
+    }
+
+    @Test
+    void testRepeatedQueriesAreCached() {
+        FilterService filterService = new FilterService();
+        productsService = new ProductsService(new SortByTitle(), filterService);
+        productsService.addProduct(product1);
+        productsService.addProduct(product2);
+
+        List<Product> products = productsService.getProducts("Sample");
+        assertSame(products, productsService.getProducts("Sample"));
+        assertEquals(1, productsService.getCacheHits());
+
+        filterService.addBrandToFilter("some brand 2");
+        assertEquals(Arrays.asList(product2), productsService.getProducts("Sample"));
+
+        filterService.clearAllFilters();
+        assertSame(products, productsService.getProducts("Sample"));
+        assertEquals(2, productsService.getCacheHits());
+        assertEquals(2, productsService.getCacheMisses());
+    }
+
+    @Test
+    void testProductChangesInvalidateCache() {
+        productsService = new ProductsService(new SortByPrice(), null);
+        productsService.addProduct(product1);
+        productsService.addProduct(product2);
+        List<Product> products = productsService.getProducts("");
+
+        long epoch = productsService.getEpoch();
+        product1.changePrice(30);
+
+        assertTrue(productsService.getEpoch() > epoch);
+        assertNotSame(products, productsService.getProducts(""));
+        assertEquals(Arrays.asList(product2, product1), productsService.getProducts(""));
+
+        product2.changeQuantity(0);
+        productsService.getProducts("");
+
+        assertEquals(1, productsService.getCacheHits());
+        assertEquals(3, productsService.getCacheMisses());
+    }
+
+    @Test
+    void testReadersSeeConsistentSnapshotsDuringWrites() throws InterruptedException {
+        productsService = new ProductsService(new SortByPrice(), new FilterService(), true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 300; i++) {
+                productsService.addProduct(new Product(i, "item" + i, i % 17, "", "brand", "category", 1, ""));
+            }
+        });
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (writer.isAlive()) {
+                    List<Product> products = productsService.getProducts("item");
+
+                    for (int i = 1; i < products.size(); i++) {
+                        assertTrue(products.get(i - 1).getPrice() <= products.get(i).getPrice());
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(300, productsService.getProducts("item").size());
+    }
+
+    @Test
+    void testListModeKeepsOrderAcrossBlocks() {
+        productsService = new ProductsService(null, null);
+        List<Product> expected = new ArrayList<>();
+
+        for (int i = 0; i < 1500; i++) {
+            Product product = new Product(i, "item " + i, i, null, null, null, 1, null);
+            productsService.addProduct(product);
+            expected.add(product);
+        }
+
+        List<Product> before = productsService.getProducts("");
+
+        for (int i = 0; i < 1500; i += 3) {
+            productsService.removeProduct(expected.get(i));
+        }
+
+        expected.removeIf(product -> product.getId() % 3 == 0);
+
+        assertEquals(1500, before.size());
+        assertEquals(expected, productsService.getProducts(""));
+        assertSame(expected.get(700), productsService.findProduct(expected.get(700).getId()));
+        assertThrows(UnsupportedOperationException.class, () -> before.add(expected.get(0)));
+    }
+
+    @Test
+    void testBulkRemoveAndFindById() {
+        Product product3 = new Product(3, "Sample Product 3", 15, "some description 3", "some brand 3", "some category 3", 1 ,"image url 3");
+
+        for (boolean columnar : new boolean[]{false, true}) {
+            productsService = new ProductsService(new SortByPrice(), null, columnar);
+            productsService.addProduct(product1);
+            productsService.addProduct(product2);
+            productsService.addProduct(product3);
+            productsService.removeProducts(Arrays.asList(product1, product3));
+
+            assertEquals(List.of(product2), productsService.getProducts(""));
+            assertSame(product2, productsService.findProduct(2));
+            assertNull(productsService.findProduct(1));
+        }
+    }
+
+    @Test
+    void testSnowflakeIdsAreUniqueAndOrdered() {
+        IdGenerator generator = new SnowflakeIdGenerator(3);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+
+        assertEquals(3, previous & 1023);
+        assertTrue(Math.abs(SnowflakeIdGenerator.timestampOf(previous) - System.currentTimeMillis()) < 60_000);
+        assertNotEquals(new ProductBuilder(generator).setTitle("a").setBrand("b").setCategory("c").build().getId(),
+                new ProductBuilder(generator).setTitle("a").setBrand("b").setCategory("c").build().getId());
+    }
+
+    @Test
+    void testSnapshotSaveAndLoad(@TempDir Path directory) throws IOException {
+        SortStrategy byPrice = new SortByPrice();
+        ProductsService source = new ProductsService(byPrice, new FilterService(), true);
+        ProductsService target = new ProductsService(byPrice, new FilterService(), true);
+        Path file = directory.resolve("products.bin");
+        source.registerSortStrategy(byPrice);
+        source.addProducts(List.of(product2, product1));
+        target.registerSortStrategy(byPrice);
+
+        source.saveSnapshot(file);
+        target.loadSnapshot(file);
+        Product loaded = target.findProduct(1);
+        loaded.changeQuantity(3);
+
+        assertEquals(List.of(1L, 2L), target.getProducts("Sample").stream().map(Product::getId).toList());
+        assertEquals("some brand 1", loaded.getBrand());
+        assertEquals(3, target.findProduct(1).getQauntity());
+        assertEquals(2, target.getEpoch());
+        assertThrows(IllegalStateException.class, () -> productsService.saveSnapshot(file));
+    }
+
+    @Test
+    void testSuggestionsMatchInBothModes() {
+        ProductsService columnar = new ProductsService(null, new FilterService(), true);
+        productsService.addProducts(List.of(product1, product2));
+        columnar.addProducts(List.of(product1, product2));
+
+        assertEquals(List.of(product1, product2), productsService.suggestProducts("sample", 5));
+        assertEquals(List.of(product1, product2), columnar.suggestProducts("sample", 5));
+        assertEquals(List.of(product2), columnar.suggestProducts("product 2", 5));
+        assertThrows(IllegalArgumentException.class, () -> columnar.suggestProducts("s", 11));
+    }
+
+    @Test
+    void testStreamsMatchMaterializedQueries() {
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            products.add(new Product(100 + i, "Item " + (i * 37 % 101), i % 13, "d", "brand " + i % 4, "category " + i % 3, i % 7, "i"));
+        }
+
+        List<SortStrategy> strategies = Arrays.asList(null, new SortByTitle(), new SortByPrice(), new CompositeSort(SortKey.BRAND, SortKey.PRICE));
+
+        for (SortStrategy strategy : strategies) {
+            for (boolean columnar : new boolean[]{false, true}) {
+                FilterService filterService = new FilterService();
+                ProductsService service = new ProductsService(strategy, filterService, columnar);
+                service.addProducts(products);
+
+                if (strategy instanceof SortByTitle) {
+                    service.registerSortStrategy(strategy);
+                }
+
+                filterService.addBrandToFilter("brand 1");
+                filterService.addBrandToFilter("brand 2");
+                filterService.changePriceFilters(FilterType.MIN_PRICE, 3f);
+                String message = strategy + (columnar ? " (columnar)" : "");
+                List<Product> expected = service.getProducts("item 1");
+
+                assertEquals(expected, service.streamProducts("item 1").toList(), message);
+                assertEquals(expected.subList(0, 3), service.streamProducts("item 1").limit(3).toList(), message);
+
+                Stream<Product> stream = service.streamProducts("");
+                service.addProduct(new Product(999, "Item 1", 5, "d", "brand 1", "category 0", 1, "i"));
+
+                assertFalse(stream.anyMatch(product -> product.getId() == 999), message);
+            }
+        }
+    }
+
+    @Test
+    void testBufferedQueriesMatchListsWithoutAllocating() {
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            products.add(new Product(100 + i, "Item " + (i * 37 % 101), i % 13, "d", "brand " + i % 4, "category " + i % 3, i % 7, "i"));
+        }
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<SortStrategy> strategies = Arrays.asList(null, new SortByTitle(), new SortByPrice(), new CompositeSort(SortKey.BRAND, SortKey.PRICE));
+
+        for (SortStrategy strategy : strategies) {
+            FilterService filterService = new FilterService();
+            ProductsService service = new ProductsService(strategy, filterService, true);
+            service.addProducts(products);
+
+            if (strategy instanceof SortByTitle) {
+                service.registerSortStrategy(strategy);
+            }
+
+            filterService.addBrandToFilter("brand 1");
+            filterService.changePriceFilters(FilterType.MAX_PRICE, 9f);
+            QueryBuffer buffer = new QueryBuffer();
+
+            assertEquals(service.getProducts("item 1"), service.query("item 1", buffer).toList(), String.valueOf(strategy));
+            assertEquals(service.getProducts(""), service.query("").toList(), String.valueOf(strategy));
+
+            for (int i = 0; i < 2000; i++) {
+                service.query("item 1", buffer);
+            }
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+
+            for (int i = 0; i < 100; i++) {
+                service.query("item 1", buffer);
+            }
+
+            assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before, String.valueOf(strategy));
+        }
+
+        assertThrows(IllegalStateException.class, () -> productsService.query(""));
+    }
+
+    @Test
+    void testPooledQueriesDoNotKeepOldCatalogs() throws InterruptedException {
+        ProductsService service = new ProductsService(null, new FilterService(), true);
+        service.addProducts(List.of(new Product(1, "Milk", 30, null, "brand", "category", 5, null)));
+        QueryBuffer first = service.query("milk");
+        WeakReference<ProductCatalog> catalog = new WeakReference<>(first.getCatalog());
+
+        assertNotSame(first, service.query("milk"));
+        service.addProduct(new Product(2, "Bread", 20, null, "brand", "category", 10, null));
+        first = null;
+
+        for (int i = 0; i < 50 && catalog.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(catalog.get());
+        assertEquals(1, service.query("bread").size());
+    }
+
+    @Test
+    void testStockChangesLeaveEarlierSnapshotsUnchanged() {
+        SortStrategy byStock = new CompositeSort(SortKey.STOCK);
+        SortStrategy byTitle = new SortByTitle();
+        ProductsService service = new ProductsService(byStock, new FilterService(), true);
+        Product milk = new Product(1, "Milk", 30, null, "brand", "category", 5, null);
+        Product bread = new Product(2, "Bread", 20, null, "brand", "category", 10, null);
+        Product butter = new Product(3, "Butter", 60, null, "brand", "category", 15, null);
+        service.registerSortStrategy(byTitle);
+        service.addProducts(List.of(milk, bread, butter));
+        ProductCatalog before = service.query("", new QueryBuffer()).getCatalog();
+
+        milk.changeQuantity(20);
+        bread.changeQuantity(30);
+        ProductCatalog after = service.query("", new QueryBuffer()).getCatalog();
+
+        assertEquals(List.of(butter, milk, bread), service.getProducts(""));
+        assertEquals(List.of(bread, butter), service.suggestProducts("b", 5));
+        assertEquals(5, before.getQuantity(before.ordinalOf(milk)));
+        assertArrayEquals(new int[]{1, 2, 0}, after.getSortedView(byTitle).toArray());
+        assertArrayEquals(new int[]{1, 2, 0}, before.getSortedView(byTitle).toArray());
+
+        Product cheese = new Product(4, "Cheese", 90, null, null, null, 25, null);
+        service.addProduct(cheese);
+        service.removeProduct(bread);
+
+        assertEquals(List.of(butter, milk, cheese), service.getProducts(""));
+        assertEquals(List.of(milk, bread, butter), before.getProducts());
+        assertEquals(List.of(milk, bread, butter), after.getProducts());
+        assertEquals(0, after.getTitleIndex().candidates("chee").length);
+        assertEquals(30, after.getQuantity(after.ordinalOf(bread)));
+    }
 }
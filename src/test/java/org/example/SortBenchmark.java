@@ -0,0 +1,68 @@
+package org.example;
+
+import Product.Product;
+import Product.ProductCatalog;
+import Sort.CompositeSort;
+import Sort.SortKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares sorting a million products with a chained comparator against the radix-sorted composite strategy.
+ */
+public class SortBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+    private static final int ROUNDS = 10;
+    private static final String[] WORDS = {"Milk", "Bread", "Cheese", "Chocolate", "Coffee", "Tea", "Juice", "Butter",
+            "Yogurt", "Honey", "Apple", "Banana", "Pasta", "Rice", "Flour", "Sugar", "Salt", "Water", "Kefir", "Candy"};
+
+    public static void main(String[] args) {
+        List<Product> products = new ArrayList<>(PRODUCTS);
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(1000);
+            products.add(new Product(i, title, random.nextInt(100_000) / 100f, "description", "brand", "category", 1, "image"));
+        }
+
+        ProductCatalog catalog = new ProductCatalog(false);
+        catalog.addAll(products);
+        CompositeSort strategy = new CompositeSort(SortKey.PRICE, SortKey.TITLE);
+        Comparator<Product> comparator = Comparator.<Product>comparingDouble(Product::getPrice).thenComparing(Product::getTitle);
+        int[] ordinals = catalog.getOrdinals();
+        long sink = 0;
+
+        for (int warmup = 0; warmup < ROUNDS; warmup++) {
+            sink += comparatorSort(products, comparator) + strategy.sortOrdinals(catalog, ordinals)[0];
+        }
+
+        long start = System.nanoTime();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += comparatorSort(products, comparator);
+        }
+
+        long comparisons = System.nanoTime() - start;
+        start = System.nanoTime();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            sink += strategy.sortOrdinals(catalog, ordinals)[0];
+        }
+
+        long radix = System.nanoTime() - start;
+
+        System.out.printf("comparator sort: %.2f ms/op%n", comparisons / 1e6 / ROUNDS);
+        System.out.printf("composite sort:  %.2f ms/op%n", radix / 1e6 / ROUNDS);
+        System.out.println("checksum: " + sink);
+    }
+
+    private static long comparatorSort(List<Product> products, Comparator<Product> comparator) {
+        List<Product> sorted = new ArrayList<>(products);
+        sorted.sort(comparator);
+        return sorted.get(0).getId();
+    }
+}
@@ -1,9 +1,12 @@
 package org.example;
 
 import Product.Product;
+import Product.ProductCatalog;
+import Product.TitleCollation;
 import Sort.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,9 +21,9 @@ public class SortTest {
         sortByPrice = new SortByPrice();
         sortByTitle = new SortByTitle();
 
-        product1 = new Product("1", "abc", 120, "description1", "brand1", "category1", 10, "image1");
-        product2 = new Product("2", "cda", 100, "description2", "brand2", "category1", 10, "image2");
-        product3 = new Product("3", "bca", 200, "description3", "brand3", "category2", 10, "image3");
+        product1 = new Product(1, "abc", 120, "description1", "brand1", "category1", 10, "image1");
+        product2 = new Product(2, "cda", 100, "description2", "brand2", "category1", 10, "image2");
+        product3 = new Product(3, "bca", 200, "description3", "brand3", "category2", 10, "image3");
     }
 
     @Test
@@ -75,4 +78,126 @@ public class SortTest {
         assertEquals(1, sortedProducts.size());
         assertEquals(product1, sortedProducts.get(0));
     }
+
+    @Test
+    void testCompositeSortBreaksTiesWithLaterKeys() {
+        Product cheap = new Product(4, "aaa", 100, "description4", "brand1", "category1", 3, "image4");
+        List<Product> products = List.of(product1, product2, product3, cheap);
+        CompositeSort byPriceAndTitle = new CompositeSort(SortKey.PRICE, SortKey.TITLE);
+        CompositeSort byBrandAndStock = new CompositeSort(SortKey.BRAND, SortKey.STOCK);
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+
+        assertEquals(List.of(cheap, product2, product1, product3), byPriceAndTitle.sortProducts(products));
+        assertEquals(List.of(cheap, product1, product2, product3), byBrandAndStock.sortProducts(products));
+        assertArrayEquals(new int[]{3, 0, 1, 2}, byBrandAndStock.sortOrdinals(catalog, new int[]{0, 1, 2, 3}));
+        assertNull(byBrandAndStock.ordinalComparator(catalog));
+        assertEquals("Sorting by price, title", byPriceAndTitle.toString());
+        assertThrows(IllegalArgumentException.class, CompositeSort::new);
+    }
+
+    @Test
+    void testRadixSortMatchesComparatorSort() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            products.add(new Product(100 + i, "t" + random.nextInt(50), random.nextInt(200) - 50.5f, "", "b" + random.nextInt(7), "c", random.nextInt(5), ""));
+        }
+
+        CompositeSort strategy = new CompositeSort(SortKey.PRICE, SortKey.BRAND, SortKey.TITLE, SortKey.STOCK);
+        List<Product> expected = new ArrayList<>(products);
+        expected.sort(strategy.getComparator());
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+
+        assertEquals(expected, strategy.sortProducts(products));
+        assertEquals(expected, catalog.getProducts(strategy.sortOrdinals(catalog, catalog.getOrdinals())));
+        expected.sort(Comparator.comparingDouble(Product::getPrice));
+        assertEquals(expected.stream().map(Product::getPrice).toList(), sortByPrice.sortProducts(products).stream().map(Product::getPrice).toList());
+    }
+
+    @Test
+    void testLocalizedTitleSortFollowsTheUkrainianAlphabet() {
+        List<String> titles = List.of("Яблуко", "ґудзик", "Груша", "їжак", "Ірис", "игла", "єнот", "apple", "Banana", "Apple");
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < titles.size(); i++) {
+            products.add(new Product(10 + i, titles.get(i), 1, "", "b", "c", 1, ""));
+        }
+
+        List<String> expected = List.of("apple", "Apple", "Banana", "Груша", "ґудзик", "єнот", "игла", "Ірис", "їжак", "Яблуко");
+        SortByLocalizedTitle strategy = new SortByLocalizedTitle();
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+
+        assertEquals(expected, strategy.sortProducts(products).stream().map(Product::getTitle).toList());
+        assertEquals(expected, catalog.getProducts(strategy.sortOrdinals(catalog, catalog.getOrdinals())).stream().map(Product::getTitle).toList());
+    }
+
+    @Test
+    void testLocalizedTitleSortMatchesCollator() {
+        Random random = new Random(7);
+        String letters = "аАбгґдеєиіїйкоуяabcABC";
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder title = new StringBuilder();
+
+            for (int length = 1 + random.nextInt(12); length > 0; length--) {
+                title.append(letters.charAt(random.nextInt(letters.length())));
+            }
+
+            products.add(new Product(100 + i, title.toString(), 1, "", "b", "c", 1, ""));
+        }
+
+        java.text.Collator collator = java.text.Collator.getInstance(TitleCollation.LOCALE);
+        List<Product> expected = new ArrayList<>(products);
+        expected.sort(Comparator.comparing(Product::getTitle, collator));
+        SortByLocalizedTitle strategy = new SortByLocalizedTitle();
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+
+        assertEquals(expected, strategy.sortProducts(products));
+        assertEquals(expected, catalog.getProducts(strategy.sortOrdinals(catalog, catalog.getOrdinals())));
+    }
+
+    @Test
+    void testParallelSortMatchesSequentialSort() {
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 40_000; i++) {
+            products.add(new Product(100 + i, "t" + random.nextInt(300), random.nextInt(500) / 4f, "", "b" + random.nextInt(5), "c", 1, ""));
+        }
+
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addAll(products);
+        List<SortStrategy> strategies = List.of(sortByPrice, sortByTitle, new SortByLocalizedTitle(), new CompositeSort(SortKey.BRAND, SortKey.PRICE, SortKey.TITLE));
+        List<List<Product>> sequential = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            OrdinalSort.setParallelExecution(null, 1);
+
+            for (SortStrategy strategy : strategies) {
+                sequential.add(strategy.sortProducts(products));
+                sequential.add(catalog.getProducts(strategy.sortOrdinals(catalog, catalog.getOrdinals())));
+            }
+
+            OrdinalSort.setParallelExecution(pool, 1000);
+
+            for (int i = 0; i < strategies.size(); i++) {
+                SortStrategy strategy = strategies.get(i);
+
+                assertEquals(sequential.get(2 * i), strategy.sortProducts(products), strategy.toString());
+                assertEquals(sequential.get(2 * i + 1), catalog.getProducts(strategy.sortOrdinals(catalog, catalog.getOrdinals())), strategy.toString());
+            }
+        } finally {
+            OrdinalSort.setParallelExecution(ForkJoinPool.commonPool(), OrdinalSort.DEFAULT_PARALLEL_THRESHOLD);
+            pool.shutdown();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> OrdinalSort.setParallelExecution(pool, 0));
+    }
 }